@@ -0,0 +1,64 @@
+package edu.illinois.i3.emop.apps.pageevaluator.benchmarks;
+
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.CompactDictionary;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.benchmarks.SyntheticPages.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBenchmark {
+
+    private static final int LOOKUP_COUNT = 1024;
+
+    // a dictionary built from a word list (on the heap), or a memory-mapped dictionary image
+    @Param({ "heap", "mapped" })
+    public String dictionaryType;
+
+    private CompactDictionary _dictionary;
+    private final String[] _words = new String[LOOKUP_COUNT];
+
+    @Setup
+    public void setup() throws IOException {
+        SyntheticPages pages = new SyntheticPages(SEED, DICTIONARY_SIZE);
+        _dictionary = CompactDictionary.build(pages.vocabulary());
+
+        if ("mapped".equals(dictionaryType)) {
+            File imageFile = File.createTempFile("dictionary", ".img");
+            imageFile.deleteOnExit();
+            _dictionary.write(imageFile);
+            _dictionary = CompactDictionary.map(imageFile);
+        }
+
+        // a mix of correct, capitalized and misspelled words
+        Random random = new Random(SEED);
+        for (int i = 0; i < LOOKUP_COUNT; i++) {
+            String word = pages.randomWord();
+            switch (random.nextInt(4)) {
+                case 0: _words[i] = pages.randomMisspelling(); break;
+                case 1: _words[i] = Character.toUpperCase(word.charAt(0)) + word.substring(1); break;
+                default: _words[i] = word;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUP_COUNT)
+    public int isCorrect() {
+        int correctCount = 0;
+        for (String word : _words)
+            if (_dictionary.isCorrect(word))
+                correctCount++;
+
+        return correctCount;
+    }
+}
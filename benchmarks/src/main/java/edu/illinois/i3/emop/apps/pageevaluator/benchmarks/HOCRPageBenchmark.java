@@ -0,0 +1,36 @@
+package edu.illinois.i3.emop.apps.pageevaluator.benchmarks;
+
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.benchmarks.SyntheticPages.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HOCRPageBenchmark {
+
+    @Param({ "small", "large" })
+    public String pageSize;
+
+    private String _page;
+
+    @Setup
+    public void setup() {
+        SyntheticPages pages = new SyntheticPages(SEED, VOCABULARY_SIZE);
+        int lineCount = "large".equals(pageSize) ? LARGE_PAGE_LINES : SMALL_PAGE_LINES;
+        _page = pages.hocrPage(lineCount, WORDS_PER_LINE, OCR_GARBAGE_RATE);
+    }
+
+    @Benchmark
+    public HOCRPage parse() throws PageParserException {
+        return HOCRPage.parse(new StringReader(_page));
+    }
+}
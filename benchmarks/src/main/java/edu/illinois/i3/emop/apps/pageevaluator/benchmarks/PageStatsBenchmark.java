@@ -0,0 +1,41 @@
+package edu.illinois.i3.emop.apps.pageevaluator.benchmarks;
+
+import edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.txt.TxtPage;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.SimpleTokenizers.Whitespace;
+import static edu.illinois.i3.emop.apps.pageevaluator.benchmarks.SyntheticPages.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageStatsBenchmark {
+
+    // clean text, or the kind of garbage-heavy OCR output bad scans produce
+    @Param({ "clean", "garbage" })
+    public String text;
+
+    private TxtPage _page;
+
+    @Setup
+    public void setup() throws PageParserException {
+        double garbageRate = "garbage".equals(text) ? HEAVY_GARBAGE_RATE : CLEAN_GARBAGE_RATE;
+        String page = new SyntheticPages(SEED, VOCABULARY_SIZE).txtPage(SMALL_PAGE_LINES, WORDS_PER_LINE, garbageRate);
+        _page = TxtPage.parse(new StringReader(page), "page", NLPToolsFactory.createSimpleTokenizer(Whitespace));
+    }
+
+    @Benchmark
+    public OCRPageStats calculateStatistics() {
+        return PageStatsCalculator.calculateStatistics(_page);
+    }
+}
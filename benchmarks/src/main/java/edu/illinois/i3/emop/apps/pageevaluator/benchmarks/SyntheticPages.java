@@ -0,0 +1,226 @@
+package edu.illinois.i3.emop.apps.pageevaluator.benchmarks;
+
+import com.google.common.collect.Lists;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Generates reproducible synthetic pages (text and hOCR) for the benchmarks: the same seed always gives the same
+// vocabulary and pages. Words are made up of common English syllables, and a configurable fraction of them is
+// damaged the way OCR output typically is (misrecognized characters, stray punctuation, repeated characters,
+// pure garbage); lines end with hyphenated words now and then, and there are some numbers and punctuation.
+public final class SyntheticPages {
+
+    // The pages used by the benchmarks
+    public static final long SEED = 42;
+    public static final int VOCABULARY_SIZE = 20000;
+    public static final int DICTIONARY_SIZE = 100000;
+    public static final int SMALL_PAGE_LINES = 40;
+    public static final int LARGE_PAGE_LINES = 2000;
+    public static final int WORDS_PER_LINE = 10;
+    public static final double CLEAN_GARBAGE_RATE = 0.02;
+    public static final double OCR_GARBAGE_RATE = 0.1;
+    public static final double HEAVY_GARBAGE_RATE = 0.5;
+
+    private static final String[] SYLLABLES = {
+            "the", "an", "con", "ver", "pro", "sion", "ing", "er", "ed", "tion", "al", "re", "de", "com", "in",
+            "ly", "ent", "ment", "ous", "ive", "ter", "per", "at", "or", "es", "est", "ble", "ty", "ri", "ma",
+            "li", "na", "lo", "ca", "di", "mi", "po", "sa", "ta", "un", "ex", "ac", "ad", "ap", "ar", "as"
+    };
+
+    private static final String OCR_NOISE = "~^;:.,'`!|\\/_-*1l0oOcre";
+    private static final String PUNCTUATION = ".,;:!?";
+
+    private final Random _random;
+    private final List<String> _vocabulary;
+
+    public SyntheticPages(long seed, int vocabularySize) {
+        _random = new Random(seed);
+        _vocabulary = createVocabulary(vocabularySize);
+    }
+
+    // The (distinct) words pages are made of; use it as the dictionary
+    public List<String> vocabulary() {
+        return _vocabulary;
+    }
+
+    // A word that is not in the vocabulary (most of the time)
+    public String randomMisspelling() {
+        return damage(randomWord());
+    }
+
+    public String randomWord() {
+        return _vocabulary.get(_random.nextInt(_vocabulary.size()));
+    }
+
+    public String txtPage(int lineCount, int wordsPerLine, double garbageRate) {
+        StringBuilder page = new StringBuilder();
+        for (List<String> line : lines(lineCount, wordsPerLine, garbageRate)) {
+            for (int i = 0; i < line.size(); i++) {
+                if (i > 0) page.append(' ');
+                page.append(line.get(i));
+            }
+            page.append('\n');
+        }
+
+        return page.toString();
+    }
+
+    public String hocrPage(int lineCount, int wordsPerLine, double garbageRate) {
+        StringBuilder page = new StringBuilder();
+        page.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+            .append("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" ")
+            .append("\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n")
+            .append("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"en\" lang=\"en\">\n")
+            .append("<head>\n<title></title>\n")
+            .append("<meta http-equiv=\"Content-Type\" content=\"text/html;charset=utf-8\" />\n")
+            .append("<meta name=\"ocr-system\" content=\"tesseract 3.02.02\" />\n")
+            .append("<meta name=\"ocr-capabilities\" content=\"ocr_page ocr_carea ocr_par ocr_line ocrx_word\" />\n")
+            .append("</head>\n<body>\n")
+            .append("<div class=\"ocr_page\" id=\"page_1\" title=\"image &quot;page.tif&quot;; bbox 0 0 2550 3300; ppageno 0\">\n")
+            .append("<div class=\"ocr_carea\" id=\"block_1_1\" title=\"bbox 100 100 2450 3200\">\n")
+            .append("<p class=\"ocr_par\" dir=\"ltr\" id=\"par_1_1\" title=\"bbox 100 100 2450 3200\">\n");
+
+        int lineNumber = 0;
+        int wordNumber = 0;
+        for (List<String> line : lines(lineCount, wordsPerLine, garbageRate)) {
+            int y = 100 + lineNumber * 40;
+            page.append(String.format("<span class=\"ocr_line\" id=\"line_1_%d\" title=\"bbox 100 %d 2450 %d; baseline 0 -8\">",
+                    ++lineNumber, y, y + 32));
+
+            int x = 100;
+            for (String word : line) {
+                int width = 18 * word.length();
+                page.append(String.format("<span class=\"ocrx_word\" id=\"word_1_%d\" title=\"bbox %d %d %d %d; x_wconf %d\" lang=\"eng\">",
+                        ++wordNumber, x, y, x + width, y + 32, 40 + _random.nextInt(60)));
+                appendEscaped(page, word);
+                page.append("</span> ");
+                x += width + 20;
+            }
+
+            page.append("\n</span>\n");
+        }
+
+        page.append("</p>\n</div>\n</div>\n</body>\n</html>\n");
+
+        return page.toString();
+    }
+
+    private List<List<String>> lines(int lineCount, int wordsPerLine, double garbageRate) {
+        List<List<String>> lines = Lists.newArrayListWithCapacity(lineCount);
+        List<String> line = Lists.newArrayList();
+        boolean sentenceStart = true;
+
+        while (lines.size() < lineCount) {
+            String word;
+            double r = _random.nextDouble();
+            if (r < 0.03)
+                word = randomNumber();
+            else {
+                word = randomWord();
+                if (sentenceStart)
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+
+            sentenceStart = false;
+            if (_random.nextDouble() < 0.12) {
+                word += PUNCTUATION.charAt(_random.nextInt(PUNCTUATION.length()));
+                sentenceStart = word.endsWith(".");
+            }
+
+            if (_random.nextDouble() < garbageRate)
+                word = damage(word);
+
+            if (line.size() == wordsPerLine - 1 && word.length() > 5 && _random.nextDouble() < 0.2) {
+                // hyphenate the word at the end of the line
+                int split = 2 + _random.nextInt(word.length() - 4);
+                line.add(word.substring(0, split) + "-");
+                lines.add(line);
+                line = Lists.newArrayList();
+                word = word.substring(split);
+            }
+
+            line.add(word);
+            if (line.size() >= wordsPerLine) {
+                lines.add(line);
+                line = Lists.newArrayList();
+            }
+        }
+
+        return lines;
+    }
+
+    private String damage(String word) {
+        StringBuilder damaged = new StringBuilder(word);
+        switch (_random.nextInt(5)) {
+            case 0:
+                // misrecognized character
+                damaged.setCharAt(_random.nextInt(damaged.length()), randomNoise());
+                break;
+
+            case 1:
+                // stray punctuation
+                damaged.insert(_random.nextInt(damaged.length() + 1), randomNoise());
+                break;
+
+            case 2:
+                // repeated characters
+                char c = damaged.charAt(_random.nextInt(damaged.length()));
+                damaged.insert(damaged.indexOf(String.valueOf(c)), new char[] { c, c, c, c });
+                break;
+
+            case 3:
+                // two misrecognized characters
+                damaged.setCharAt(_random.nextInt(damaged.length()), randomNoise());
+                damaged.setCharAt(_random.nextInt(damaged.length()), randomNoise());
+                break;
+
+            default:
+                // garbage
+                damaged.setLength(0);
+                for (int i = 1 + _random.nextInt(6); i > 0; i--)
+                    damaged.append(randomNoise());
+        }
+
+        return damaged.toString();
+    }
+
+    private char randomNoise() {
+        return OCR_NOISE.charAt(_random.nextInt(OCR_NOISE.length()));
+    }
+
+    private String randomNumber() {
+        switch (_random.nextInt(3)) {
+            case 0: return Integer.toString(1500 + _random.nextInt(400));
+            case 1: return String.format("%d,%03d", 1 + _random.nextInt(99), _random.nextInt(1000));
+            default: return Integer.toString(1 + _random.nextInt(300)) + ".";
+        }
+    }
+
+    private List<String> createVocabulary(int size) {
+        Set<String> words = new LinkedHashSet<>(size);
+        while (words.size() < size) {
+            StringBuilder word = new StringBuilder();
+            for (int i = 1 + _random.nextInt(4); i > 0; i--)
+                word.append(SYLLABLES[_random.nextInt(SYLLABLES.length)]);
+
+            words.add(word.toString());
+        }
+
+        return Lists.newArrayList(words);
+    }
+
+    private static void appendEscaped(StringBuilder xml, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<': xml.append("&lt;"); break;
+                case '>': xml.append("&gt;"); break;
+                case '&': xml.append("&amp;"); break;
+                default: xml.append(c);
+            }
+        }
+    }
+}
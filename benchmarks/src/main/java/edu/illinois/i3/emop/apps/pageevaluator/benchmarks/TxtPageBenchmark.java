@@ -0,0 +1,40 @@
+package edu.illinois.i3.emop.apps.pageevaluator.benchmarks;
+
+import edu.illinois.i3.emop.apps.pageevaluator.PageEvaluator;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.UnsupportedLanguageException;
+import edu.illinois.i3.emop.apps.pageevaluator.txt.TxtPage;
+import opennlp.tools.tokenize.Tokenizer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.benchmarks.SyntheticPages.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TxtPageBenchmark {
+
+    // the SimpleTokenizers, and TokenizerME
+    @Param({ "simple", "whitespace", "model" })
+    public String tokenizerType;
+
+    private Tokenizer _tokenizer;
+    private String _page;
+
+    @Setup
+    public void setup() throws UnsupportedLanguageException {
+        _tokenizer = PageEvaluator.createTokenizer(tokenizerType, "en");
+        _page = new SyntheticPages(SEED, VOCABULARY_SIZE).txtPage(SMALL_PAGE_LINES, WORDS_PER_LINE, OCR_GARBAGE_RATE);
+    }
+
+    @Benchmark
+    public TxtPage parse() throws PageParserException {
+        return TxtPage.parse(new StringReader(_page), "page", _tokenizer);
+    }
+}
@@ -0,0 +1,208 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class BatchEvaluator {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchEvaluator.class);
+
+    private final PageEvaluator _evaluator;
+    private final int _threadCount;
+    private final int _maxPending;
+    private final boolean _preserveOrder;
+    private final boolean _quiet;
+    private final boolean _allPages;
+
+    public interface Listener {
+        void pageEvaluated(File pageFile, PageResult result);
+        void pageFailed(File pageFile, Exception e);
+    }
+
+    // maxPending bounds the number of pages submitted but not yet reported, so that walking a huge input tree
+    // never queues more than that many pages (or buffers more than that many results while waiting for a slow
+    // page when preserving the input order)
+    public BatchEvaluator(PageEvaluator evaluator, int threadCount, int maxPending, boolean preserveOrder, boolean quiet) {
+        this(evaluator, threadCount, maxPending, preserveOrder, quiet, false);
+    }
+
+    // With allPages, every page of each (multi-page) document is evaluated, and the result reported for each file
+    // is a DocumentResult
+    public BatchEvaluator(PageEvaluator evaluator, int threadCount, int maxPending, boolean preserveOrder, boolean quiet,
+                          boolean allPages) {
+        if (threadCount < 1)
+            throw new IllegalArgumentException("Invalid thread count: " + threadCount);
+
+        _evaluator = evaluator;
+        _threadCount = threadCount;
+        _maxPending = Math.max(maxPending, threadCount);
+        _preserveOrder = preserveOrder;
+        _quiet = quiet;
+        _allPages = allPages;
+    }
+
+    // Evaluates all the pages and reports the results to the listener; the listener is only ever
+    // called from the calling thread, so it doesn't need to be thread-safe
+    public void run(Iterable<File> pageFiles, Listener listener) throws InterruptedException {
+        if (_threadCount == 1) {
+            for (File pageFile : pageFiles)
+                report(new PageTask(pageFile, null).call(), listener);
+
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(_threadCount,
+                new ThreadFactoryBuilder().setNameFormat("page-worker-%d").setDaemon(true).build());
+
+        // the workers reading the documents wait for their pages, so the pages need their own threads
+        ExecutorService pageExecutor = _allPages ? newPageExecutor() : null;
+        try {
+            if (_preserveOrder)
+                runOrdered(pageFiles, listener, executor, pageExecutor);
+            else
+                runUnordered(pageFiles, listener, executor, pageExecutor);
+        }
+        finally {
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+
+            if (pageExecutor != null)
+                pageExecutor.shutdownNow();
+        }
+    }
+
+    // At most maxPending pages of the documents wait to be evaluated: when the queue is full, the worker reading
+    // a document evaluates its next page itself, so that a document isn't parsed much faster than its pages are
+    // evaluated (which would hold all its pages in memory)
+    private ExecutorService newPageExecutor() {
+        return new ThreadPoolExecutor(_threadCount, _threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(_maxPending),
+                new ThreadFactoryBuilder().setNameFormat("document-page-worker-%d").setDaemon(true).build(),
+                new RejectedExecutionHandler() {
+                    @Override
+                    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                        if (executor.isShutdown())
+                            throw new RejectedExecutionException("The evaluation is over");
+
+                        task.run();
+                    }
+                });
+    }
+
+    private void runOrdered(Iterable<File> pageFiles, Listener listener, ExecutorService executor,
+                            ExecutorService pageExecutor) throws InterruptedException {
+        Deque<Future<TaskResult>> pending = new ArrayDeque<>(_maxPending);
+
+        for (File pageFile : pageFiles) {
+            if (pending.size() >= _maxPending)
+                report(getResult(pending.removeFirst()), listener);
+
+            pending.addLast(executor.submit(new PageTask(pageFile, pageExecutor)));
+
+            // report whatever is already done, without waiting
+            while (!pending.isEmpty() && pending.peekFirst().isDone())
+                report(getResult(pending.removeFirst()), listener);
+        }
+
+        while (!pending.isEmpty())
+            report(getResult(pending.removeFirst()), listener);
+    }
+
+    private void runUnordered(Iterable<File> pageFiles, Listener listener, ExecutorService executor,
+                              ExecutorService pageExecutor) throws InterruptedException {
+        CompletionService<TaskResult> completionService = new ExecutorCompletionService<>(executor);
+        int pendingCount = 0;
+
+        for (File pageFile : pageFiles) {
+            if (pendingCount >= _maxPending) {
+                report(getResult(completionService.take()), listener);
+                pendingCount--;
+            }
+
+            completionService.submit(new PageTask(pageFile, pageExecutor));
+            pendingCount++;
+
+            Future<TaskResult> done;
+            while ((done = completionService.poll()) != null) {
+                report(getResult(done), listener);
+                pendingCount--;
+            }
+        }
+
+        for (; pendingCount > 0; pendingCount--)
+            report(getResult(completionService.take()), listener);
+    }
+
+    private static TaskResult getResult(Future<TaskResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            // PageTask catches everything it can recover from
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void report(TaskResult taskResult, Listener listener) {
+        if (taskResult._error != null)
+            listener.pageFailed(taskResult._pageFile, taskResult._error);
+        else
+            listener.pageEvaluated(taskResult._pageFile, taskResult._result);
+    }
+
+    private static class TaskResult {
+        private final File _pageFile;
+        private final PageResult _result;
+        private final Exception _error;
+
+        private TaskResult(File pageFile, PageResult result, Exception error) {
+            _pageFile = pageFile;
+            _result = result;
+            _error = error;
+        }
+    }
+
+    private class PageTask implements Callable<TaskResult> {
+        private final File _pageFile;
+        // evaluates the pages of a multi-page document (null to evaluate them in the calling thread)
+        private final ExecutorService _pageExecutor;
+
+        private PageTask(File pageFile, ExecutorService pageExecutor) {
+            _pageFile = pageFile;
+            _pageExecutor = pageExecutor;
+        }
+
+        @Override
+        public TaskResult call() {
+            if (!_quiet)
+                log.info("Processing {}: {}", _evaluator.format(), _pageFile);
+
+            try {
+                PageResult result = _allPages ?
+                        _evaluator.evaluateDocument(_pageFile, _pageExecutor) : _evaluator.evaluate(_pageFile);
+
+                return new TaskResult(_pageFile, result, null);
+            }
+            catch (Exception e) {
+                return new TaskResult(_pageFile, null, e);
+            }
+        }
+    }
+}
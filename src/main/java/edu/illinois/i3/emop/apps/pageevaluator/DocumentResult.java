@@ -0,0 +1,22 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+// The results of every page of a multi-page document. The stats of the document are the sum of the stats of its
+// pages, and its indicators are computed from them, as if the whole document were a single page.
+public class DocumentResult extends PageResult {
+    private final ImmutableList<PageResult> _pages;
+
+    public DocumentResult(String documentId, PageStatsCalculator.OCRPageStats stats, PageQualityIndicators indicators,
+                          List<PageResult> pages) {
+        super(documentId, stats, indicators);
+        _pages = ImmutableList.copyOf(pages);
+    }
+
+    // The results of the pages, in document order
+    public ImmutableList<PageResult> pages() {
+        return _pages;
+    }
+}
@@ -0,0 +1,38 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import java.io.File;
+import java.nio.file.Path;
+
+// A page file found in one of the inputs, with its path relative to the parent of that input (so it starts with the
+// name of the directory or file given), which tells apart the pages of different inputs (e.g. the "1.html" of every
+// volume) without the full paths; the page files listed in a manifest keep the path they are listed with
+public class InputFile extends File {
+
+    private final String _relativePath;
+
+    public InputFile(String path, String relativePath) {
+        super(path);
+
+        _relativePath = relativePath;
+    }
+
+    // The file, found in (or given as) the input
+    public static InputFile of(File file, File input) {
+        Path inputPath = input.toPath().toAbsolutePath().normalize();
+        Path root = inputPath.getParent();
+        Path filePath = file.toPath().toAbsolutePath().normalize();
+
+        String relativePath = (root != null) ? root.relativize(filePath).toString() : filePath.toString();
+
+        return new InputFile(file.getPath(), relativePath);
+    }
+
+    // The path of the page file relative to its input, or its path if it's not an input file
+    public static String relativePath(File pageFile) {
+        return (pageFile instanceof InputFile) ? ((InputFile) pageFile)._relativePath : pageFile.getPath();
+    }
+
+    public String relativePath() {
+        return _relativePath;
+    }
+}
@@ -1,39 +1,67 @@
 package edu.illinois.i3.emop.apps.pageevaluator;
 
-import java.util.Properties;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
 
-public class KeyValueStore {
-    private final Properties _store;
+import java.util.Map;
 
-    public KeyValueStore() {
-        _store = new Properties();
-    }
+public class KeyValueStore {
+    // values are kept as they are put, without converting them to strings; the map is only created when needed
+    private Map<String, Object> _store;
 
     public void put(String key, Object value) {
-        _store.setProperty(key, value.toString());
+        putValue(key, Preconditions.checkNotNull(value));
     }
 
     public String getString(String key) {
-        return _store.getProperty(key);
+        Object value = getValue(key);
+        return (value != null) ? value.toString() : null;
     }
 
     public Integer getInt(String key) {
-        String value = getString(key);
-        return (value != null) ? Integer.parseInt(value) : null;
+        Object value = getValue(key);
+        return (value != null) ? toInt(value) : null;
     }
 
     public Float getFloat(String key) {
-        String value = getString(key);
-        return (value != null) ? Float.parseFloat(value) : null;
+        Object value = getValue(key);
+        return (value != null) ? toFloat(value) : null;
     }
 
     public Double getDouble(String key) {
-        String value = getString(key);
-        return (value != null) ? Double.parseDouble(value) : null;
+        Object value = getValue(key);
+        return (value != null) ? toDouble(value) : null;
     }
 
     public Boolean getBoolean(String key) {
-        String value = getString(key);
-        return (value != null) ? Boolean.parseBoolean(value) : null;
+        Object value = getValue(key);
+        return (value != null) ? toBoolean(value) : null;
+    }
+
+    protected void putValue(String key, Object value) {
+        if (_store == null)
+            _store = Maps.newHashMap();
+
+        _store.put(key, value);
+    }
+
+    protected Object getValue(String key) {
+        return (_store != null) ? _store.get(key) : null;
+    }
+
+    protected static int toInt(Object value) {
+        return (value instanceof Number) ? ((Number) value).intValue() : Integer.parseInt(value.toString());
+    }
+
+    protected static float toFloat(Object value) {
+        return (value instanceof Number) ? ((Number) value).floatValue() : Float.parseFloat(value.toString());
+    }
+
+    protected static double toDouble(Object value) {
+        return (value instanceof Number) ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    protected static boolean toBoolean(Object value) {
+        return (value instanceof Boolean) ? (Boolean) value : Boolean.parseBoolean(value.toString());
     }
 }
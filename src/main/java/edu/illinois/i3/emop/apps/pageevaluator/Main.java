@@ -1,88 +1,165 @@
 package edu.illinois.i3.emop.apps.pageevaluator;
 
-import com.google.common.base.Charsets;
-import com.google.common.base.Predicate;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.Iterables;
-import com.google.common.io.Files;
+import com.google.common.io.Closer;
 import com.martiansoftware.jsap.*;
 import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
 import com.martiansoftware.jsap.stringparsers.FileStringParser;
-import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.aggregate.AggregateStats;
+import edu.illinois.i3.emop.apps.pageevaluator.aggregate.VolumeAggregator;
+import edu.illinois.i3.emop.apps.pageevaluator.cache.ResultCache;
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.CompactDictionary;
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.WordDictionary;
 import edu.illinois.i3.emop.apps.pageevaluator.exceptions.UnsupportedLanguageException;
-import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRPage;
-import edu.illinois.i3.emop.apps.pageevaluator.txt.TxtPage;
-import edu.illinois.i3.spellcheck.engine.SpellDictionary;
-import edu.illinois.i3.spellcheck.engine.SpellDictionaryHashMap;
-import opennlp.tools.tokenize.Tokenizer;
+import edu.illinois.i3.emop.apps.pageevaluator.metrics.EvaluationMetrics;
+import edu.illinois.i3.emop.apps.pageevaluator.metrics.MetricsReporter;
+import edu.illinois.i3.emop.apps.pageevaluator.output.AggregateResultWriter;
+import edu.illinois.i3.emop.apps.pageevaluator.output.PageResultWriter;
+import edu.illinois.i3.emop.apps.pageevaluator.server.EvaluationServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.Reader;
-
-import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.SimpleTokenizers.*;
-import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.*;
-import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Main {
 
     private static final Logger log = LoggerFactory.getLogger(Main.class);
 
+    // seconds to wait for requests in progress when the server is stopped
+    private static final int SERVER_SHUTDOWN_GRACE_PERIOD = 30;
+
+    // HTML is hOCR read by a lenient parser, for the hOCR pages that are not well-formed XML
     public enum DocumentFormat {
-        TXT, HOCR
+        TXT, HOCR, HTML, ALTO, PAGE
+    }
+
+    // The options given on the command line
+    private static class Options {
+        private final DocumentFormat _format;
+        private final String[] _pageSpecs;
+        private final File _manifestFile;
+        private final String _entryFilter;
+        private final boolean _quiet;
+        private final File _dictionaryFile;
+        private final String _tokenizerType;
+        private final String _language;
+        private final int _threadCount;
+        private final int _queueSize;
+        private final boolean _unordered;
+        private final boolean _allPages;
+        private final File _compiledDictionaryFile;
+        private final boolean _serverMode;
+        private final InetSocketAddress _serverAddress;
+        private final int _maxRequestSize;
+        private final String[] _preloadLanguages;
+        private final File _cacheDirectory;
+        private final long _cacheSize;
+        private final String _volumeGrouping;
+        private final File _outputFile;
+        private final PageResultWriter.Format _outputFormat;
+        private final File _metricsFile;
+        private final EvaluationMetrics.Format _metricsFormat;
+        private final int _metricsInterval;
+
+        private Options(JSAPResult cmdLine) {
+            _format = DocumentFormat.valueOf(cmdLine.getString("format").toUpperCase());
+            _pageSpecs = cmdLine.getStringArray("pageOcrFile");
+            _manifestFile = cmdLine.getFile("manifest");
+            _entryFilter = cmdLine.getString("entries");
+            _quiet = cmdLine.getBoolean("quiet");
+            _dictionaryFile = cmdLine.getFile("dictionary");
+            _tokenizerType = cmdLine.getString("tokenizer");
+            _language = cmdLine.getString("language");
+            _threadCount = cmdLine.getInt("threads");
+            _queueSize = cmdLine.getInt("queueSize");
+            _unordered = cmdLine.getBoolean("unordered");
+            _allPages = cmdLine.getBoolean("allPages");
+            _compiledDictionaryFile = cmdLine.getFile("compileDictionary");
+            _serverMode = cmdLine.contains("serverPort");
+            _serverAddress = _serverMode ?
+                    new InetSocketAddress(cmdLine.getString("serverAddress"), cmdLine.getInt("serverPort")) : null;
+            _maxRequestSize = (int) Math.min(cmdLine.getLong("maxRequestSize") * 1024 * 1024, Integer.MAX_VALUE);
+            _preloadLanguages = cmdLine.getStringArray("preload");
+            _cacheDirectory = cmdLine.getFile("cache");
+            _cacheSize = cmdLine.getLong("cacheSize") * 1024 * 1024;
+            _volumeGrouping = cmdLine.getString("volumes");
+            _outputFile = cmdLine.getFile("output");
+            _outputFormat = PageResultWriter.Format.valueOf(cmdLine.getString("outputFormat").toUpperCase());
+            _metricsFile = cmdLine.getFile("metrics");
+            _metricsFormat = EvaluationMetrics.Format.valueOf(cmdLine.getString("metricsFormat").toUpperCase());
+            _metricsInterval = cmdLine.getInt("metricsInterval");
+        }
+
+        private boolean hasPages() {
+            return _pageSpecs.length > 0 || _manifestFile != null;
+        }
+
+        // The reason the options can't be used together, or null if they can
+        private String validate() throws IOException {
+            if (_allPages && _cacheDirectory != null)
+                return "The result cache cannot be used to evaluate all the pages of the documents";
+
+            if (_volumeGrouping != null && _outputFormat != PageResultWriter.Format.TEXT)
+                return "The volume scores can only be output as text";
+
+            if (_compiledDictionaryFile != null && _dictionaryFile == null)
+                return "A dictionary must be specified (with -d) to compile a dictionary image";
+
+            if (_compiledDictionaryFile != null &&
+                    _compiledDictionaryFile.getCanonicalFile().equals(_dictionaryFile.getCanonicalFile()))
+                return "The dictionary image cannot overwrite the dictionary it is compiled from";
+
+            if (!_serverMode && !hasPages() && _compiledDictionaryFile == null)
+                return "No pages specified; provide page files, directories, glob patterns or a manifest";
+
+            return null;
+        }
     }
 
     public static void main(String[] args) {
         try {
             // Extract command line arguments
-            JSAPResult cmdLine = parseArguments(args);
-            DocumentFormat format = DocumentFormat.valueOf(cmdLine.getString("format").toUpperCase());
-            File pageOcrFile = cmdLine.getFile("pageOcrFile");
-            boolean quiet = cmdLine.getBoolean("quiet");
-            File dictionaryFile = cmdLine.getFile("dictionary");
-            String tokenizerType = cmdLine.getString("tokenizer");
-            String language = cmdLine.getString("language");
-
-            if (!quiet)
-                log.info("Processing {}: {}", format, pageOcrFile);
-
-            // Read the page
-            OCRPage<? extends OCRToken> page;
-            try (Reader pageReader = Files.newReader(pageOcrFile, Charsets.UTF_8)) {
-                Tokenizer tokenizer = createTokenizer(tokenizerType, language);
-                page = readPage(pageReader, pageOcrFile.getName(), format, tokenizer);
+            Options options = new Options(parseArguments(args));
+
+            String error = options.validate();
+            if (error != null) {
+                System.err.println(error);
+                System.exit(1);
             }
 
-            // Compute page stats
-            PageStatsCalculator.OCRPageStats pageStats = PageStatsCalculator.calculateStatistics(page);
-
-            // Load the dictionary and spell check the page tokens
-            if (dictionaryFile != null) {
-                try (Reader dictReader = Files.newReader(dictionaryFile, Charsets.UTF_8)) {
-                    final SpellDictionary dictionary = new SpellDictionaryHashMap(dictReader);
-                    Iterable<? extends OCRToken> correctTokens = FluentIterable.from(page.tokens())
-                            .filter(new Predicate<OCRToken>() {
-                                @Override
-                                public boolean apply(OCRToken ocrToken) {
-                                    String tokenText = ocrToken.text();
-                                    String cleanText = PageStatsCalculator.cleanToken(tokenText);
-                                    boolean isCorrect = dictionary.isCorrect(cleanText);
-                                    return isCorrect;
-                                }
-                            });
-                    int numCorrectTokens = Iterables.size(correctTokens);
-
-                    pageStats.put("numCorrectTokens", numCorrectTokens);
-                }
+            WordDictionary dictionary = loadDictionary(options);
+
+            // compiling the dictionary doesn't require evaluating any pages
+            if (options._compiledDictionaryFile != null && !options.hasPages() && !options._serverMode)
+                return;
+
+            // Load the tokenizer models of the languages the server will be asked for up front
+            if (options._preloadLanguages.length > 0) {
+                NLPToolsFactory.preload(Arrays.asList(options._preloadLanguages), NLPToolsFactory.Tools.Tokenizer);
+                if (!options._quiet)
+                    log.info("Preloaded the tokenizer models for {}", Arrays.toString(options._preloadLanguages));
             }
 
-            PageQualityIndicators pageQuality = computePageQualityIndicators(pageStats);
-            if (pageQuality != null) {
-                System.out.println(String.format("%s\t%.2f\t%.2f", pageOcrFile.getName(),
-                        pageQuality.getDouble(TextQuality), pageQuality.getDouble(SpellingQuality)));
+            // Only record the time spent in each stage if a metrics report is requested
+            EvaluationMetrics metrics = null;
+            MetricsReporter metricsReporter = null;
+            if (options._metricsFile != null) {
+                metrics = new EvaluationMetrics();
+                metricsReporter = new MetricsReporter(metrics, options._metricsFile, options._metricsFormat);
             }
 
+            if (options._serverMode)
+                runServer(options, dictionary, metrics, metricsReporter);
+            else if (runBatch(options, dictionary, metrics, metricsReporter) > 0)
+                System.exit(1);
         }
         catch (Exception e) {
             e.printStackTrace(System.err);
@@ -90,66 +167,201 @@ public class Main {
         }
     }
 
-    private static PageQualityIndicators computePageQualityIndicators(PageStatsCalculator.OCRPageStats pageStats) {
-        double tokenCount = pageStats.getDouble(TokenCount);
-
-        if (tokenCount == 0)
+    // Loads the dictionary (a word list or a compiled dictionary image) once, shared by all the workers, and compiles
+    // it into a dictionary image if requested; null if no dictionary is given
+    private static WordDictionary loadDictionary(Options options) throws IOException {
+        if (options._dictionaryFile == null)
             return null;
 
-        PageQualityIndicators pageQuality = new PageQualityIndicators();
-        double textTokenCount = tokenCount - pageStats.getInt(PunctTokenCount) - pageStats.getInt(NumberObjectsTokenCount);
-        double textQuality = pageStats.getDouble(CleanAllAlphaNoRepTokenCount) / textTokenCount;
-        pageQuality.put(TextQuality, textQuality);
+        CompactDictionary dictionary = CompactDictionary.load(options._dictionaryFile);
 
-        Double numCorrectTokens = pageStats.getDouble("numCorrectTokens");
-        if (numCorrectTokens != null) {
-            double spellingQuality = numCorrectTokens / textTokenCount;
-            pageQuality.put(SpellingQuality, spellingQuality);
+        if (options._compiledDictionaryFile != null) {
+            dictionary.write(options._compiledDictionaryFile);
+            if (!options._quiet)
+                log.info("Wrote dictionary image with {} words to {}", dictionary.size(),
+                        options._compiledDictionaryFile);
         }
 
-        return pageQuality;
+        return dictionary;
     }
 
-    private static Tokenizer createTokenizer(String tokenizerType, String language) throws UnsupportedLanguageException {
-        if (tokenizerType.equalsIgnoreCase("simple"))
-            return NLPToolsFactory.createSimpleTokenizer(Simple);
+    private static void runServer(Options options, WordDictionary dictionary, EvaluationMetrics metrics,
+                                  final MetricsReporter metricsReporter)
+            throws IOException, UnsupportedLanguageException {
+        final EvaluationServer server = new EvaluationServer(options._serverAddress, options._threadCount,
+                options._format, options._tokenizerType, options._language, dictionary, options._quiet, metrics,
+                options._maxRequestSize);
+
+        // finish the requests in progress on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    server.stop(SERVER_SHUTDOWN_GRACE_PERIOD);
+                    if (metricsReporter != null)
+                        metricsReporter.stop();
+                }
+                catch (InterruptedException ignored) { }
+                catch (IOException e) {
+                    log.error("Cannot write the metrics report", e);
+                }
+            }
+        });
+
+        if (metricsReporter != null)
+            metricsReporter.start(options._metricsInterval);
 
-        else
+        server.start();
+    }
+
+    // Evaluates the pages given, and returns the number of pages that couldn't be evaluated. The results already
+    // written, the result cache and the metrics report are saved even if the run fails.
+    private static int runBatch(Options options, WordDictionary dictionary, EvaluationMetrics metrics,
+                                final MetricsReporter metricsReporter) throws IOException, InterruptedException {
+        Closer closer = Closer.create();
+        try {
+            if (metricsReporter != null) {
+                closer.register(new Closeable() {
+                    @Override
+                    public void close() throws IOException {
+                        metricsReporter.stop();
+                    }
+                });
+            }
 
-        if (tokenizerType.equalsIgnoreCase("whitespace"))
-            return NLPToolsFactory.createSimpleTokenizer(Whitespace);
+            // Skip the pages already evaluated (with the same configuration) by previous runs
+            ResultCache resultCache = null;
+            if (options._cacheDirectory != null) {
+                resultCache = closer.register(new ResultCache(options._cacheDirectory, options._cacheSize));
+                if (!options._quiet)
+                    log.info("Using the result cache in {} ({} pages)", options._cacheDirectory, resultCache.size());
+            }
 
-        else
-            return NLPToolsFactory.createTokenizer(language);
+            PageEvaluator evaluator = new PageEvaluator(options._format, options._tokenizerType, options._language,
+                    dictionary, metrics, resultCache);
+            BatchEvaluator batchEvaluator = new BatchEvaluator(evaluator, options._threadCount, options._queueSize,
+                    !options._unordered, options._quiet, options._allPages);
+
+            if (metricsReporter != null)
+                metricsReporter.start(options._metricsInterval);
+
+            // the scores of every volume and collection are written instead of those of every page
+            OutputStream out = closer.register(openOutput(options._outputFile));
+            if (options._volumeGrouping != null)
+                return evaluatePages(options, batchEvaluator, null, closer.register(new AggregateResultWriter(out)));
+            else
+                return evaluatePages(options, batchEvaluator, closer.register(options._outputFormat.createWriter(out)),
+                        null);
+        }
+        catch (Throwable e) {
+            throw closer.rethrow(e, InterruptedException.class);
+        }
+        finally {
+            closer.close();
+        }
     }
 
-    private static OCRPage<? extends OCRToken> readPage(Reader pageReader, String id, DocumentFormat format,
-                                                        Tokenizer tokenizer) throws PageParserException {
+    // Writes the results of the pages with the resultWriter or, when they're grouped into volumes, the scores of
+    // every volume and collection with the aggregateWriter
+    private static int evaluatePages(Options options, BatchEvaluator batchEvaluator,
+                                     final PageResultWriter resultWriter,
+                                     final AggregateResultWriter aggregateWriter) throws InterruptedException {
+        final VolumeAggregator volumeAggregator = (aggregateWriter == null) ? null :
+                new VolumeAggregator(options._volumeGrouping, !options._unordered, new VolumeAggregator.Listener() {
+                    @Override
+                    public void volumeCompleted(String collectionId, AggregateStats volume) {
+                        try {
+                            aggregateWriter.writeVolume(collectionId, volume);
+                        }
+                        catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+
+                    @Override
+                    public void collectionCompleted(AggregateStats collection) {
+                        try {
+                            aggregateWriter.writeCollection(collection);
+                        }
+                        catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                });
+
+        final AtomicInteger failedCount = new AtomicInteger();
+        Iterable<File> pageFiles = PageFileCollector.collect(Arrays.asList(options._pageSpecs), options._manifestFile,
+                options._entryFilter);
+
+        batchEvaluator.run(pageFiles, new BatchEvaluator.Listener() {
+            @Override
+            public void pageEvaluated(File pageFile, PageResult result) {
+                // the pages of a document, followed by the whole document
+                if (result instanceof DocumentResult) {
+                    List<PageResult> pages = ((DocumentResult) result).pages();
+                    for (int i = 0; i < pages.size(); i++)
+                        pageEvaluated(documentPageFile(pageFile, pages.get(i), i), pages.get(i));
+
+                    // the volume scores are computed from the pages
+                    if (volumeAggregator != null)
+                        return;
+                } else if (volumeAggregator != null) {
+                    volumeAggregator.add(pageFile, result);
+                    return;
+                }
 
-        OCRPage<? extends OCRToken> ocrPage;
+                try {
+                    resultWriter.write(pageFile, result);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
 
-        switch (format) {
-            case HOCR:
-                ocrPage = HOCRPage.parse(pageReader);
-                break;
+            @Override
+            public void pageFailed(File pageFile, Exception e) {
+                log.error("Error processing " + pageFile, e);
+                failedCount.incrementAndGet();
+            }
+        });
 
-            case TXT:
-                ocrPage = TxtPage.parse(pageReader, id, tokenizer);
-                break;
+        if (volumeAggregator != null)
+            volumeAggregator.finish();
 
-            default:
-                throw new RuntimeException("Unsupported format: " + format);
-        }
+        return failedCount.get();
+    }
 
-        return ocrPage;
+    // The pages of a document are reported as "<document>#<page id>" (or the page number, if it has no id)
+    private static File documentPageFile(File documentFile, PageResult page, int pageIndex) {
+        String pageId = page.pageId().isEmpty() ? Integer.toString(pageIndex + 1) : page.pageId();
+        return new InputFile(documentFile.getPath() + "#" + pageId, InputFile.relativePath(documentFile) + "#" + pageId);
+    }
+
+    private static OutputStream openOutput(File outputFile) throws IOException {
+        if (outputFile != null && !"-".equals(outputFile.getPath()))
+            return new FileOutputStream(outputFile);
+
+        // closing the result writer must not close stdout
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
     }
 
     private static Parameter[] getApplicationParameters() {
         Parameter format = new FlaggedOption("format")
-                .setStringParser(EnumeratedStringParser.getParser("txt;hocr"))
+                .setStringParser(EnumeratedStringParser.getParser("txt;hocr;html;alto;page"))
                 .setDefault("hocr")
                 .setShortFlag('f')
-                .setHelp("Specifies the format of the page OCR file");
+                .setHelp("Specifies the format of the page OCR file (html is hOCR that is not well-formed XML, read by a " +
+                        "lenient parser, and page is PAGE XML)");
 
         Parameter dictionary = new FlaggedOption("dictionary")
                 .setStringParser(
@@ -166,11 +378,12 @@ public class Main {
                 .setHelp("Enables quiet mode - only page scores are printed, separated by a comma");
 
         Parameter tokenizer = new FlaggedOption("tokenizer")
-                .setStringParser(EnumeratedStringParser.getParser("simple;whitespace;model"))
+                .setStringParser(EnumeratedStringParser.getParser("simple;whitespace;model;rules"))
                 .setDefault("model")
                 .setShortFlag('t')
                 .setHelp("Specifies the OpenNLP tokenizer to use; " +
-                        "see http://opennlp.apache.org/documentation/manual/opennlp.html#tools.tokenizer.introduction");
+                        "see http://opennlp.apache.org/documentation/manual/opennlp.html#tools.tokenizer.introduction " +
+                        "(rules is a much faster rule-based tokenizer approximating the model-based one)");
 
         Parameter language = new FlaggedOption("language")
                 .setStringParser(EnumeratedStringParser.getParser("da;de;en;es;nl;pt;se"))
@@ -178,15 +391,141 @@ public class Main {
                 .setShortFlag('l')
                 .setHelp("Specifies the language to use when constructing the model-based tokenizer (if requested)");
 
-        Parameter pageOcrFile = new UnflaggedOption("pageOcrFile")
+        Parameter manifest = new FlaggedOption("manifest")
                 .setStringParser(
                         FileStringParser.getParser()
-                                .setMustBeFile(true)
-                                .setMustExist(true))
-                .setRequired(true)
-                .setHelp("The page OCR file");
+                            .setMustBeFile(true)
+                            .setMustExist(true)
+                )
+                .setShortFlag('m')
+                .setLongFlag("manifest")
+                .setHelp("Specifies a file listing the page OCR files to process, one path per line");
+
+        Parameter entries = new FlaggedOption("entries")
+                .setStringParser(JSAP.STRING_PARSER)
+                .setLongFlag("entries")
+                .setHelp("Specifies a glob pattern selecting the pages to process in the zip and tar archives given " +
+                        "(matched against the file names of the entries, or their paths if it contains a '/')");
+
+        Parameter threads = new FlaggedOption("threads")
+                .setStringParser(JSAP.INTEGER_PARSER)
+                .setDefault(Integer.toString(Runtime.getRuntime().availableProcessors()))
+                .setShortFlag('j')
+                .setLongFlag("threads")
+                .setHelp("Specifies the number of pages to process in parallel");
+
+        Parameter queueSize = new FlaggedOption("queueSize")
+                .setStringParser(JSAP.INTEGER_PARSER)
+                .setDefault("1000")
+                .setLongFlag("queue-size")
+                .setHelp("Specifies the maximum number of pages queued for processing (or waiting to be output) at any time");
+
+        Parameter unordered = new Switch("unordered")
+                .setLongFlag("unordered")
+                .setDefault("false")
+                .setHelp("Outputs page scores as soon as they are available, instead of in input order");
+
+        Parameter allPages = new Switch("allPages")
+                .setLongFlag("all-pages")
+                .setDefault("false")
+                .setHelp("Evaluates every ocr_page of multi-page hOCR documents (instead of only the first one), and " +
+                        "outputs the scores of each page followed by those of the whole document");
+
+        Parameter compileDictionary = new FlaggedOption("compileDictionary")
+                .setStringParser(FileStringParser.getParser())
+                .setLongFlag("compile-dictionary")
+                .setHelp("Compiles the dictionary word list into a binary dictionary image, written to the given file, " +
+                        "that can be memory-mapped instead of being parsed when given as the dictionary");
+
+        Parameter serverPort = new FlaggedOption("serverPort")
+                .setStringParser(JSAP.INTEGER_PARSER)
+                .setLongFlag("server")
+                .setHelp("Runs as a server, evaluating the pages posted to (or the page paths given to) " +
+                        "http://<address>:<port>/evaluate, instead of evaluating the given pages");
+
+        Parameter serverAddress = new FlaggedOption("serverAddress")
+                .setStringParser(JSAP.STRING_PARSER)
+                .setDefault("127.0.0.1")
+                .setLongFlag("bind")
+                .setHelp("Specifies the address the server listens on");
+
+        Parameter maxRequestSize = new FlaggedOption("maxRequestSize")
+                .setStringParser(JSAP.LONG_PARSER)
+                .setDefault(Integer.toString(EvaluationServer.DEFAULT_MAX_REQUEST_SIZE / (1024 * 1024)))
+                .setLongFlag("max-request-size")
+                .setHelp("Specifies the size, in megabytes, of the largest page that can be posted to the server");
+
+        Parameter preload = new FlaggedOption("preload")
+                .setStringParser(EnumeratedStringParser.getParser("da;de;en;es;nl;pt;se"))
+                .setList(true)
+                .setListSeparator(',')
+                .setLongFlag("preload")
+                .setHelp("Loads the tokenizer models for the given (comma-separated) languages at startup, " +
+                        "instead of when the first page in each language is evaluated");
+
+        Parameter cache = new FlaggedOption("cache")
+                .setStringParser(FileStringParser.getParser())
+                .setLongFlag("cache")
+                .setHelp("Keeps the page stats in a cache in the given directory, so that the pages evaluated by " +
+                        "previous runs with the same format, tokenizer, language and dictionary are not evaluated again");
+
+        Parameter cacheSize = new FlaggedOption("cacheSize")
+                .setStringParser(JSAP.LONG_PARSER)
+                .setDefault("1024")
+                .setLongFlag("cache-size")
+                .setHelp("Specifies the maximum size of the result cache, in megabytes; " +
+                        "the oldest results are evicted first");
+
+        Parameter volumes = new FlaggedOption("volumes")
+                .setStringParser(JSAP.STRING_PARSER)
+                .setLongFlag("volumes")
+                .setHelp("Outputs the scores of every volume and collection, instead of every page; the volume of a page " +
+                        "is its directory ('dir'), or is extracted from its path by the given regular expression " +
+                        "(by the 'volume' named group or the first group; the 'collection' named group is the collection)");
+
+        Parameter output = new FlaggedOption("output")
+                .setStringParser(FileStringParser.getParser())
+                .setShortFlag('o')
+                .setLongFlag("output")
+                .setHelp("Writes the page scores to the given file instead of stdout");
+
+        Parameter outputFormat = new FlaggedOption("outputFormat")
+                .setStringParser(EnumeratedStringParser.getParser("text;tsv;ndjson;binary"))
+                .setDefault("text")
+                .setLongFlag("output-format")
+                .setHelp("Specifies the output format: 'text' (page, TextQuality, SpellingQuality), 'tsv' or 'ndjson' " +
+                        "(the path, all the indicators and all the stats of every page), or 'binary' (the same, in " +
+                        "a columnar binary format)");
+
+        Parameter metrics = new FlaggedOption("metrics")
+                .setStringParser(FileStringParser.getParser())
+                .setLongFlag("metrics")
+                .setHelp("Records the pages and tokens evaluated per second and the time spent in each stage of the " +
+                        "evaluation, and writes them to the given file ('-' for stderr) at the end of the run");
+
+        Parameter metricsFormat = new FlaggedOption("metricsFormat")
+                .setStringParser(EnumeratedStringParser.getParser("json;prometheus"))
+                .setDefault("json")
+                .setLongFlag("metrics-format")
+                .setHelp("Specifies the format of the metrics report");
+
+        Parameter metricsInterval = new FlaggedOption("metricsInterval")
+                .setStringParser(JSAP.INTEGER_PARSER)
+                .setDefault("0")
+                .setLongFlag("metrics-interval")
+                .setHelp("Also writes the metrics report every given number of seconds while pages are being evaluated");
 
-        return new Parameter[] { format, dictionary, quiet, tokenizer, language, pageOcrFile };
+        Parameter pageOcrFile = new UnflaggedOption("pageOcrFile")
+                .setStringParser(JSAP.STRING_PARSER)
+                .setGreedy(true)
+                .setHelp("The page OCR file(s) to process; directories are searched recursively, " +
+                        "glob patterns (e.g. 'volume/**/*.html') are expanded, and the pages in zip, tar " +
+                        "and tar.gz archives are read without extracting them");
+
+        return new Parameter[] { format, dictionary, quiet, tokenizer, language, manifest,
+                entries, threads, queueSize, unordered, allPages, compileDictionary, serverPort, serverAddress,
+                maxRequestSize, preload, cache, cacheSize, volumes, output, outputFormat, metrics, metricsFormat,
+                metricsInterval, pageOcrFile };
     }
 
     private static String getApplicationHelp() {
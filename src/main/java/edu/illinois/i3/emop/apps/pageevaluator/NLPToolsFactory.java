@@ -16,21 +16,83 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+// The create* methods return new tool instances, while the get* methods return the calling thread's instance
+// for the language (the ME tools are not thread-safe, but can be reused by the thread that created them).
+// Models are loaded once per language and shared by all the tool instances; once loaded (see preload),
+// getting a model or a thread's tool takes no locks.
 public abstract class NLPToolsFactory {
 
     private static final Logger log = LoggerFactory.getLogger(NLPToolsFactory.class);
 
-    private static final Map<String, SentenceModel> _sentenceModels = Maps.newHashMap();
-    private static final Map<String, TokenizerModel> _tokenizerModels = Maps.newHashMap();
-    private static final Map<String, POSModel> _posModels = Maps.newHashMap();
+    private static final ModelCache<SentenceModel> _sentenceModels = new ModelCache<SentenceModel>("sentence", "/%s-sent.bin") {
+        @Override
+        protected SentenceModel loadModel(InputStream modelStream) throws IOException {
+            return new SentenceModel(modelStream);
+        }
+    };
+
+    private static final ModelCache<TokenizerModel> _tokenizerModels = new ModelCache<TokenizerModel>("tokenizer", "/%s-token.bin") {
+        @Override
+        protected TokenizerModel loadModel(InputStream modelStream) throws IOException {
+            return new TokenizerModel(modelStream);
+        }
+    };
+
+    private static final ModelCache<POSModel> _posModels = new ModelCache<POSModel>("part-of-speech", "/%s-pos-maxent.bin") {
+        @Override
+        protected POSModel loadModel(InputStream modelStream) throws IOException {
+            return new POSModel(modelStream);
+        }
+    };
+
+    // every thread's tools, by language
+    private static final ThreadLocal<Map<String, SentenceDetector>> _threadSentenceDetectors = newThreadToolMap();
+    private static final ThreadLocal<Map<String, Tokenizer>> _threadTokenizers = newThreadToolMap();
+    private static final ThreadLocal<Map<String, POSTagger>> _threadPOSTaggers = newThreadToolMap();
 
     public enum SimpleTokenizers {
-        Simple, Whitespace
+        Simple, Whitespace, Rules
+    }
+
+    public enum Tools {
+        SentenceDetector, Tokenizer, POSTagger
+    }
+
+    // Loads the models of the given tools for the given languages, so that the first pages in those languages
+    // don't wait for (or, when evaluated concurrently, serialize on) loading them
+    public static void preload(Iterable<String> languages, Tools... tools) throws UnsupportedLanguageException {
+        for (String language : languages)
+            for (Tools tool : tools)
+                switch (tool) {
+                    case SentenceDetector:
+                        _sentenceModels.get(language);
+                        break;
+
+                    case Tokenizer:
+                        _tokenizerModels.get(language);
+                        break;
+
+                    case POSTagger:
+                        _posModels.get(language);
+                        break;
+                }
+    }
+
+    // Whether the model of the tool is available for the language (loaded or not)
+    public static boolean hasModel(Tools tool, String language) {
+        switch (tool) {
+            case SentenceDetector: return _sentenceModels.isAvailable(language);
+            case Tokenizer: return _tokenizerModels.isAvailable(language);
+            case POSTagger: return _posModels.isAvailable(language);
+            default: throw new RuntimeException("Unknown tool: " + tool.name());
+        }
     }
 
     public static SentenceDetector createSentenceDetector(String language) throws UnsupportedLanguageException {
-        SentenceModel model = getSentenceModel(language);
+        SentenceModel model = _sentenceModels.get(language);
         return new SentenceDetectorME(model);
     }
 
@@ -38,86 +100,117 @@ public abstract class NLPToolsFactory {
         switch (tokenizer) {
             case Simple: return SimpleTokenizer.INSTANCE;
             case Whitespace: return WhitespaceTokenizer.INSTANCE;
+            case Rules: return RuleBasedTokenizer.INSTANCE;
             default: throw new RuntimeException("Unknown tokenizer: " + tokenizer.name());
         }
     }
 
     public static Tokenizer createTokenizer(String language) throws UnsupportedLanguageException {
-        TokenizerModel model = getTokenModel(language);
+        TokenizerModel model = _tokenizerModels.get(language);
         return new TokenizerME(model);
     }
 
     public static POSTagger createPOSTagger(String language) throws UnsupportedLanguageException {
-        POSModel model = getPOSModel(language);
+        POSModel model = _posModels.get(language);
         return new POSTaggerME(model);
     }
 
-    private static SentenceModel getSentenceModel(String language) throws UnsupportedLanguageException {
-        synchronized (_sentenceModels) {
-            SentenceModel model = _sentenceModels.get(language);
-            if (model == null) {
-                log.debug("Loading sentence detector model for '{}'...", language);
-                String modelResourceFile = String.format("/%s-sent.bin", language);
-                try (InputStream modelStream = Main.class.getResourceAsStream(modelResourceFile)) {
-                    if (modelStream == null)
-                        throw new FileNotFoundException(modelResourceFile);
-
-                    model = new SentenceModel(modelStream);
-                }
-                catch (IOException e) {
-                    throw new UnsupportedLanguageException("Cannot load sentence model for language: " + language, e);
-                }
+    public static SentenceDetector getSentenceDetector(String language) throws UnsupportedLanguageException {
+        Map<String, SentenceDetector> sentenceDetectors = _threadSentenceDetectors.get();
+        SentenceDetector sentenceDetector = sentenceDetectors.get(language);
+        if (sentenceDetector == null) {
+            sentenceDetector = createSentenceDetector(language);
+            sentenceDetectors.put(language, sentenceDetector);
+        }
 
-                _sentenceModels.put(language, model);
-            }
+        return sentenceDetector;
+    }
 
-            return model;
+    public static Tokenizer getTokenizer(String language) throws UnsupportedLanguageException {
+        Map<String, Tokenizer> tokenizers = _threadTokenizers.get();
+        Tokenizer tokenizer = tokenizers.get(language);
+        if (tokenizer == null) {
+            tokenizer = createTokenizer(language);
+            tokenizers.put(language, tokenizer);
         }
+
+        return tokenizer;
     }
 
-    private static TokenizerModel getTokenModel(String language) throws UnsupportedLanguageException {
-        synchronized (_tokenizerModels) {
-            TokenizerModel model = _tokenizerModels.get(language);
-            if (model == null) {
-                log.debug("Loading tokenizer model for '{}'...", language);
-                String modelResourceFile = String.format("/%s-token.bin", language);
-                try (InputStream modelStream = Main.class.getResourceAsStream(modelResourceFile)) {
-                    if (modelStream == null)
-                        throw new FileNotFoundException(modelResourceFile);
-
-                    model = new TokenizerModel(modelStream);
-                }
-                catch (IOException e) {
-                    throw new UnsupportedLanguageException("Cannot load tokenizer model for language: " + language, e);
-                }
+    public static POSTagger getPOSTagger(String language) throws UnsupportedLanguageException {
+        Map<String, POSTagger> posTaggers = _threadPOSTaggers.get();
+        POSTagger posTagger = posTaggers.get(language);
+        if (posTagger == null) {
+            posTagger = createPOSTagger(language);
+            posTaggers.put(language, posTagger);
+        }
+
+        return posTagger;
+    }
 
-                _tokenizerModels.put(language, model);
+    private static <T> ThreadLocal<Map<String, T>> newThreadToolMap() {
+        return new ThreadLocal<Map<String, T>>() {
+            @Override
+            protected Map<String, T> initialValue() {
+                return Maps.newHashMap();
             }
+        };
+    }
 
-            return model;
+    // Loads every language's model at most once; a model is loaded while holding a lock for its language only,
+    // so loading the model of one language doesn't block the threads using (or loading) the others
+    private static abstract class ModelCache<M> {
+        private final String _modelType;
+        private final String _resourceFileFormat;
+        private final ConcurrentMap<String, M> _models = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Object> _locks = new ConcurrentHashMap<>();
+
+        private ModelCache(String modelType, String resourceFileFormat) {
+            _modelType = modelType;
+            _resourceFileFormat = resourceFileFormat;
         }
-    }
 
-    private static POSModel getPOSModel(String language) throws UnsupportedLanguageException {
-        synchronized (_posModels) {
-            POSModel model = _posModels.get(language);
-            if (model == null) {
-                log.debug("Loading part-of-speech model for '{}'...", language);
-                String modelResourceFile = String.format("/%s-pos-maxent.bin", language);
-                try (InputStream modelStream = Main.class.getResourceAsStream(modelResourceFile)) {
-                    if (modelStream == null)
-                        throw new FileNotFoundException(modelResourceFile);
-
-                    model = new POSModel(modelStream);
-                }
-                catch (IOException e) {
-                    throw new UnsupportedLanguageException("Cannot load part-of-speech model for language: " + language, e);
-                }
+        protected abstract M loadModel(InputStream modelStream) throws IOException;
+
+        public boolean isAvailable(String language) {
+            return _models.containsKey(language) ||
+                    Main.class.getResource(String.format(_resourceFileFormat, language)) != null;
+        }
 
-                _posModels.put(language, model);
+        public M get(String language) throws UnsupportedLanguageException {
+            M model = _models.get(language);
+            if (model != null)
+                return model;
+
+            Object lock = _locks.get(language);
+            if (lock == null) {
+                Object newLock = new Object();
+                lock = _locks.putIfAbsent(language, newLock);
+                if (lock == null)
+                    lock = newLock;
             }
 
-            return model;
+            synchronized (lock) {
+                model = _models.get(language);
+                if (model == null) {
+                    log.debug("Loading {} model for '{}'...", _modelType, language);
+                    String modelResourceFile = String.format(_resourceFileFormat, language);
+                    try (InputStream modelStream = Main.class.getResourceAsStream(modelResourceFile)) {
+                        if (modelStream == null)
+                            throw new FileNotFoundException(modelResourceFile);
+
+                        model = loadModel(modelStream);
+                    }
+                    catch (IOException e) {
+                        throw new UnsupportedLanguageException(
+                                String.format("Cannot load %s model for language: %s", _modelType, language), e);
+                    }
+
+                    _models.put(language, model);
+                }
+
+                return model;
+            }
         }
     }
 }
@@ -6,5 +6,6 @@ public interface OCRPage<T extends OCRToken> {
 
     String pageId();
     ImmutableList<T> tokens();
+    void visitTokens(OCRTokenVisitor<? super T> visitor);
 
 }
@@ -0,0 +1,9 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+// Receives the pages of a multi-page document one at a time, in document order, as soon as each has been parsed
+// (see HOCRPage.parseAll), so that only the page being parsed is held by the parser
+public interface OCRPageVisitor<P extends OCRPage<? extends OCRToken>> {
+
+    void visitPage(P page);
+
+}
@@ -0,0 +1,9 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+// Receives the tokens of a page one at a time, in page order - either from a parsed page, or straight from the
+// parser (see HOCRPage.parse and TxtPage.parse) without the page's tokens ever being kept in memory
+public interface OCRTokenVisitor<T extends OCRToken> {
+
+    void visitToken(T token);
+
+}
@@ -0,0 +1,453 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import edu.illinois.i3.emop.apps.pageevaluator.Main.DocumentFormat;
+import edu.illinois.i3.emop.apps.pageevaluator.alto.AltoPage;
+import edu.illinois.i3.emop.apps.pageevaluator.cache.ResultCache;
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.WordDictionary;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.UnsupportedLanguageException;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRPage;
+import edu.illinois.i3.emop.apps.pageevaluator.io.PageInput;
+import edu.illinois.i3.emop.apps.pageevaluator.metrics.EvaluationMetrics;
+import edu.illinois.i3.emop.apps.pageevaluator.metrics.EvaluationMetrics.Stage;
+import edu.illinois.i3.emop.apps.pageevaluator.pagexml.PageXmlPage;
+import edu.illinois.i3.emop.apps.pageevaluator.txt.TxtPage;
+import edu.illinois.i3.emop.apps.pageevaluator.txt.TxtTokenReader;
+import opennlp.tools.tokenize.Tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.SimpleTokenizers.Rules;
+import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.SimpleTokenizers.Simple;
+import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.SimpleTokenizers.Whitespace;
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.SpellingQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+public class PageEvaluator {
+
+    // Identifies the way pages are scored; must be changed whenever a change to the code changes the page stats,
+    // so that the results cached by the previous versions are not used
+    public static final int SCORING_VERSION = 1;
+
+    private final DocumentFormat _format;
+    private final String _tokenizerType;
+    private final String _language;
+    private final WordDictionary _dictionary;
+    private final EvaluationMetrics _metrics;
+    private final ResultCache _resultCache;
+    private final String _configuration;
+
+    public PageEvaluator(DocumentFormat format, String tokenizerType, String language, WordDictionary dictionary)
+            throws UnsupportedLanguageException {
+        this(format, tokenizerType, language, dictionary, null, null);
+    }
+
+    // The time spent in each stage is recorded in metrics, and the stats of the page files evaluated are looked up in
+    // (and added to) the result cache, unless they are null
+    public PageEvaluator(DocumentFormat format, String tokenizerType, String language, WordDictionary dictionary,
+                         EvaluationMetrics metrics, ResultCache resultCache) throws UnsupportedLanguageException {
+        _format = format;
+        _tokenizerType = tokenizerType;
+        _language = language;
+        _dictionary = dictionary;
+        _metrics = metrics;
+        _resultCache = resultCache;
+        // only needed for the cache keys
+        _configuration = (resultCache != null) ? String.format("%d/%s/%s/%s/%s", SCORING_VERSION, format,
+                tokenizerType.toLowerCase(), language, (dictionary != null) ? dictionary.fingerprint() : "") : null;
+
+        // fail early if the tokenizer cannot be created
+        getTokenizer(tokenizerType, language);
+    }
+
+    public DocumentFormat format() {
+        return _format;
+    }
+
+    // The page file can also be an entry read from an archive
+    public PageResult evaluate(File pageOcrFile) throws IOException, PageParserException {
+        ByteBuffer page = PageInput.read(pageOcrFile);
+
+        HashCode cacheKey = null;
+        if (_resultCache != null) {
+            cacheKey = ResultCache.key(_configuration, page);
+            PageStatsCalculator.OCRPageStats pageStats = _resultCache.get(cacheKey);
+            if (pageStats != null) {
+                if (_metrics != null)
+                    _metrics.pageCached();
+
+                return new PageResult(pageOcrFile.getName(), pageStats, computePageQualityIndicators(pageStats));
+            }
+        }
+
+        PageResult result = evaluate(page, pageOcrFile.getName());
+
+        if (_resultCache != null)
+            _resultCache.put(cacheKey, result.stats());
+
+        return result;
+    }
+
+    public PageResult evaluate(Reader pageReader, String pageId) throws PageParserException {
+        return evaluate(pageSource(pageReader), pageId);
+    }
+
+    // The page is UTF-8 encoded
+    public PageResult evaluate(ByteBuffer page, String pageId) throws PageParserException {
+        return evaluate(pageSource(page), pageId);
+    }
+
+    private PageResult evaluate(PageSource page, String pageId) throws PageParserException {
+        if (_metrics != null)
+            return evaluateTimed(page, pageId);
+
+        // Compute the page stats and spell check the page tokens as the page is parsed, in a single pass
+        PageStatsCalculator.StatsCollector statsCollector = new PageStatsCalculator.StatsCollector(_dictionary);
+        page.readTokens(statsCollector);
+
+        PageStatsCalculator.OCRPageStats pageStats = statsCollector.pageStats();
+        PageQualityIndicators pageQuality = computePageQualityIndicators(pageStats);
+
+        return new PageResult(pageId, pageStats, pageQuality);
+    }
+
+    private PageResult evaluateTimed(PageSource page, String pageId) throws PageParserException {
+        long startTime = System.nanoTime();
+        boolean evaluated = false;
+        try {
+            TimedStatsCollector statsCollector = new TimedStatsCollector(_dictionary);
+            page.readTokens(statsCollector);
+            long parseEndTime = System.nanoTime();
+
+            PageStatsCalculator.OCRPageStats pageStats = statsCollector.pageStats();
+            PageQualityIndicators pageQuality = computePageQualityIndicators(pageStats);
+            long endTime = System.nanoTime();
+
+            // the stats and spell check stages run while the page is parsed, so they are taken out of the parse time
+            _metrics.record(Stage.Parse, parseEndTime - startTime - statsCollector._statsTime - statsCollector._spellCheckTime);
+            _metrics.record(Stage.Stats, statsCollector._statsTime);
+            if (_dictionary != null)
+                _metrics.record(Stage.SpellCheck, statsCollector._spellCheckTime);
+            _metrics.record(Stage.Indicators, endTime - parseEndTime);
+            _metrics.record(Stage.Page, endTime - startTime);
+            _metrics.pageEvaluated(pageStats.get(TokenCount));
+            evaluated = true;
+
+            return new PageResult(pageId, pageStats, pageQuality);
+        }
+        finally {
+            if (!evaluated)
+                _metrics.pageFailed();
+        }
+    }
+
+    // Evaluates every page of a multi-page (hOCR) document, which is read only once; the pages are evaluated by the
+    // executor (or by the calling thread if it's null) as soon as they've been parsed. The result cache isn't used.
+    public DocumentResult evaluateDocument(File documentFile, ExecutorService executor)
+            throws IOException, PageParserException {
+        return evaluateDocument(pageSource(PageInput.read(documentFile)), documentFile.getName(), executor);
+    }
+
+    public DocumentResult evaluateDocument(Reader documentReader, String documentId, ExecutorService executor)
+            throws PageParserException {
+        return evaluateDocument(pageSource(documentReader), documentId, executor);
+    }
+
+    private DocumentResult evaluateDocument(PageSource document, String documentId, ExecutorService executor)
+            throws PageParserException {
+        final List<Future<PageResult>> pageResults = Lists.newArrayList();
+
+        if (_format == DocumentFormat.HOCR || _format == DocumentFormat.HTML) {
+            final ExecutorService pageExecutor = (executor != null) ? executor : MoreExecutors.newDirectExecutorService();
+            boolean parsed = false;
+            try {
+                document.readPages(new OCRPageVisitor<HOCRPage>() {
+                    private long _parseStartTime = System.nanoTime();
+
+                    @Override
+                    public void visitPage(final HOCRPage page) {
+                        final long parseTime = System.nanoTime() - _parseStartTime;
+                        pageResults.add(pageExecutor.submit(new Callable<PageResult>() {
+                            @Override
+                            public PageResult call() {
+                                return evaluatePage(page, parseTime);
+                            }
+                        }));
+                        _parseStartTime = System.nanoTime();
+                    }
+                });
+                parsed = true;
+            }
+            finally {
+                if (!parsed) {
+                    for (Future<PageResult> pageResult : pageResults)
+                        pageResult.cancel(false);
+
+                    if (_metrics != null)
+                        _metrics.pageFailed();
+                }
+            }
+        } else
+            // other documents only have one page
+            pageResults.add(Futures.immediateFuture(evaluate(document, documentId)));
+
+        List<PageResult> pages = Lists.newArrayListWithCapacity(pageResults.size());
+        PageStatsCalculator.OCRPageStats documentStats = new PageStatsCalculator.OCRPageStats();
+        for (Future<PageResult> pageResult : pageResults) {
+            PageResult page = Futures.getUnchecked(pageResult);
+            pages.add(page);
+            documentStats.add(page.stats());
+        }
+
+        return new DocumentResult(documentId, documentStats, computePageQualityIndicators(documentStats), pages);
+    }
+
+    // Evaluates a page that has already been parsed (in parseTime nanoseconds)
+    private PageResult evaluatePage(OCRPage<? extends OCRToken> page, long parseTime) {
+        long startTime = System.nanoTime();
+        PageStatsCalculator.StatsCollector statsCollector = (_metrics != null) ?
+                new TimedStatsCollector(_dictionary) : new PageStatsCalculator.StatsCollector(_dictionary);
+        page.visitTokens(statsCollector);
+        long statsEndTime = System.nanoTime();
+
+        PageStatsCalculator.OCRPageStats pageStats = statsCollector.pageStats();
+        PageQualityIndicators pageQuality = computePageQualityIndicators(pageStats);
+
+        if (_metrics != null) {
+            long endTime = System.nanoTime();
+            TimedStatsCollector timedStatsCollector = (TimedStatsCollector) statsCollector;
+            _metrics.record(Stage.Parse, parseTime);
+            _metrics.record(Stage.Stats, timedStatsCollector._statsTime);
+            if (_dictionary != null)
+                _metrics.record(Stage.SpellCheck, timedStatsCollector._spellCheckTime);
+            _metrics.record(Stage.Indicators, endTime - statsEndTime);
+            _metrics.record(Stage.Page, parseTime + endTime - startTime);
+            _metrics.pageEvaluated(pageStats.get(TokenCount));
+        }
+
+        return new PageResult(page.pageId(), pageStats, pageQuality);
+    }
+
+    private Tokenizer tokenizer() {
+        try {
+            return getTokenizer(_tokenizerType, _language);
+        }
+        catch (UnsupportedLanguageException e) {
+            // the constructor checks that the tokenizer can be created
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static PageQualityIndicators computePageQualityIndicators(PageStatsCalculator.OCRPageStats pageStats) {
+        return computePageQualityIndicators(pageStats.get(TokenCount), pageStats.get(PunctTokenCount),
+                pageStats.get(NumberObjectsTokenCount), pageStats.get(CleanAllAlphaNoRepTokenCount),
+                pageStats.getInt(NUM_CORRECT_TOKENS));
+    }
+
+    // The indicators computed from the counts of a page, or of a group of pages (whose counts can exceed the range
+    // of an int); numCorrectTokens is null if the pages weren't spell checked
+    public static PageQualityIndicators computePageQualityIndicators(long tokenCount, long punctTokenCount,
+                                                                     long numberObjectsTokenCount,
+                                                                     long cleanAllAlphaNoRepTokenCount,
+                                                                     Number numCorrectTokens) {
+        if (tokenCount == 0)
+            return null;
+
+        PageQualityIndicators pageQuality = new PageQualityIndicators();
+        double textTokenCount = tokenCount - punctTokenCount - numberObjectsTokenCount;
+        double textQuality = cleanAllAlphaNoRepTokenCount / textTokenCount;
+        pageQuality.set(TextQuality, textQuality);
+
+        if (numCorrectTokens != null) {
+            double spellingQuality = numCorrectTokens.longValue() / textTokenCount;
+            pageQuality.set(SpellingQuality, spellingQuality);
+        }
+
+        return pageQuality;
+    }
+
+    public static Tokenizer createTokenizer(String tokenizerType, String language) throws UnsupportedLanguageException {
+        if (tokenizerType.equalsIgnoreCase("simple"))
+            return NLPToolsFactory.createSimpleTokenizer(Simple);
+
+        else
+
+        if (tokenizerType.equalsIgnoreCase("whitespace"))
+            return NLPToolsFactory.createSimpleTokenizer(Whitespace);
+
+        else
+
+        if (tokenizerType.equalsIgnoreCase("rules"))
+            return NLPToolsFactory.createSimpleTokenizer(Rules);
+
+        else
+            return NLPToolsFactory.createTokenizer(language);
+    }
+
+    // The calling thread's tokenizer: TokenizerME is not thread-safe, so every thread gets its own tokenizer
+    // (the underlying model is shared), which it reuses for all the pages it evaluates
+    public static Tokenizer getTokenizer(String tokenizerType, String language) throws UnsupportedLanguageException {
+        if (tokenizerType.equalsIgnoreCase("simple") || tokenizerType.equalsIgnoreCase("whitespace") ||
+                tokenizerType.equalsIgnoreCase("rules"))
+            return createTokenizer(tokenizerType, language);
+
+        return NLPToolsFactory.getTokenizer(language);
+    }
+
+    // Parses the page, passing its tokens to the visitor as they are parsed, without keeping them in memory
+    public static void readPage(Reader pageReader, DocumentFormat format, Tokenizer tokenizer,
+                                OCRTokenVisitor<OCRToken> visitor) throws PageParserException {
+        switch (format) {
+            case HOCR:
+                HOCRPage.parse(pageReader, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+                break;
+
+            case HTML:
+                HOCRPage.parseLenient(encode(pageReader), COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+                break;
+
+            case ALTO:
+                AltoPage.parse(pageReader, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+                break;
+
+            case PAGE:
+                PageXmlPage.parse(pageReader, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+                break;
+
+            case TXT:
+                TxtPage.parse(pageReader, tokenizer, TxtTokenReader.defaultParseOptions(tokenizer), visitor);
+                break;
+
+            default:
+                throw new RuntimeException("Unsupported format: " + format);
+        }
+    }
+
+    public static OCRPage<? extends OCRToken> readPage(Reader pageReader, String id, DocumentFormat format,
+                                                       Tokenizer tokenizer) throws PageParserException {
+
+        OCRPage<? extends OCRToken> ocrPage;
+
+        switch (format) {
+            case HOCR:
+                ocrPage = HOCRPage.parse(pageReader);
+                break;
+
+            case HTML:
+                ocrPage = HOCRPage.parseLenient(encode(pageReader), COMBINE_HYPHENATED_EOL_TOKENS);
+                break;
+
+            case ALTO:
+                ocrPage = AltoPage.parse(pageReader);
+                break;
+
+            case PAGE:
+                ocrPage = PageXmlPage.parse(pageReader);
+                break;
+
+            case TXT:
+                ocrPage = TxtPage.parse(pageReader, id, tokenizer);
+                break;
+
+            default:
+                throw new RuntimeException("Unsupported format: " + format);
+        }
+
+        return ocrPage;
+    }
+
+    // The lenient hOCR parser reads pages as UTF-8 bytes
+    private static ByteBuffer encode(Reader pageReader) throws PageParserException {
+        try {
+            return ByteBuffer.wrap(CharStreams.toString(pageReader).getBytes(Charsets.UTF_8));
+        }
+        catch (IOException e) {
+            throw new PageParserException(e);
+        }
+    }
+
+    // A page (or multi-page document) to parse, read as characters or, for the lenient hOCR parser, as bytes
+    private interface PageSource {
+        void readTokens(OCRTokenVisitor<OCRToken> visitor) throws PageParserException;
+
+        // Only for hOCR documents
+        void readPages(OCRPageVisitor<HOCRPage> visitor) throws PageParserException;
+    }
+
+    private PageSource pageSource(Reader pageReader) throws PageParserException {
+        return (_format == DocumentFormat.HTML) ? pageSource(encode(pageReader)) : readerSource(pageReader);
+    }
+
+    private PageSource pageSource(final ByteBuffer page) {
+        if (_format != DocumentFormat.HTML)
+            return readerSource(PageInput.newReader(page, Charsets.UTF_8));
+
+        return new PageSource() {
+            @Override
+            public void readTokens(OCRTokenVisitor<OCRToken> visitor) throws PageParserException {
+                HOCRPage.parseLenient(page, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+            }
+
+            @Override
+            public void readPages(OCRPageVisitor<HOCRPage> visitor) throws PageParserException {
+                HOCRPage.parseAllLenient(page, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+            }
+        };
+    }
+
+    private PageSource readerSource(final Reader pageReader) {
+        return new PageSource() {
+            @Override
+            public void readTokens(OCRTokenVisitor<OCRToken> visitor) throws PageParserException {
+                readPage(pageReader, _format, tokenizer(), visitor);
+            }
+
+            @Override
+            public void readPages(OCRPageVisitor<HOCRPage> visitor) throws PageParserException {
+                HOCRPage.parseAll(pageReader, COMBINE_HYPHENATED_EOL_TOKENS, visitor);
+            }
+        };
+    }
+
+    // Accumulates the time spent classifying and spell checking the tokens of a page
+    private static class TimedStatsCollector extends PageStatsCalculator.StatsCollector {
+        private long _statsTime;
+        private long _spellCheckTime;
+        private long _lastTime;
+
+        private TimedStatsCollector(WordDictionary dictionary) {
+            super(dictionary);
+        }
+
+        @Override
+        protected void classifyToken(String tokenText, int cleanStart, int cleanEnd) {
+            long startTime = System.nanoTime();
+            super.classifyToken(tokenText, cleanStart, cleanEnd);
+            _lastTime = System.nanoTime();
+            _statsTime += _lastTime - startTime;
+        }
+
+        @Override
+        protected void spellCheckToken(String tokenText, int cleanStart, int cleanEnd) {
+            // always called right after classifyToken
+            super.spellCheckToken(tokenText, cleanStart, cleanEnd);
+            _spellCheckTime += System.nanoTime() - _lastTime;
+        }
+    }
+}
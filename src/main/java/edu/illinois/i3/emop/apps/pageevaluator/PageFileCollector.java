@@ -0,0 +1,186 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import edu.illinois.i3.emop.apps.pageevaluator.archive.ArchiveReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+public abstract class PageFileCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(PageFileCollector.class);
+
+    private static final String GLOB_META_CHARS = "*?[{";
+
+    // Each spec can be a page file, a directory (searched recursively) or a glob pattern (e.g. "vol1/**/*.html");
+    // the manifest (if not null) is a text file listing one page path per line. The returned iterable is lazy,
+    // so arbitrarily large inputs never need to be held in memory at once. The page files found in the specs are
+    // InputFiles, relative to the file, the directory or the base directory of the glob pattern given.
+    public static Iterable<File> collect(List<String> specs, File manifest) {
+        return collect(specs, manifest, null);
+    }
+
+    // As above, but the zip and tar archives found are replaced by the page files they contain (the ones matching
+    // the entry filter, if not null; see ArchiveReader.entries)
+    public static Iterable<File> collect(List<String> specs, File manifest, String entryFilter) {
+        List<Iterable<File>> sources = Lists.newArrayList();
+
+        for (String spec : specs)
+            sources.add(fromSpec(spec));
+
+        if (manifest != null)
+            sources.add(fromManifest(manifest));
+
+        return expandArchives(Iterables.concat(sources), entryFilter);
+    }
+
+    public static Iterable<File> expandArchives(Iterable<File> files, final String entryFilter) {
+        return Iterables.concat(Iterables.transform(files, new Function<File, Iterable<File>>() {
+            @Override
+            public Iterable<File> apply(File file) {
+                return ArchiveReader.isArchive(file) ?
+                        ArchiveReader.entries(file, entryFilter) : Collections.singletonList(file);
+            }
+        }));
+    }
+
+    public static Iterable<File> fromSpec(String spec) {
+        File file = new File(spec);
+
+        if (file.isFile())
+            return Collections.<File>singletonList(InputFile.of(file, file));
+
+        if (file.isDirectory())
+            return fromDirectory(file, null);
+
+        if (isGlob(spec))
+            return fromGlob(spec);
+
+        log.warn("No such page file or directory: {}", spec);
+        return Collections.emptyList();
+    }
+
+    public static Iterable<File> fromDirectory(final File dir, final PathMatcher matcher) {
+        return new Iterable<File>() {
+            @Override
+            public Iterator<File> iterator() {
+                return new DirectoryWalker(dir, matcher);
+            }
+        };
+    }
+
+    public static Iterable<File> fromGlob(String glob) {
+        // walk only the deepest directory that doesn't contain any glob characters
+        String[] segments = glob.split("[/\\\\]", -1);
+        StringBuilder baseDir = new StringBuilder();
+        for (int i = 0; i < segments.length - 1 && !isGlob(segments[i]); i++)
+            baseDir.append(segments[i]).append(File.separatorChar);
+
+        File dir = new File(baseDir.length() > 0 ? baseDir.toString() : ".");
+        if (!dir.isDirectory()) {
+            log.warn("No such directory: {}", dir);
+            return Collections.emptyList();
+        }
+
+        // files found under "." are reported as "./name" so the glob needs the same prefix to match them
+        String pattern = (baseDir.length() > 0) ? glob : "." + File.separatorChar + glob;
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+
+        return fromDirectory(dir, matcher);
+    }
+
+    public static Iterable<File> fromManifest(final File manifest) {
+        return new Iterable<File>() {
+            @Override
+            public Iterator<File> iterator() {
+                final BufferedReader reader;
+                try {
+                    reader = Files.newReader(manifest, Charsets.UTF_8);
+                }
+                catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+
+                return new AbstractIterator<File>() {
+                    @Override
+                    protected File computeNext() {
+                        try {
+                            String line;
+                            while ((line = reader.readLine()) != null) {
+                                line = line.trim();
+                                if (!line.isEmpty() && !line.startsWith("#"))
+                                    return new File(line);
+                            }
+
+                            reader.close();
+                            return endOfData();
+                        }
+                        catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    private static boolean isGlob(String s) {
+        for (int i = 0; i < s.length(); i++)
+            if (GLOB_META_CHARS.indexOf(s.charAt(i)) >= 0)
+                return true;
+
+        return false;
+    }
+
+    private static class DirectoryWalker extends AbstractIterator<File> {
+        private final File _dir;
+        private final PathMatcher _matcher;
+        private final Deque<File> _pending = new ArrayDeque<>();
+
+        private DirectoryWalker(File dir, PathMatcher matcher) {
+            _dir = dir;
+            _matcher = matcher;
+            _pending.push(dir);
+        }
+
+        @Override
+        protected File computeNext() {
+            while (!_pending.isEmpty()) {
+                File file = _pending.pop();
+
+                if (file.isDirectory()) {
+                    File[] children = file.listFiles();
+                    if (children == null) {
+                        log.warn("Cannot list directory: {}", file);
+                        continue;
+                    }
+
+                    // push in reverse so that files are visited in name order
+                    Arrays.sort(children, Collections.reverseOrder());
+                    for (File child : children)
+                        if (!child.isHidden())
+                            _pending.push(child);
+                } else if (_matcher == null || _matcher.matches(file.toPath()))
+                    return InputFile.of(file, _dir);
+            }
+
+            return endOfData();
+        }
+    }
+}
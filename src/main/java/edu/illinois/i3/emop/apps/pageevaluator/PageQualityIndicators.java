@@ -1,5 +1,8 @@
 package edu.illinois.i3.emop.apps.pageevaluator;
 
+import com.google.common.base.Enums;
+import com.google.common.base.Optional;
+
 public class PageQualityIndicators extends KeyValueStore {
     public enum DefaultIndicators {
         TextQuality,
@@ -7,14 +10,51 @@ public class PageQualityIndicators extends KeyValueStore {
         OverallQuality
     }
 
+    private static final DefaultIndicators[] INDICATORS = DefaultIndicators.values();
+
+    // the default indicators are kept in an array (indexed by ordinal) instead of the map of the KeyValueStore
+    private final double[] _values = new double[INDICATORS.length];
+    private int _present;  // bit i is set if INDICATORS[i] has a value
+
+    public boolean has(DefaultIndicators indicator) {
+        return (_present & (1 << indicator.ordinal())) != 0;
+    }
+
+    // NaN if the indicator has no value
+    public double get(DefaultIndicators indicator) {
+        return has(indicator) ? _values[indicator.ordinal()] : Double.NaN;
+    }
+
+    public void set(DefaultIndicators indicator, double value) {
+        _values[indicator.ordinal()] = value;
+        _present |= 1 << indicator.ordinal();
+    }
+
     public void put(DefaultIndicators indicator, Object value) {
-        put(indicator.name(), value);
+        set(indicator, toDouble(value));
     }
 
-    public String getString(DefaultIndicators indicator) { return getString(indicator.name()); }
-    public Integer getInt(DefaultIndicators indicator) { return getInt(indicator.name()); }
-    public Float getFloat(DefaultIndicators indicator) { return getFloat(indicator.name()); }
-    public Double getDouble(DefaultIndicators indicator) { return getDouble(indicator.name()); }
-    public Boolean getBoolean(DefaultIndicators indicator) { return getBoolean(indicator.name()); }
+    public String getString(DefaultIndicators indicator) { return has(indicator) ? Double.toString(get(indicator)) : null; }
+    public Integer getInt(DefaultIndicators indicator) { return has(indicator) ? (int) get(indicator) : null; }
+    public Float getFloat(DefaultIndicators indicator) { return has(indicator) ? (float) get(indicator) : null; }
+    public Double getDouble(DefaultIndicators indicator) { return has(indicator) ? get(indicator) : null; }
+    public Boolean getBoolean(DefaultIndicators indicator) { return has(indicator) ? Boolean.parseBoolean(getString(indicator)) : null; }
 
+    @Override
+    protected void putValue(String key, Object value) {
+        Optional<DefaultIndicators> indicator = Enums.getIfPresent(DefaultIndicators.class, key);
+        if (indicator.isPresent())
+            put(indicator.get(), value);
+        else
+            super.putValue(key, value);
+    }
+
+    @Override
+    protected Object getValue(String key) {
+        Optional<DefaultIndicators> indicator = Enums.getIfPresent(DefaultIndicators.class, key);
+        if (indicator.isPresent())
+            return getDouble(indicator.get());
+        else
+            return super.getValue(key);
+    }
 }
@@ -0,0 +1,26 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+public class PageResult {
+    private final String _pageId;
+    private final PageStatsCalculator.OCRPageStats _stats;
+    private final PageQualityIndicators _indicators;
+
+    public PageResult(String pageId, PageStatsCalculator.OCRPageStats stats, PageQualityIndicators indicators) {
+        _pageId = pageId;
+        _stats = stats;
+        _indicators = indicators;
+    }
+
+    public String pageId() {
+        return _pageId;
+    }
+
+    public PageStatsCalculator.OCRPageStats stats() {
+        return _stats;
+    }
+
+    // null if the page has no tokens
+    public PageQualityIndicators indicators() {
+        return _indicators;
+    }
+}
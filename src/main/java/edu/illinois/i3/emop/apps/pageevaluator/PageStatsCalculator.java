@@ -1,6 +1,9 @@
 package edu.illinois.i3.emop.apps.pageevaluator;
 
-import java.util.Iterator;
+import com.google.common.base.Enums;
+import com.google.common.base.Optional;
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.WordDictionary;
+
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
@@ -24,6 +27,9 @@ public class PageStatsCalculator {
     protected static final int MAX_TRAILING_PUNCT_TO_REMOVE = 2;
     protected static final int CLEAN_TOKEN_LEN_THRESHOLD = 3;
 
+    // the number of tokens found in the dictionary (only present if the page was spell checked)
+    public static final String NUM_CORRECT_TOKENS = "numCorrectTokens";
+
     protected static final Pattern NonAlphaPattern = Pattern.compile("\\P{L}", Pattern.CANON_EQ);
     protected static final Pattern PunctPattern = Pattern.compile("^\\p{Punct}$");
     protected static final Pattern NumberBasedObjectPattern = Pattern.compile("^\\p{Sc}?[\\.,/\\-]?(\\p{N}+[\\.,/%\\-]?)+\\p{Sc}?$");
@@ -37,131 +43,253 @@ public class PageStatsCalculator {
     //       a token can be cleaned only if, after cleaning, the remaining substring has a length >= CLEAN_TOKEN_LEN_THRESHOLD
 
     public static OCRPageStats calculateStatistics(OCRPage<? extends OCRToken> page) {
-                                                    // number of...
-        int tokenCount = 0;                         // tokens on page
-        int ge4RepeatedCharsTokenCount = 0;         // tokens containing 4 or more repeated characters (not numbers) in a run
-        int numberObjectsTokenCount = 0;            // tokens that could represent numbers, dates, amounts of money, identifiers..etc. (are number based)
-        int punctTokenCount = 0;                    // tokens that are made up of exactly 1 punctuation character (non-alphanum)
-        int lenGt1NonAlphaTokenCount = 0;           // tokens of length > 1 that contain exclusively non-alpha characters (but are not made up entirely of numbers) (can be thought of as "garbage" tokens)
-        int cleanOneNonAlphaNoRepTokenCount = 0;    // tokens which, after cleaning, are of length at least 3, contain exactly 1 non-alpha character and at least 1 alpha, and no 4 or more repeated characters in a run
-        int cleanTwoNonAlphaNoRepTokenCount = 0;    // tokens which, after cleaning, are of length at least 3, contain exactly 2 non-alpha character and at least 1 alpha, and no 4 or more repeated characters in a run
-        int cleanThreeOrMoreNonAlphaTokenCount = 0; // tokens which, after cleaning, are of length at least 3, contain > 2 non-alpha character and at least 1 alpha (for correction purposes they can also be thought of as "garbage")
-        int cleanAllAlphaNoRepTokenCount = 0;       // tokens which, after cleaning, contain exclusively alpha characters and no 4 or more repeated characters in a run
-        int cleanShortWordCount = 0;                // tokens which, after cleaning, have length < 3 and are supposed to be words (i.e. no numbers, no single punctuation, no single letters)
-        int singleLetterCount = 0;                  // tokens made up of exactly 1 alpha character
-
-        Iterator<? extends OCRToken> tokenIterator = page.tokens().iterator();
-        while (tokenIterator.hasNext()) {
-            OCRToken token = tokenIterator.next();
-            String tokenText = token.text();
+        StatsCollector statsCollector = new StatsCollector(null);
+        page.visitTokens(statsCollector);
 
-            tokenCount++;
+        return statsCollector.pageStats();
+    }
 
-            String normTokenText = tokenText.toLowerCase();
-            String cleanTokenText = cleanToken(normTokenText);
+    // Regular expression based classification of a token into one of the DefaultStats categories (other than TokenCount);
+    // TokenClassifier gives the same results much faster, and only uses this for tokens containing characters
+    // that need canonical equivalence or special casing rules
+    protected static DefaultStats classifyWithPatterns(String tokenText) {
+        // number of...
+        // TokenCount                          tokens on page
+        // Ge4RepeatedCharsTokenCount          tokens containing 4 or more repeated characters (not numbers) in a run
+        // NumberObjectsTokenCount             tokens that could represent numbers, dates, amounts of money, identifiers..etc. (are number based)
+        // PunctTokenCount                     tokens that are made up of exactly 1 punctuation character (non-alphanum)
+        // LenGt1NonAlphaTokenCount            tokens of length > 1 that contain exclusively non-alpha characters (but are not made up entirely of numbers) (can be thought of as "garbage" tokens)
+        // CleanOneNonAlphaNoRepTokenCount     tokens which, after cleaning, are of length at least 3, contain exactly 1 non-alpha character and at least 1 alpha, and no 4 or more repeated characters in a run
+        // CleanTwoNonAlphaNoRepTokenCount     tokens which, after cleaning, are of length at least 3, contain exactly 2 non-alpha character and at least 1 alpha, and no 4 or more repeated characters in a run
+        // CleanThreeOrMoreNonAlphaTokenCount  tokens which, after cleaning, are of length at least 3, contain > 2 non-alpha character and at least 1 alpha (for correction purposes they can also be thought of as "garbage")
+        // CleanAllAlphaNoRepTokenCount        tokens which, after cleaning, contain exclusively alpha characters and no 4 or more repeated characters in a run
+        // CleanShortWordCount                 tokens which, after cleaning, have length < 3 and are supposed to be words (i.e. no numbers, no single punctuation, no single letters)
+        // SingleLetterCount                   tokens made up of exactly 1 alpha character
 
-            // tokenText      = the default, not-normalized, token (trimmed)
-            // normTokenText  = the normalized (lowercased) tokenText
-            // cleanTokenText = the normTokenText with MAX_LEADING_PUNCT_REMOVE punctuation removed, and MAX_TRAILING_PUNCT_REMOVE punctuation removed
-            //                  (can be 'null' if, after cleaning, the remaining substring has a length < CLEAN_TOKEN_LEN_THRESHOLD)
+        String normTokenText = tokenText.toLowerCase();
+        String cleanTokenText = cleanToken(normTokenText);
 
-            Integer tokenLength = tokenText.length();
-            Integer cleanTokenLength = cleanTokenText.length();
+        // tokenText      = the default, not-normalized, token (trimmed)
+        // normTokenText  = the normalized (lowercased) tokenText
+        // cleanTokenText = the normTokenText with MAX_LEADING_PUNCT_REMOVE punctuation removed, and MAX_TRAILING_PUNCT_REMOVE punctuation removed
+        //                  (can be 'null' if, after cleaning, the remaining substring has a length < CLEAN_TOKEN_LEN_THRESHOLD)
 
-            Matcher punctMatcher = PunctPattern.matcher(tokenText);
-            if (punctMatcher.matches()) {
-                punctTokenCount++;
-                continue;
-            }
+        Integer cleanTokenLength = cleanTokenText.length();
 
-            Matcher numberMatcher = NumberBasedObjectPattern.matcher(tokenText);
-            if (numberMatcher.matches()) {
-                numberObjectsTokenCount++;
-                continue;
-            }
+        Matcher punctMatcher = PunctPattern.matcher(tokenText);
+        if (punctMatcher.matches())
+            return PunctTokenCount;
 
-            Matcher singleAlphaMatcher = OneAlphaPattern.matcher(tokenText);
-            if (singleAlphaMatcher.matches()) {
-                singleLetterCount++;
-                continue;
-            }
+        Matcher numberMatcher = NumberBasedObjectPattern.matcher(tokenText);
+        if (numberMatcher.matches())
+            return NumberObjectsTokenCount;
 
-            Matcher ge4RepeatedCharsMatcher = Repeated4orMoreCharsPattern.matcher(normTokenText);
-            if (ge4RepeatedCharsMatcher.find()) {
-                ge4RepeatedCharsTokenCount++;
-                continue;
-            }
+        Matcher singleAlphaMatcher = OneAlphaPattern.matcher(tokenText);
+        if (singleAlphaMatcher.matches())
+            return SingleLetterCount;
 
-            // compute the number of non-alpha characters in the cleaned token (if it contains no more than 3 repeated characters in a run)
-            Matcher nonAlphaMatcher = NonAlphaPattern.matcher(cleanTokenText);
-            int nonAlphaCount = 0;
-            while (nonAlphaMatcher.find())
-                nonAlphaCount++;
+        Matcher ge4RepeatedCharsMatcher = Repeated4orMoreCharsPattern.matcher(normTokenText);
+        if (ge4RepeatedCharsMatcher.find())
+            return Ge4RepeatedCharsTokenCount;
 
-            if (nonAlphaCount == cleanTokenLength) {
-                lenGt1NonAlphaTokenCount++;
-                continue;
-            }
+        // compute the number of non-alpha characters in the cleaned token (if it contains no more than 3 repeated characters in a run)
+        Matcher nonAlphaMatcher = NonAlphaPattern.matcher(cleanTokenText);
+        int nonAlphaCount = 0;
+        while (nonAlphaMatcher.find())
+            nonAlphaCount++;
 
-            // a token can be cleaned only if, after cleaning, the remaining substring has a length >= 3
-            if (cleanTokenLength < CLEAN_TOKEN_LEN_THRESHOLD) {
-                cleanShortWordCount++;
-                continue;
-            }
+        if (nonAlphaCount == cleanTokenLength)
+            return LenGt1NonAlphaTokenCount;
 
-            switch (nonAlphaCount) {
-                case 0:
-                    cleanAllAlphaNoRepTokenCount++;
-                    break;
+        // a token can be cleaned only if, after cleaning, the remaining substring has a length >= 3
+        if (cleanTokenLength < CLEAN_TOKEN_LEN_THRESHOLD)
+            return CleanShortWordCount;
 
-                case 1:
-                    cleanOneNonAlphaNoRepTokenCount++;
-                    break;
+        switch (nonAlphaCount) {
+            case 0:
+                return CleanAllAlphaNoRepTokenCount;
 
-                case 2:
-                    cleanTwoNonAlphaNoRepTokenCount++;
-                    break;
+            case 1:
+                return CleanOneNonAlphaNoRepTokenCount;
 
-                default:
-                    cleanThreeOrMoreNonAlphaTokenCount++;
-                    break;
-            }
-        }
+            case 2:
+                return CleanTwoNonAlphaNoRepTokenCount;
 
-        OCRPageStats pageStats = new OCRPageStats();
-        pageStats.put(TokenCount, tokenCount);
-        pageStats.put(Ge4RepeatedCharsTokenCount, ge4RepeatedCharsTokenCount);
-        pageStats.put(NumberObjectsTokenCount, numberObjectsTokenCount);
-        pageStats.put(PunctTokenCount, punctTokenCount);
-        pageStats.put(LenGt1NonAlphaTokenCount, lenGt1NonAlphaTokenCount);
-        pageStats.put(CleanOneNonAlphaNoRepTokenCount, cleanOneNonAlphaNoRepTokenCount);
-        pageStats.put(CleanTwoNonAlphaNoRepTokenCount, cleanTwoNonAlphaNoRepTokenCount);
-        pageStats.put(CleanThreeOrMoreNonAlphaTokenCount, cleanThreeOrMoreNonAlphaTokenCount);
-        pageStats.put(CleanAllAlphaNoRepTokenCount, cleanAllAlphaNoRepTokenCount);
-        pageStats.put(CleanShortWordCount, cleanShortWordCount);
-        pageStats.put(SingleLetterCount, singleLetterCount);
-
-        return pageStats;
+            default:
+                return CleanThreeOrMoreNonAlphaTokenCount;
+        }
     }
 
+    // Same as token.replaceFirst("^\\p{Punct}{0,MAX_LEADING_PUNCT_TO_REMOVE}", "")
+    //              .replaceFirst("\\p{Punct}{0,MAX_TRAILING_PUNCT_TO_REMOVE}$", "")
+    // but without compiling any patterns; returns the token itself if there's nothing to remove
     protected static String cleanToken(String token) {
-        return token.replaceFirst("^\\p{Punct}{0," + MAX_LEADING_PUNCT_TO_REMOVE + "}", "")
-                .replaceFirst("\\p{Punct}{0," + MAX_TRAILING_PUNCT_TO_REMOVE + "}$", "");
+        int start = cleanTokenStart(token);
+        return cleanToken(token, start, cleanTokenEnd(token, start));
+    }
+
+    // The clean token, given the clean token offsets (see below)
+    protected static String cleanToken(String token, int start, int end) {
+        int terminatorStart = lineTerminatorStart(token, start);
+
+        if (end == terminatorStart)
+            return token.substring(start);
+
+        // punctuation removed before a final line terminator (which '$' matches before) - doesn't happen in practice
+        return token.substring(start, end) + token.substring(terminatorStart);
+    }
+
+    // The clean token is token[cleanTokenStart(token), cleanTokenEnd(token, start)), followed by
+    // token[lineTerminatorStart(token, start), token.length()) - which is empty unless the token ends with a line terminator
+
+    public static int cleanTokenStart(CharSequence token) {
+        int start = 0;
+        int length = token.length();
+        while (start < MAX_LEADING_PUNCT_TO_REMOVE && start < length && isPunct(token.charAt(start)))
+            start++;
+
+        return start;
+    }
+
+    public static int cleanTokenEnd(CharSequence token, int start) {
+        int terminatorStart = lineTerminatorStart(token, start);
+        int end = terminatorStart;
+        while (terminatorStart - end < MAX_TRAILING_PUNCT_TO_REMOVE && end > start && isPunct(token.charAt(end - 1)))
+            end--;
+
+        return end;
+    }
+
+    // The index where the final line terminator of token[start, length) starts (or length if there's none),
+    // which is where '$' matches in a non-MULTILINE pattern
+    public static int lineTerminatorStart(CharSequence token, int start) {
+        int length = token.length();
+        if (length == start)
+            return length;
+
+        char last = token.charAt(length - 1);
+        switch (last) {
+            case '\n':
+                return (length - 2 >= start && token.charAt(length - 2) == '\r') ? length - 2 : length - 1;
+
+            case '\r':
+            case '\u0085':
+            case '\u2028':
+            case '\u2029':
+                return length - 1;
+
+            default:
+                return length;
+        }
+    }
+
+    // \p{Punct}
+    protected static boolean isPunct(char c) {
+        return c >= '!' && c <= '/' || c >= ':' && c <= '@' || c >= '[' && c <= '`' || c >= '{' && c <= '~';
     }
 
 
+    // Computes the stats of the tokens it visits and, if given a dictionary, counts the ones found in it
+    // (as NUM_CORRECT_TOKENS); each token is cleaned only once, for both
+    public static class StatsCollector implements OCRTokenVisitor<OCRToken> {
+        // number of tokens in each DefaultStats category (see the category descriptions in classifyWithPatterns)
+        private final OCRPageStats _pageStats = new OCRPageStats();
+        private final WordDictionary _dictionary;
+        private int _numCorrectTokens;
+
+        public StatsCollector(WordDictionary dictionary) {
+            _dictionary = dictionary;
+        }
+
+        @Override
+        public void visitToken(OCRToken token) {
+            String tokenText = token.text();
+            int cleanStart = cleanTokenStart(tokenText);
+            int cleanEnd = cleanTokenEnd(tokenText, cleanStart);
+
+            classifyToken(tokenText, cleanStart, cleanEnd);
+
+            if (_dictionary != null)
+                spellCheckToken(tokenText, cleanStart, cleanEnd);
+        }
+
+        protected void classifyToken(String tokenText, int cleanStart, int cleanEnd) {
+            _pageStats.increment(TokenCount);
+            _pageStats.increment(TokenClassifier.classify(tokenText, cleanStart, cleanEnd));
+        }
+
+        protected void spellCheckToken(String tokenText, int cleanStart, int cleanEnd) {
+            if (_dictionary.isCorrect(cleanToken(tokenText, cleanStart, cleanEnd)))
+                _numCorrectTokens++;
+        }
+
+        public OCRPageStats pageStats() {
+            if (_dictionary != null)
+                _pageStats.put(NUM_CORRECT_TOKENS, _numCorrectTokens);
+
+            return _pageStats;
+        }
+    }
+
     public static class OCRPageStats extends KeyValueStore {
+        private static final DefaultStats[] STATS = DefaultStats.values();
+
+        // the default stats are kept in an array (indexed by ordinal) instead of the map of the KeyValueStore,
+        // which is only used for any additional stats (like NUM_CORRECT_TOKENS)
+        private final int[] _counts = new int[STATS.length];
+
+        public OCRPageStats() { }
+
+        public int get(DefaultStats stat) {
+            return _counts[stat.ordinal()];
+        }
+
+        public void set(DefaultStats stat, int value) {
+            _counts[stat.ordinal()] = value;
+        }
 
-        private OCRPageStats() { }
+        public void increment(DefaultStats stat) {
+            _counts[stat.ordinal()]++;
+        }
+
+        // Adds the counts of other to these (all the default stats, and NUM_CORRECT_TOKENS, are additive)
+        public void add(OCRPageStats other) {
+            for (int i = 0; i < _counts.length; i++)
+                _counts[i] += other._counts[i];
+
+            Integer numCorrectTokens = other.getInt(NUM_CORRECT_TOKENS);
+            if (numCorrectTokens != null) {
+                Integer currentNumCorrectTokens = getInt(NUM_CORRECT_TOKENS);
+                put(NUM_CORRECT_TOKENS, (currentNumCorrectTokens != null) ?
+                        currentNumCorrectTokens + numCorrectTokens : numCorrectTokens);
+            }
+        }
 
         public void put(DefaultStats stat, Object value) {
-            put(stat.name(), value);
+            set(stat, toInt(value));
         }
-        public String getString(DefaultStats stat) { return getString(stat.name()); }
-        public Integer getInt(DefaultStats stat) { return getInt(stat.name()); }
-        public Float getFloat(DefaultStats stat) { return getFloat(stat.name()); }
-        public Double getDouble(DefaultStats stat) { return getDouble(stat.name()); }
-        public Boolean getBoolean(DefaultStats stat) { return getBoolean(stat.name()); }
+        public String getString(DefaultStats stat) { return Integer.toString(get(stat)); }
+        public Integer getInt(DefaultStats stat) { return get(stat); }
+        public Float getFloat(DefaultStats stat) { return (float) get(stat); }
+        public Double getDouble(DefaultStats stat) { return (double) get(stat); }
+        public Boolean getBoolean(DefaultStats stat) { return Boolean.parseBoolean(getString(stat)); }
 
+        @Override
+        protected void putValue(String key, Object value) {
+            Optional<DefaultStats> stat = Enums.getIfPresent(DefaultStats.class, key);
+            if (stat.isPresent())
+                put(stat.get(), value);
+            else
+                super.putValue(key, value);
+        }
+
+        @Override
+        protected Object getValue(String key) {
+            Optional<DefaultStats> stat = Enums.getIfPresent(DefaultStats.class, key);
+            if (stat.isPresent())
+                return get(stat.get());
+            else
+                return super.getValue(key);
+        }
     }
 }
@@ -0,0 +1,225 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.collect.ImmutableSet;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.util.Span;
+import opennlp.tools.util.StringUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Deterministic tokenizer reproducing the English TokenizerME model as closely as simple rules can, at a small
+// fraction of its cost: a single pass over the text, with a lookup table classifying the (ASCII) characters.
+// Like TokenizerME, it splits the whitespace-separated chunks of the text only at their edges: it splits off an
+// opening parenthesis or backquote, a $ or # before a number, and the punctuation ending the chunk, one character
+// at a time (so "word)." is "word", ")" and "."), but keeps an ellipsis in one token, and the period of titles,
+// initials and words in capitals ("Mr.", "U.S.", "PURPOSE."). The rest of the chunk is one token, except for the
+// commas between letters that OCR errors leave in words (e.g. "th,e"), which start a new token as they do with
+// TokenizerME.
+// Unlike TokenizerME, it keeps contractions ("don't", "John's") in one token, so they don't need to be fused.
+// The tokenizer is stateless, and thread-safe.
+public class RuleBasedTokenizer implements Tokenizer {
+
+    public static final RuleBasedTokenizer INSTANCE = new RuleBasedTokenizer();
+
+    // Character classes
+    private static final byte SPACE = 1;
+    private static final byte OPENING = 2;      // split off the start of a chunk
+    private static final byte CURRENCY = 3;     // split off the start of a chunk, before a digit
+    private static final byte TRAILING = 4;     // split off the end of a chunk
+    private static final byte CLOSING = 5;      // split off the end of a chunk that starts with the opening bracket
+    private static final byte PERIOD = 6;
+    private static final byte HYPHEN = 7;
+    private static final byte COMMA = 8;        // split off the end of a chunk, and before letters after letters
+
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    static {
+        for (int c = 0; c < 128; c++)
+            if (StringUtil.isWhitespace(c))
+                ASCII_CLASSES[c] = SPACE;
+
+        ASCII_CLASSES['('] = OPENING;
+        ASCII_CLASSES['`'] = OPENING;
+        ASCII_CLASSES['$'] = CURRENCY;
+        ASCII_CLASSES['#'] = CURRENCY;
+        for (char c : ")\"';:!?%".toCharArray())
+            ASCII_CLASSES[c] = TRAILING;
+        ASCII_CLASSES[']'] = CLOSING;
+        ASCII_CLASSES['}'] = CLOSING;
+        ASCII_CLASSES['>'] = CLOSING;
+        ASCII_CLASSES['.'] = PERIOD;
+        ASCII_CLASSES['-'] = HYPHEN;
+        ASCII_CLASSES[','] = COMMA;
+    }
+
+    // The words keeping the period that follows them, other than initials and words in capitals
+    private static final Set<String> TITLES = ImmutableSet.of(
+            "Mr", "Mrs", "Ms", "Messrs", "Dr", "St", "Mt", "Jr", "Sr", "No", "Inc", "Ltd", "Co", "Corp", "Bros");
+
+    private static final CharMatcher ROMAN_NUMERAL = CharMatcher.anyOf("IVXLCDM");
+
+    // The shortest run of periods kept in one token
+    private static final int MIN_ELLIPSIS_LENGTH = 3;
+
+    @Override
+    public String[] tokenize(String s) {
+        return Span.spansToStrings(tokenizePos(s), s);
+    }
+
+    @Override
+    public Span[] tokenizePos(String s) {
+        List<Span> tokens = new ArrayList<>();
+
+        int length = s.length();
+        int position = 0;
+        while (position < length) {
+            if (isSpace(s, position)) {
+                position++;
+                continue;
+            }
+
+            int end = position + 1;
+            while (end < length && !isSpace(s, end))
+                end++;
+
+            tokenizeChunk(s, position, end, tokens);
+            position = end;
+        }
+
+        return tokens.toArray(new Span[tokens.size()]);
+    }
+
+    private static void tokenizeChunk(String s, int start, int end, List<Span> tokens) {
+        // the start of the chunk
+        while (start < end) {
+            int type = characterClass(s.charAt(start));
+            if (type == OPENING || (type == CURRENCY && start + 1 < end && Character.isDigit(s.charAt(start + 1)))) {
+                tokens.add(new Span(start, start + 1));
+                start++;
+            } else
+                break;
+        }
+
+        // the end of the chunk, from the last character
+        int trailingCount = 0;
+        while (end > start) {
+            int tokenStart = trailingTokenStart(s, start, end);
+            if (tokenStart == end)
+                break;
+
+            tokens.add(new Span(tokenStart, end));
+            trailingCount++;
+            end = tokenStart;
+        }
+
+        // the rest, split before the commas between letters
+        int tokenStart = start;
+        for (int i = start + 1; i < end - 1; i++)
+            if (characterClass(s.charAt(i)) == COMMA && Character.isLetter(s.charAt(i - 1)) &&
+                    Character.isLetter(s.charAt(i + 1))) {
+                tokens.add(tokens.size() - trailingCount, new Span(tokenStart, i));
+                tokenStart = i;
+            }
+
+        if (tokenStart < end)
+            tokens.add(tokens.size() - trailingCount, new Span(tokenStart, end));
+
+        // the trailing tokens were added in reverse order
+        reverse(tokens, tokens.size() - trailingCount, tokens.size());
+    }
+
+    // The start of the token that ends the chunk [start, end) if it's split off, or end if it's not
+    private static int trailingTokenStart(String s, int start, int end) {
+        char c = s.charAt(end - 1);
+        switch (characterClass(c)) {
+            case TRAILING:
+            case COMMA:
+                return end - 1;
+
+            case CLOSING:
+                return (s.charAt(start) == openingBracket(c)) ? end - 1 : end;
+
+            case HYPHEN:
+                // a single hyphen ending a word ("word--" is kept)
+                return (end - 2 >= start && Character.isLetterOrDigit(s.charAt(end - 2))) ? end - 1 : end;
+
+            case PERIOD:
+                int runStart = end - 1;
+                while (runStart > start && s.charAt(runStart - 1) == '.')
+                    runStart--;
+
+                if (end - runStart >= MIN_ELLIPSIS_LENGTH)
+                    return runStart;
+
+                return (end - runStart == 1 && isAbbreviation(s, start, end - 1)) ? end : end - 1;
+
+            default:
+                return end;
+        }
+    }
+
+    // Whether the period after s[start, end) is kept with it: the period of a title, of initials ("A", "U.S"), or of
+    // a word in capitals other than a roman numeral ("PURPOSE")
+    private static boolean isAbbreviation(String s, int start, int end) {
+        if (start == end)
+            return false;
+
+        String word = s.substring(start, end);
+        if (TITLES.contains(word))
+            return true;
+
+        boolean initials = true;
+        for (int i = start; i < end && initials; i++) {
+            char c = s.charAt(i);
+            initials = (c == '.') ? (i > start && s.charAt(i - 1) != '.') : Character.isUpperCase(c) &&
+                    (i + 1 == end || s.charAt(i + 1) == '.');
+        }
+
+        if (initials)
+            return true;
+
+        return end - start > 1 && CharMatcher.JAVA_UPPER_CASE.matchesAllOf(word) && !ROMAN_NUMERAL.matchesAllOf(word);
+    }
+
+    private static char openingBracket(char closingBracket) {
+        switch (closingBracket) {
+            case ']': return '[';
+            case '}': return '{';
+            default: return '<';
+        }
+    }
+
+    private static void reverse(List<Span> tokens, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            Span token = tokens.get(i);
+            tokens.set(i, tokens.get(j));
+            tokens.set(j, token);
+        }
+    }
+
+    private static boolean isSpace(String s, int position) {
+        return characterClass(s.charAt(position)) == SPACE;
+    }
+
+    private static int characterClass(char c) {
+        if (c < 128)
+            return ASCII_CLASSES[c];
+
+        switch (Character.getType(c)) {
+            case Character.SPACE_SEPARATOR:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+                return SPACE;
+
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+                return TRAILING;
+
+            default:
+                return StringUtil.isWhitespace(c) ? SPACE : 0;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import java.util.Locale;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.CLEAN_TOKEN_LEN_THRESHOLD;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+
+// Classifies tokens into the same DefaultStats categories as PageStatsCalculator.classifyWithPatterns, by scanning
+// the token's code points directly instead of lowercasing, cleaning and running up to five regular expressions on it.
+//
+// The scanner handles tokens made up of "simple" characters - characters that always form a grapheme cluster on their
+// own and lowercase to a single character regardless of context. For these, the CANON_EQ patterns behave exactly like
+// plain code point matching. The (rare) tokens containing anything else, like combining marks or Hangul jamo,
+// are handed to the regular expressions.
+public final class TokenClassifier {
+
+    private TokenClassifier() { }
+
+    public static DefaultStats classify(String token) {
+        int cleanStart = PageStatsCalculator.cleanTokenStart(token);
+        return classify(token, cleanStart, PageStatsCalculator.cleanTokenEnd(token, cleanStart));
+    }
+
+    // Same as classify(token), given the token's clean token offsets (PageStatsCalculator.cleanTokenStart and
+    // cleanTokenEnd), for when they are also needed elsewhere
+    public static DefaultStats classify(String token, int cleanStart, int cleanEnd) {
+        int length = token.length();
+
+        // PunctPattern
+        if (length == 1 && PageStatsCalculator.isPunct(token.charAt(0)))
+            return PunctTokenCount;
+
+        // NumberBasedObjectPattern
+        if (isNumberBasedObject(token))
+            return NumberObjectsTokenCount;
+
+        if (!isSimple(token))
+            return PageStatsCalculator.classifyWithPatterns(token);
+
+        // OneAlphaPattern
+        if (length == 1 && Character.isLetter(token.charAt(0)))
+            return SingleLetterCount;
+
+        // the clean token is token[cleanStart, cleanEnd) (simple tokens don't contain line terminators)
+        // Repeated4orMoreCharsPattern (on the lowercased token) and NonAlphaPattern (on the clean token) in a single pass
+        int nonAlphaCount = 0;
+        int runChar = -1;
+        int runLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = Character.toLowerCase(token.charAt(i));
+
+            if (c == runChar)
+                runLength++;
+            else {
+                runChar = c;
+                runLength = 1;
+            }
+
+            if (runLength == 4 && !isNumber(c))
+                return Ge4RepeatedCharsTokenCount;
+
+            if (i >= cleanStart && i < cleanEnd && !Character.isLetter(c))
+                nonAlphaCount++;
+        }
+
+        int cleanLength = cleanEnd - cleanStart;
+
+        if (nonAlphaCount == cleanLength)
+            return LenGt1NonAlphaTokenCount;
+
+        if (cleanLength < CLEAN_TOKEN_LEN_THRESHOLD)
+            return CleanShortWordCount;
+
+        switch (nonAlphaCount) {
+            case 0:
+                return CleanAllAlphaNoRepTokenCount;
+
+            case 1:
+                return CleanOneNonAlphaNoRepTokenCount;
+
+            case 2:
+                return CleanTwoNonAlphaNoRepTokenCount;
+
+            default:
+                return CleanThreeOrMoreNonAlphaTokenCount;
+        }
+    }
+
+    // ^\p{Sc}?[\.,/\-]?(\p{N}+[\.,/%\-]?)+\p{Sc}?$
+    static boolean isNumberBasedObject(String token) {
+        int length = token.length();
+        int i = 0;
+
+        if (i < length && isCurrencySymbol(token.codePointAt(i)))
+            i += Character.charCount(token.codePointAt(i));
+
+        if (i < length && isLeadingNumberSeparator(token.charAt(i)))
+            i++;
+
+        // (\p{N}+[\.,/%\-]?)+ is a run of numbers and separators that starts with a number and has no two
+        // consecutive separators
+        boolean hasNumber = false;
+        boolean lastWasSeparator = true;
+        while (i < length) {
+            int cp = token.codePointAt(i);
+
+            if (isNumber(cp))
+                lastWasSeparator = false;
+            else if (isNumberSeparator(cp) && !lastWasSeparator)
+                lastWasSeparator = true;
+            else
+                break;
+
+            hasNumber = true;
+            i += Character.charCount(cp);
+        }
+
+        if (!hasNumber)
+            return false;
+
+        if (i < length && isCurrencySymbol(token.codePointAt(i)))
+            i += Character.charCount(token.codePointAt(i));
+
+        return i == length;
+    }
+
+    private static boolean isSimple(String token) {
+        // String.toLowerCase is locale sensitive for these languages
+        String language = Locale.getDefault().getLanguage();
+        if ("tr".equals(language) || "az".equals(language) || "lt".equals(language))
+            return false;
+
+        for (int i = 0, length = token.length(); i < length; i++)
+            if (!isSimple(token.charAt(i)))
+                return false;
+
+        return true;
+    }
+
+    private static boolean isSimple(char c) {
+        // control characters (including line terminators) and surrogates are left to the regular expressions,
+        // as are the characters for which String.toLowerCase depends on context or expands to more than one character
+        if (c < 0x80)
+            return c >= 0x20 && c != 0x7F;
+
+        // capital sigma (lowercases to final sigma at the end of a word) and capital I with dot above (lowercases to two characters)
+        if (c == '\u03A3' || c == '\u0130')
+            return false;
+
+        switch (Character.getType(c)) {
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.FORMAT:
+            case Character.CONTROL:
+            case Character.LINE_SEPARATOR:
+            case Character.PARAGRAPH_SEPARATOR:
+            case Character.SURROGATE:
+            case Character.UNASSIGNED:
+                return false;
+
+            case Character.MODIFIER_LETTER:
+                // halfwidth katakana sound marks extend the preceding character
+                return c != '\uFF9E' && c != '\uFF9F';
+
+            case Character.OTHER_LETTER:
+                // Hangul jamo and syllables, which combine with each other, and prepended or spacing-mark letters
+                return !(c >= '\u1100' && c <= '\u11FF' || c >= '\uA960' && c <= '\uA97F' ||
+                        c >= '\uAC00' && c <= '\uD7FF' || c == '\u0D4E' || c == '\u0E33' || c == '\u0EB3');
+
+            default:
+                return true;
+        }
+    }
+
+    // \p{N}
+    private static boolean isNumber(int cp) {
+        switch (Character.getType(cp)) {
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    // \p{Sc}
+    private static boolean isCurrencySymbol(int cp) {
+        return Character.getType(cp) == Character.CURRENCY_SYMBOL;
+    }
+
+    private static boolean isLeadingNumberSeparator(int c) {
+        return c == '.' || c == ',' || c == '/' || c == '-';
+    }
+
+    private static boolean isNumberSeparator(int c) {
+        return c == '.' || c == ',' || c == '/' || c == '%' || c == '-';
+    }
+}
@@ -0,0 +1,104 @@
+package edu.illinois.i3.emop.apps.pageevaluator.aggregate;
+
+import edu.illinois.i3.emop.apps.pageevaluator.PageEvaluator;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.SpellingQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+// Summary of the results of a group of pages (a volume or a collection): the sum of the page stats, from which the
+// quality indicators of the group are computed as for a single page, and the distributions of the page scores.
+// It takes the same (small) amount of memory whatever the number of pages, and the summaries of different sets of
+// pages (e.g. evaluated by different processes) can be merged. The stats are summed in longs, since the counts of
+// a large collection exceed the range of the int counts of a page.
+public class AggregateStats {
+
+    private static final DefaultStats[] STATS = DefaultStats.values();
+
+    private final String _id;
+    private final long[] _counts = new long[STATS.length];
+    private Long _numCorrectTokens;
+    private final ScoreHistogram _textQuality = new ScoreHistogram();
+    private final ScoreHistogram _spellingQuality = new ScoreHistogram();
+    private long _pageCount;
+
+    public AggregateStats(String id) {
+        _id = id;
+    }
+
+    public void add(PageResult result) {
+        _pageCount++;
+
+        OCRPageStats stats = result.stats();
+        for (DefaultStats stat : STATS)
+            _counts[stat.ordinal()] += stats.get(stat);
+
+        Integer numCorrectTokens = stats.getInt(NUM_CORRECT_TOKENS);
+        if (numCorrectTokens != null)
+            addNumCorrectTokens(numCorrectTokens);
+
+        // pages without tokens have no scores
+        PageQualityIndicators indicators = result.indicators();
+        if (indicators != null) {
+            _textQuality.add(indicators.getDouble(TextQuality));
+
+            Double spellingQuality = indicators.getDouble(SpellingQuality);
+            if (spellingQuality != null)
+                _spellingQuality.add(spellingQuality);
+        }
+    }
+
+    public void merge(AggregateStats other) {
+        _pageCount += other._pageCount;
+        for (int i = 0; i < _counts.length; i++)
+            _counts[i] += other._counts[i];
+
+        if (other._numCorrectTokens != null)
+            addNumCorrectTokens(other._numCorrectTokens);
+        _textQuality.merge(other._textQuality);
+        _spellingQuality.merge(other._spellingQuality);
+    }
+
+    public String id() {
+        return _id;
+    }
+
+    public long pageCount() {
+        return _pageCount;
+    }
+
+    // The sum of the stat over the pages
+    public long get(DefaultStats stat) {
+        return _counts[stat.ordinal()];
+    }
+
+    // The number of correctly spelled tokens in the pages (null if they weren't spell checked)
+    public Long numCorrectTokens() {
+        return _numCorrectTokens;
+    }
+
+    // The indicators of the group, as if all its pages were a single page (null if the pages have no tokens)
+    public PageQualityIndicators indicators() {
+        return PageEvaluator.computePageQualityIndicators(get(TokenCount), get(PunctTokenCount),
+                get(NumberObjectsTokenCount), get(CleanAllAlphaNoRepTokenCount), _numCorrectTokens);
+    }
+
+    // Distribution of the TextQuality of the pages
+    public ScoreHistogram textQualityDistribution() {
+        return _textQuality;
+    }
+
+    // Distribution of the SpellingQuality of the pages (empty if they weren't spell checked)
+    public ScoreHistogram spellingQualityDistribution() {
+        return _spellingQuality;
+    }
+
+    private void addNumCorrectTokens(long numCorrectTokens) {
+        _numCorrectTokens = (_numCorrectTokens != null) ? _numCorrectTokens + numCorrectTokens : numCorrectTokens;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.illinois.i3.emop.apps.pageevaluator.aggregate;
+
+// Histogram of page scores (in [0, 1]) in BIN_COUNT equal bins, so percentiles are within 1/BIN_COUNT of the exact
+// values; histograms of different sets of pages are merged by adding their bins, in any order
+public class ScoreHistogram {
+
+    public static final int BIN_COUNT = 100;
+
+    private final long[] _bins = new long[BIN_COUNT];
+    private long _count;
+
+    public void add(double score) {
+        if (Double.isNaN(score))
+            return;
+
+        int bin = (int) (Math.max(0, Math.min(1, score)) * BIN_COUNT);
+        _bins[Math.min(bin, BIN_COUNT - 1)]++;
+        _count++;
+    }
+
+    public void merge(ScoreHistogram other) {
+        for (int i = 0; i < BIN_COUNT; i++)
+            _bins[i] += other._bins[i];
+
+        _count += other._count;
+    }
+
+    public long count() {
+        return _count;
+    }
+
+    // The middle of the bin holding the score that the given fraction (0 to 1) of the scores doesn't exceed,
+    // or NaN if there are no scores
+    public double percentile(double fraction) {
+        if (_count == 0)
+            return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * _count));
+        long seen = 0;
+        for (int i = 0; i < BIN_COUNT; i++) {
+            seen += _bins[i];
+            if (seen >= rank)
+                return (i + 0.5) / BIN_COUNT;
+        }
+
+        return 1;
+    }
+
+    // The number of scores in each of binCount equal bins; binCount must divide BIN_COUNT
+    public long[] bins(int binCount) {
+        if (binCount <= 0 || BIN_COUNT % binCount != 0)
+            throw new IllegalArgumentException("Invalid bin count: " + binCount);
+
+        long[] bins = new long[binCount];
+        int binSize = BIN_COUNT / binCount;
+        for (int i = 0; i < BIN_COUNT; i++)
+            bins[i / binSize] += _bins[i];
+
+        return bins;
+    }
+}
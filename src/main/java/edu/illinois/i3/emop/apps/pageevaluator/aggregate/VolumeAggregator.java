@@ -0,0 +1,130 @@
+package edu.illinois.i3.emop.apps.pageevaluator.aggregate;
+
+import com.google.common.collect.Maps;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Groups the page results into volumes, and the volumes into collections, as they are reported. The volume of
+// a page is either its directory (and the collection the parent directory of that), or is extracted from the page
+// path by a regular expression: the "volume" named group (or else the first group, or else the whole match)
+// is the volume id, and the "collection" named group, if any, is the collection id.
+//
+// When the pages of each volume are reported together (as they are when the page files are evaluated in input
+// order, and the input lists the files of a volume together), every volume is reported as soon as the pages of the
+// next one start, so only one volume is kept in memory at a time (and nothing is kept of the volumes reported, so
+// a volume whose pages are not listed together is reported once for every run of its pages); otherwise volumes are
+// reported at the end.
+public class VolumeAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(VolumeAggregator.class);
+
+    public static final String DIRECTORY_GROUPING = "dir";
+
+    // the id of the collection of the volumes that don't belong to a named collection
+    public static final String DEFAULT_COLLECTION = "*";
+
+    public interface Listener {
+        void volumeCompleted(String collectionId, AggregateStats volume);
+        void collectionCompleted(AggregateStats collection);
+    }
+
+    private final Pattern _volumePattern;
+    private final boolean _volumesAreContiguous;
+    private final Listener _listener;
+
+    private final Map<String, AggregateStats> _volumes = Maps.newLinkedHashMap();
+    private final Map<String, String> _volumeCollections = Maps.newHashMap();
+    private final Map<String, AggregateStats> _collections = Maps.newLinkedHashMap();
+    private boolean _warnedUnmatched;
+
+    // grouping is DIRECTORY_GROUPING or a regular expression
+    public VolumeAggregator(String grouping, boolean volumesAreContiguous, Listener listener) {
+        _volumePattern = DIRECTORY_GROUPING.equals(grouping) ? null : Pattern.compile(grouping);
+        _volumesAreContiguous = volumesAreContiguous;
+        _listener = listener;
+    }
+
+    public void add(File pageFile, PageResult result) {
+        String volumeId;
+        String collectionId;
+
+        if (_volumePattern == null) {
+            File volumeDir = pageFile.getAbsoluteFile().getParentFile();
+            File collectionDir = volumeDir.getParentFile();
+            volumeId = volumeDir.getPath();
+            collectionId = (collectionDir != null) ? collectionDir.getPath() : DEFAULT_COLLECTION;
+        } else {
+            Matcher matcher = _volumePattern.matcher(pageFile.getPath());
+            if (!matcher.find()) {
+                if (!_warnedUnmatched) {
+                    log.warn("The volume pattern doesn't match {}; pages not matching it are not aggregated", pageFile);
+                    _warnedUnmatched = true;
+                }
+                return;
+            }
+
+            volumeId = group(matcher, "volume");
+            if (volumeId == null)
+                volumeId = matcher.group(matcher.groupCount() > 0 ? 1 : 0);
+
+            collectionId = group(matcher, "collection");
+            if (collectionId == null)
+                collectionId = DEFAULT_COLLECTION;
+        }
+
+        AggregateStats volume = _volumes.get(volumeId);
+        if (volume == null) {
+            if (_volumesAreContiguous)
+                completeVolumes();
+
+            volume = new AggregateStats(volumeId);
+            _volumes.put(volumeId, volume);
+            _volumeCollections.put(volumeId, collectionId);
+        }
+
+        volume.add(result);
+    }
+
+    // Reports the volumes not yet reported, and then all the collections
+    public void finish() {
+        completeVolumes();
+
+        for (AggregateStats collection : _collections.values())
+            _listener.collectionCompleted(collection);
+
+        _collections.clear();
+    }
+
+    private void completeVolumes() {
+        for (AggregateStats volume : _volumes.values()) {
+            String collectionId = _volumeCollections.get(volume.id());
+            AggregateStats collection = _collections.get(collectionId);
+            if (collection == null) {
+                collection = new AggregateStats(collectionId);
+                _collections.put(collectionId, collection);
+            }
+
+            collection.merge(volume);
+            _listener.volumeCompleted(collectionId, volume);
+        }
+
+        _volumes.clear();
+        _volumeCollections.clear();
+    }
+
+    // The value of the named group, or null if the pattern has no such group (or it didn't match)
+    private static String group(Matcher matcher, String name) {
+        try {
+            return matcher.group(name);
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
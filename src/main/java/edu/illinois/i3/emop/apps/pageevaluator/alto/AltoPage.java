@@ -0,0 +1,109 @@
+package edu.illinois.i3.emop.apps.pageevaluator.alto;
+
+import com.google.common.collect.ImmutableList;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRPage;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRTokenVisitor;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRParserContext;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+
+public class AltoPage implements OCRPage<AltoToken> {
+
+    private final String _pageId;
+    private final ImmutableList<AltoToken> _tokens;
+
+    private AltoPage(String pageId, ImmutableList<AltoToken> tokens) {
+        _pageId = pageId;
+        _tokens = tokens;
+    }
+
+    public static AltoPage parse(Reader pageReader) throws PageParserException {
+        return parse(pageReader, COMBINE_HYPHENATED_EOL_TOKENS);
+    }
+
+    public static AltoPage parse(Reader pageReader, int parseOptions) throws PageParserException {
+        final ImmutableList.Builder<AltoToken> tokens = ImmutableList.builder();
+        AltoTokenReader tokenReader = read(pageReader, parseOptions, new OCRTokenVisitor<AltoToken>() {
+            @Override
+            public void visitToken(AltoToken token) {
+                tokens.add(token);
+            }
+        });
+
+        return new AltoPage(tokenReader.pageId(), tokens.build());
+    }
+
+    // Parses the page, passing each token to the visitor as soon as it is parsed instead of keeping it
+    public static void parse(Reader pageReader, int parseOptions, OCRTokenVisitor<? super AltoToken> visitor)
+            throws PageParserException {
+        read(pageReader, parseOptions, visitor);
+    }
+
+    private static AltoTokenReader read(Reader pageReader, int parseOptions, OCRTokenVisitor<? super AltoToken> visitor)
+            throws PageParserException {
+        XMLStreamReader xmlReader = null;
+        try {
+            xmlReader = HOCRParserContext.get().createReader(pageReader);
+
+            AltoTokenReader tokenReader = new AltoTokenReader(xmlReader);
+            if (tokenReader.pageId() == null)
+                throw new PageParserException("No Page found");
+
+            if ((parseOptions & COMBINE_HYPHENATED_EOL_TOKENS) > 0) {
+                // combine hyphenated words at end-of-line
+                while (tokenReader.hasNext()) {
+                    AltoToken token = tokenReader.next();
+
+                    // join end of line hyphenated words (marked by a HYP, by SUBS_TYPE or by a trailing hyphen)
+                    if (token.isLastTokenOnLine() && token.hyphen() != null && tokenReader.hasNext())
+                        token = new CombinedAltoToken(token, tokenReader.next());
+
+                    if (token.text().isEmpty())
+                        continue;
+
+                    visitor.visitToken(token);
+                }
+            } else {
+                while (tokenReader.hasNext())
+                    visitor.visitToken(tokenReader.next());
+            }
+
+            return tokenReader;
+        }
+        catch (PageParserException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new PageParserException(e);
+        }
+        finally {
+            // lets the parser context reuse the reader
+            if (xmlReader != null) {
+                try {
+                    xmlReader.close();
+                }
+                catch (XMLStreamException ignored) { }
+            }
+        }
+    }
+
+    public String pageId() {
+        return _pageId;
+    }
+
+    @Override
+    public ImmutableList<AltoToken> tokens() {
+        return _tokens;
+    }
+
+    @Override
+    public void visitTokens(OCRTokenVisitor<? super AltoToken> visitor) {
+        for (AltoToken token : _tokens)
+            visitor.visitToken(token);
+    }
+}
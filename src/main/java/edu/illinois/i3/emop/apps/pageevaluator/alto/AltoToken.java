@@ -0,0 +1,69 @@
+package edu.illinois.i3.emop.apps.pageevaluator.alto;
+
+import com.google.common.base.MoreObjects;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRToken;
+
+import java.util.Arrays;
+
+// An ALTO String. The hyphen of a word hyphenated at the end of its line (given by a HYP element after the String,
+// or included in its CONTENT) is part of the token text, as in hOCR.
+public class AltoToken implements OCRToken {
+    private final String _text;
+    private final String _id;
+    private final int[] _bbox;          // x0 y0 x1 y1 (from HPOS, VPOS, WIDTH and HEIGHT), or null if not available
+    private final float _confidence;    // WC, or NaN if not available
+    private final boolean _isLastTokenOnLine;
+    private final String _hyphen;       // the hyphen ending the text, or null if the word isn't hyphenated
+
+    public AltoToken(String text, String id, int[] bbox, float confidence, boolean isLastTokenOnLine, String hyphen) {
+        _text = text;
+        _id = id;
+        _bbox = bbox;
+        _confidence = confidence;
+        _isLastTokenOnLine = isLastTokenOnLine;
+        _hyphen = hyphen;
+    }
+
+    protected AltoToken(String text) {
+        this(text, null, null, Float.NaN, false, null);
+    }
+
+    public String id() {
+        return _id;
+    }
+
+    public int[] bbox() {
+        return (_bbox != null) ? _bbox.clone() : null;
+    }
+
+    public float confidence() {
+        return _confidence;
+    }
+
+    @Override
+    public String text() {
+        return _text;
+    }
+
+    public boolean isLastTokenOnLine() {
+        return _isLastTokenOnLine;
+    }
+
+    // The hyphen ending the text of a word hyphenated at the end of its line (which can be empty, for the first part
+    // of a word marked as such by SUBS_TYPE), or null if the word isn't hyphenated
+    public String hyphen() {
+        return _hyphen;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("text", _text)
+                .add("id", _id)
+                .add("bbox", (_bbox != null) ? Arrays.toString(_bbox) : null)
+                .add("confidence", _confidence)
+                .add("isLastTokenOnLine", _isLastTokenOnLine)
+                .add("hyphen", _hyphen)
+                .toString();
+    }
+}
@@ -0,0 +1,165 @@
+package edu.illinois.i3.emop.apps.pageevaluator.alto;
+
+import com.google.common.collect.AbstractIterator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+// Single-pass reader that produces the Strings of the first Page of an ALTO document, without building a DOM of the
+// document. As in HOCRTokenReader, the most recent String is held back until the next String or the end of its
+// TextLine, since that's when it's known whether it's the last one on its line (and whether a HYP follows it).
+public class AltoTokenReader extends AbstractIterator<AltoToken> {
+    private final XMLStreamReader _reader;
+
+    private String _pageId;
+    private boolean _inPage;
+    private boolean _pageDone;
+    private boolean _inLine;
+
+    // The previous String on the current line, not yet known to be (or not be) the last one
+    private boolean _hasPendingString;
+    private String _pendingText;
+    private String _pendingId;
+    private int[] _pendingBBox;
+    private float _pendingConfidence;
+    private String _pendingHyphen;
+
+    public AltoTokenReader(XMLStreamReader reader) throws XMLStreamException {
+        _reader = reader;
+
+        // position the reader at the start of the first page
+        while (!_inPage && _reader.hasNext())
+            if (_reader.next() == START_ELEMENT && "Page".equals(localName())) {
+                _inPage = true;
+                _pageId = attribute("ID", "");
+            }
+    }
+
+    // null if the document has no Page
+    public String pageId() {
+        return _pageId;
+    }
+
+    @Override
+    protected AltoToken computeNext() {
+        try {
+            while (_inPage && !_pageDone && _reader.hasNext()) {
+                AltoToken token = null;
+                switch (_reader.next()) {
+                    case START_ELEMENT:
+                        token = startElement();
+                        break;
+
+                    case END_ELEMENT:
+                        token = endElement();
+                        break;
+                }
+
+                if (token != null)
+                    return token;
+            }
+
+            return endOfData();
+        }
+        catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private AltoToken startElement() {
+        String name = localName();
+
+        if ("TextLine".equals(name))
+            _inLine = true;
+
+        else if (_inLine && "String".equals(name)) {
+            AltoToken token = _hasPendingString ? createPendingToken(false) : null;
+
+            _hasPendingString = true;
+            _pendingText = attribute("CONTENT", "");
+            _pendingId = attribute("ID", null);
+            _pendingBBox = bbox();
+            _pendingConfidence = floatAttribute("WC");
+            _pendingHyphen = "HypPart1".equals(_reader.getAttributeValue(null, "SUBS_TYPE")) ? "" : null;
+
+            return token;
+        }
+
+        else if (_inLine && "HYP".equals(name) && _hasPendingString) {
+            String hyphen = attribute("CONTENT", "-");
+            if (!_pendingText.endsWith(hyphen))
+                _pendingText += hyphen;
+            _pendingHyphen = hyphen;
+        }
+
+        return null;
+    }
+
+    private AltoToken endElement() {
+        String name = localName();
+
+        if ("TextLine".equals(name)) {
+            _inLine = false;
+            if (_hasPendingString) {
+                // a word that is hyphenated at the end of its line without a HYP (the first part of a word marked
+                // by SUBS_TYPE can also keep its hyphen in its CONTENT, which must be dropped when it's joined)
+                if ((_pendingHyphen == null || _pendingHyphen.isEmpty()) && _pendingText.endsWith("-"))
+                    _pendingHyphen = "-";
+
+                return createPendingToken(true);
+            }
+        }
+
+        else if ("Page".equals(name))
+            // we only consider the first page
+            _pageDone = true;
+
+        return null;
+    }
+
+    private AltoToken createPendingToken(boolean isLastTokenOnLine) {
+        _hasPendingString = false;
+        return new AltoToken(_pendingText, _pendingId, _pendingBBox, _pendingConfidence, isLastTokenOnLine,
+                isLastTokenOnLine ? _pendingHyphen : null);
+    }
+
+    // The element name, without a namespace prefix (the parser isn't namespace-aware)
+    private String localName() {
+        String name = _reader.getLocalName();
+        int colon = name.indexOf(':');
+        return (colon >= 0) ? name.substring(colon + 1) : name;
+    }
+
+    private String attribute(String name, String defaultValue) {
+        String value = _reader.getAttributeValue(null, name);
+        return (value != null) ? value : defaultValue;
+    }
+
+    // NaN if the attribute is missing or isn't a number
+    private float floatAttribute(String name) {
+        String value = _reader.getAttributeValue(null, name);
+        if (value == null)
+            return Float.NaN;
+
+        try {
+            return Float.parseFloat(value);
+        }
+        catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    private int[] bbox() {
+        float x = floatAttribute("HPOS");
+        float y = floatAttribute("VPOS");
+        float width = floatAttribute("WIDTH");
+        float height = floatAttribute("HEIGHT");
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(width) || Float.isNaN(height))
+            return null;
+
+        return new int[] { Math.round(x), Math.round(y), Math.round(x + width), Math.round(y + height) };
+    }
+}
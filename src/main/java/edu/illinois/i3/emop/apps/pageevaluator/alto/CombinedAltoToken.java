@@ -0,0 +1,33 @@
+package edu.illinois.i3.emop.apps.pageevaluator.alto;
+
+import com.google.common.base.MoreObjects;
+
+public class CombinedAltoToken extends AltoToken {
+    private final AltoToken _firstToken;
+    private final AltoToken _secondToken;
+
+    // The first token must be hyphenated
+    public CombinedAltoToken(AltoToken firstToken, AltoToken secondToken) {
+        super(combineTokenText(firstToken, secondToken.text()));
+
+        _firstToken = firstToken;
+        _secondToken = secondToken;
+    }
+
+    public AltoToken firstToken() { return _firstToken; }
+    public AltoToken secondToken() { return _secondToken; }
+
+    private static String combineTokenText(AltoToken firstToken, String text2) {
+        String text1 = firstToken.text();
+        return text1.substring(0, text1.length() - firstToken.hyphen().length()) + text2;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("text", text())
+                .add("firstToken", firstToken())
+                .add("secondToken", secondToken())
+                .toString();
+    }
+}
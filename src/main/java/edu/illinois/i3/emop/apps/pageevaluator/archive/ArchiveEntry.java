@@ -0,0 +1,40 @@
+package edu.illinois.i3.emop.apps.pageevaluator.archive;
+
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+// A page file read from an archive, held in memory. Its path is the archive path followed by "!" and the entry
+// name (e.g. "volumes/vol1.zip!/vol1/page1.html"), so that it's reported (and grouped into volumes) like a page
+// file in a directory named after the archive; it doesn't exist on disk, so its content must be read with content().
+public class ArchiveEntry extends InputFile {
+
+    public static final String SEPARATOR = "!";
+
+    private final File _archive;
+    private final String _entryName;
+    private final byte[] _content;
+
+    public ArchiveEntry(File archive, String entryName, byte[] content) {
+        super(archive.getPath() + SEPARATOR + File.separator + entryName.replace('/', File.separatorChar),
+                InputFile.relativePath(archive) + SEPARATOR + File.separator +
+                        entryName.replace('/', File.separatorChar));
+
+        _archive = archive;
+        _entryName = entryName;
+        _content = content;
+    }
+
+    public File archive() {
+        return _archive;
+    }
+
+    public String entryName() {
+        return _entryName;
+    }
+
+    public ByteBuffer content() {
+        return ByteBuffer.wrap(_content);
+    }
+}
@@ -0,0 +1,169 @@
+package edu.illinois.i3.emop.apps.pageevaluator.archive;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Reads the page files in zip, tar and gzipped tar archives. The archives are read sequentially, as streams (so
+// gzipped tar archives don't have to be decompressed first), and each entry is read in memory when it's reached,
+// so only the entries waiting to be evaluated are ever held in memory, and nothing is extracted to disk.
+// An archive that can't be read (or not to its end) doesn't stop the iteration: its entries are followed by an
+// UnreadableArchive, and its stream is closed.
+public abstract class ArchiveReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        ZIP, TAR, TAR_GZ
+    }
+
+    // The format of the archive, based on its name, or null if it's not an archive
+    public static Format format(File file) {
+        String name = file.getName().toLowerCase();
+
+        if (name.endsWith(".zip"))
+            return Format.ZIP;
+
+        if (name.endsWith(".tar"))
+            return Format.TAR;
+
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz"))
+            return Format.TAR_GZ;
+
+        return null;
+    }
+
+    public static boolean isArchive(File file) {
+        return format(file) != null;
+    }
+
+    // The file entries of the archive (other than hidden files) matching the entry filter, if not null. The filter
+    // is a glob pattern matched against the entry names, or only against their file names if it has no '/' in it
+    // (so "*.html" selects the .html files in any directory of the archive).
+    public static Iterable<File> entries(final File archive, String entryFilter) {
+        final PathMatcher matcher = (entryFilter != null) ?
+                FileSystems.getDefault().getPathMatcher("glob:" + entryFilter) : null;
+        final boolean matchFileName = (entryFilter != null) && entryFilter.indexOf('/') < 0;
+
+        return new Iterable<File>() {
+            @Override
+            public Iterator<File> iterator() {
+                try {
+                    return new EntryIterator(archive, matcher, matchFileName);
+                }
+                catch (IOException e) {
+                    return Iterators.<File>singletonIterator(new UnreadableArchive(archive, e));
+                }
+            }
+        };
+    }
+
+    private static class EntryIterator extends AbstractIterator<File> {
+        private final File _archive;
+        private final PathMatcher _matcher;
+        private final boolean _matchFileName;
+        private final ZipInputStream _zipStream;
+        private final TarInputStream _tarStream;
+        private boolean _failed;
+
+        private EntryIterator(File archive, PathMatcher matcher, boolean matchFileName) throws IOException {
+            _archive = archive;
+            _matcher = matcher;
+            _matchFileName = matchFileName;
+
+            InputStream stream = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE);
+            try {
+                switch (format(archive)) {
+                    case ZIP:
+                        _zipStream = new ZipInputStream(stream);
+                        _tarStream = null;
+                        break;
+
+                    case TAR_GZ:
+                        stream = new GZIPInputStream(stream, BUFFER_SIZE);
+                        // fall through
+
+                    case TAR:
+                        _zipStream = null;
+                        _tarStream = new TarInputStream(stream);
+                        break;
+
+                    default:
+                        throw new RuntimeException("Not an archive: " + archive);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                stream.close();
+                throw e;
+            }
+        }
+
+        @Override
+        protected File computeNext() {
+            if (_failed)
+                return endOfData();
+
+            try {
+                String name;
+                while ((name = nextFileEntry()) != null) {
+                    if (accept(name))
+                        return new ArchiveEntry(_archive, name, ByteStreams.toByteArray(stream()));
+                }
+
+                stream().close();
+                return endOfData();
+            }
+            catch (IOException | RuntimeException e) {
+                // ZipInputStream throws IllegalArgumentException for malformed entry names
+                _failed = true;
+                Closeables.closeQuietly(stream());
+
+                return new UnreadableArchive(_archive, (e instanceof IOException) ? (IOException) e :
+                        new IOException(e.getMessage(), e));
+            }
+        }
+
+        // Moves to the next entry that is a file, and returns its name (or null if there are no more entries)
+        private String nextFileEntry() throws IOException {
+            if (_zipStream != null) {
+                ZipEntry entry;
+                while ((entry = _zipStream.getNextEntry()) != null)
+                    if (!entry.isDirectory())
+                        return entry.getName();
+            } else {
+                TarInputStream.Entry entry;
+                while ((entry = _tarStream.getNextEntry()) != null)
+                    if (entry.isFile())
+                        return entry.getName();
+            }
+
+            return null;
+        }
+
+        private InputStream stream() {
+            return (_zipStream != null) ? _zipStream : _tarStream;
+        }
+
+        private boolean accept(String name) {
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            if (fileName.startsWith("."))
+                return false;
+
+            return _matcher == null || _matcher.matches(Paths.get(_matchFileName ? fileName : name));
+        }
+    }
+}
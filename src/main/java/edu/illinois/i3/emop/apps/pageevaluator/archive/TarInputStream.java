@@ -0,0 +1,300 @@
+package edu.illinois.i3.emop.apps.pageevaluator.archive;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Reads the entries of a tar archive (in the ustar, GNU or pax formats) one after the other, like ZipInputStream:
+// after getNextEntry, reading the stream returns the content of that entry only
+public class TarInputStream extends FilterInputStream {
+
+    private static final int BLOCK_SIZE = 512;
+
+    // header field offsets and lengths
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LENGTH = 100;
+    private static final int SIZE_OFFSET = 124;
+    private static final int SIZE_LENGTH = 12;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+    private static final int TYPE_OFFSET = 156;
+    private static final int MAGIC_OFFSET = 257;
+    private static final int PREFIX_OFFSET = 345;
+    private static final int PREFIX_LENGTH = 155;
+
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_OLD_FILE = 0;
+    private static final byte TYPE_CONTIGUOUS_FILE = '7';
+    private static final byte TYPE_GNU_LONG_NAME = 'L';
+    private static final byte TYPE_PAX_HEADER = 'x';
+
+    // the largest long name or pax extended header accepted
+    private static final long MAX_METADATA_SIZE = 1024 * 1024;
+
+    public static class Entry {
+        private final String _name;
+        private final long _size;
+        private final boolean _isFile;
+
+        private Entry(String name, long size, boolean isFile) {
+            _name = name;
+            _size = size;
+            _isFile = isFile;
+        }
+
+        public String getName() {
+            return _name;
+        }
+
+        public long getSize() {
+            return _size;
+        }
+
+        // false for directories, links and special files
+        public boolean isFile() {
+            return _isFile;
+        }
+    }
+
+    private final byte[] _header = new byte[BLOCK_SIZE];
+    private final byte[] _skipBuffer = new byte[16 * BLOCK_SIZE];
+    private long _remaining;
+    private long _padding;
+    private boolean _finished;
+
+    public TarInputStream(InputStream in) {
+        super(in);
+    }
+
+    // Moves to the next entry (skipping whatever is left of the current one), or returns null at the end of the archive
+    public Entry getNextEntry() throws IOException {
+        String longName = null;
+
+        while (!_finished) {
+            skipFully(_remaining + _padding);
+            _remaining = 0;
+            _padding = 0;
+
+            if (!readHeader()) {
+                _finished = true;
+                break;
+            }
+
+            long size = parseSize();
+            byte type = _header[TYPE_OFFSET];
+            _remaining = size;
+            _padding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+
+            // the name of the next entry, when it's too long for its header
+            if (type == TYPE_GNU_LONG_NAME) {
+                longName = parseString(readMetadata(size), 0, (int) size);
+                continue;
+            }
+
+            if (type == TYPE_PAX_HEADER) {
+                String path = parsePaxPath(readMetadata(size));
+                if (path != null)
+                    longName = path;
+                continue;
+            }
+
+            String name = longName;
+            if (name == null) {
+                name = parseString(_header, NAME_OFFSET, NAME_LENGTH);
+                String prefix = isUstar() ? parseString(_header, PREFIX_OFFSET, PREFIX_LENGTH) : "";
+                if (!prefix.isEmpty())
+                    name = prefix + "/" + name;
+            }
+
+            boolean isFile = (type == TYPE_FILE || type == TYPE_OLD_FILE || type == TYPE_CONTIGUOUS_FILE)
+                    && !name.endsWith("/");
+
+            return new Entry(name, size, isFile);
+        }
+
+        return null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (_remaining <= 0)
+            return -1;
+
+        int b = in.read();
+        if (b < 0)
+            throw new EOFException("Truncated tar archive");
+
+        _remaining--;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (_remaining <= 0)
+            return -1;
+
+        int n = in.read(b, off, (int) Math.min(len, _remaining));
+        if (n < 0)
+            throw new EOFException("Truncated tar archive");
+
+        _remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, _remaining));
+        skipFully(skipped);
+        _remaining -= skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(in.available(), _remaining);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    // Skips the bytes by reading them: skipping them in the underlying stream doesn't detect truncated archives (e.g.
+    // FileInputStream skips past the end of the file)
+    private void skipFully(long n) throws IOException {
+        while (n > 0) {
+            int read = in.read(_skipBuffer, 0, (int) Math.min(n, _skipBuffer.length));
+            if (read < 0)
+                throw new EOFException("Truncated tar archive");
+
+            n -= read;
+        }
+    }
+
+    // Reads the next header block; returns false at the end of the archive (marked by a block of zeros)
+    private boolean readHeader() throws IOException {
+        int n = ByteStreams.read(in, _header, 0, BLOCK_SIZE);
+        if (n == 0)
+            return false;
+        if (n < BLOCK_SIZE)
+            throw new EOFException("Truncated tar archive");
+
+        long sum = 0;
+        boolean empty = true;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            boolean inChecksum = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH;
+            sum += inChecksum ? ' ' : (_header[i] & 0xff);
+            empty &= _header[i] == 0;
+        }
+
+        if (empty)
+            return false;
+
+        if (sum != parseOctal(CHECKSUM_OFFSET, CHECKSUM_LENGTH))
+            throw new IOException("Invalid tar header checksum");
+
+        return true;
+    }
+
+    private byte[] readMetadata(long size) throws IOException {
+        if (size > MAX_METADATA_SIZE)
+            throw new IOException("Invalid tar extended header size: " + size);
+
+        byte[] data = new byte[(int) size];
+        ByteStreams.readFully(this, data);
+
+        return data;
+    }
+
+    private boolean isUstar() {
+        return parseString(_header, MAGIC_OFFSET, 5).equals("ustar");
+    }
+
+    // Sizes are octal numbers, or big-endian binary numbers (flagged by the high bit) when they don't fit
+    private long parseSize() throws IOException {
+        if ((_header[SIZE_OFFSET] & 0x80) != 0) {
+            long size = _header[SIZE_OFFSET] & 0x7f;
+            for (int i = 1; i < SIZE_LENGTH; i++) {
+                if ((size >>> 55) != 0)
+                    throw new IOException("Invalid tar entry size");
+
+                size = (size << 8) | (_header[SIZE_OFFSET + i] & 0xff);
+            }
+
+            return size;
+        }
+
+        return parseOctal(SIZE_OFFSET, SIZE_LENGTH);
+    }
+
+    private long parseOctal(int offset, int length) throws IOException {
+        long value = 0;
+        int end = offset + length;
+        int i = offset;
+
+        while (i < end && _header[i] == ' ')
+            i++;
+
+        for (; i < end && _header[i] != 0 && _header[i] != ' '; i++) {
+            int digit = _header[i] - '0';
+            if (digit < 0 || digit > 7)
+                throw new IOException("Invalid tar header");
+
+            value = (value << 3) | digit;
+        }
+
+        return value;
+    }
+
+    private static String parseString(byte[] data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data[end] != 0)
+            end++;
+
+        return new String(data, offset, end - offset, Charsets.UTF_8);
+    }
+
+    // The path in a pax extended header, made of "<length> <key>=<value>\n" records, or null if there's none
+    private static String parsePaxPath(byte[] data) throws IOException {
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ')
+                space++;
+
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, Charsets.US_ASCII));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Invalid tar extended header");
+            }
+
+            // the length covers the length digits, the space, the record and its newline
+            if (space == data.length || length < space - position + 2 || length > data.length - position ||
+                    data[position + length - 1] != '\n')
+                throw new IOException("Invalid tar extended header");
+
+            String record = new String(data, space + 1, position + length - space - 2, Charsets.UTF_8);
+            if (record.startsWith("path="))
+                return record.substring("path=".length());
+
+            position += length;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package edu.illinois.i3.emop.apps.pageevaluator.archive;
+
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+
+import java.io.File;
+import java.io.IOException;
+
+// Stands for (the rest of) an archive that can't be read, e.g. because it's truncated or corrupt. It's listed after
+// the entries read before the error, so that the archive is reported as failed like a page that can't be read
+// (reading it, with PageInput, throws the error), and the pages of the other inputs are still evaluated.
+public class UnreadableArchive extends InputFile {
+
+    private final IOException _error;
+
+    public UnreadableArchive(File archive, IOException error) {
+        super(archive.getPath(), InputFile.relativePath(archive));
+
+        _error = error;
+    }
+
+    public IOException error() {
+        return _error;
+    }
+}
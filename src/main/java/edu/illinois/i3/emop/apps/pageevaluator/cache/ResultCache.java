@@ -0,0 +1,483 @@
+package edu.illinois.i3.emop.apps.pageevaluator.cache;
+
+import com.google.common.collect.Maps;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+// On-disk cache of page stats, keyed by a 128-bit hash of the scoring configuration and the page content, so that
+// pages that haven't changed since a previous run don't need to be parsed again.
+//
+// The cache directory holds numbered segment files, each laid out as
+//     int magic, int version,
+//     records: byte 1, long key[0], long key[1], varint stats[DefaultStats.values().length], varint numCorrectTokens + 1
+//              (0 if the page wasn't spell checked)
+//     byte 0 (or the end of the file)
+// Records are only ever appended, to the newest segment (which is memory-mapped, at its full size, while it's being
+// written); when the segments grow larger than the maximum size of the cache, the oldest one is deleted. Only the
+// location of every record is kept in memory, in an open addressing hash table indexed by the first half of the key.
+// The cache is used by one process at a time, which holds a lock on the lock file of the directory while it's open.
+public class ResultCache implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultCache.class);
+
+    public static final int MAGIC = 0x50455243;  // "PERC"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 + 16 + (DefaultStats.values().length + 1) * 5;
+    private static final int MAX_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String LOCK_FILE_NAME = "cache.lock";
+    private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("results-(\\d{6})\\.seg");
+    private static final DefaultStats[] STATS = DefaultStats.values();
+
+    private final File _directory;
+    private final long _maxSize;
+    private final int _segmentSize;
+    private final RandomAccessFile _lockFile;
+    private final FileLock _directoryLock;
+
+    // the segments by number, oldest first; the last one is the one being written
+    private final TreeMap<Integer, Segment> _segments = Maps.newTreeMap();
+    private long _size;
+
+    // record locations (segment number << 32 | offset), by key[0]
+    private long[] _keys = new long[1024];
+    private long[] _locations = new long[1024];
+    private int _entryCount;
+
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+
+    public ResultCache(File directory, long maxSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create the cache directory " + directory);
+
+        _directory = directory;
+        _maxSize = maxSize;
+        _segmentSize = (int) Math.max(HEADER_SIZE + MAX_RECORD_SIZE + 1, Math.min(MAX_SEGMENT_SIZE, maxSize / 4));
+
+        _lockFile = new RandomAccessFile(new File(directory, LOCK_FILE_NAME), "rw");
+        FileLock directoryLock;
+        try {
+            directoryLock = _lockFile.getChannel().tryLock();
+        }
+        catch (OverlappingFileLockException e) {
+            directoryLock = null;
+        }
+        if (directoryLock == null) {
+            _lockFile.close();
+            throw new IOException("The cache directory " + directory + " is in use by another process");
+        }
+        _directoryLock = directoryLock;
+
+        try {
+            open();
+        }
+        catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        log.debug("Opened result cache {} with {} pages in {} segments", directory, _entryCount, _segments.size());
+    }
+
+    private void open() throws IOException {
+        File[] files = _directory.listFiles();
+        for (File file : (files != null) ? files : new File[0]) {
+            Matcher matcher = SEGMENT_FILE_NAME.matcher(file.getName());
+            if (matcher.matches())
+                loadSegment(Integer.parseInt(matcher.group(1)), file);
+        }
+
+        // keep appending to the last segment, unless it's full
+        if (!_segments.isEmpty() && _segments.lastEntry().getValue()._length + MAX_RECORD_SIZE + 1 <= _segmentSize)
+            resumeSegment(_segments.lastEntry().getValue());
+        else
+            startSegment();
+
+        evict();
+    }
+
+    // The key of a page: the hash of the scoring configuration (everything that the stats of a page depend on,
+    // other than the page itself) and of the page content
+    public static HashCode key(String configuration, ByteBuffer page) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putUnencodedChars(configuration);
+
+        // read the page without moving the position of the buffer
+        ByteBuffer content = page.duplicate();
+        if (content.hasArray()) {
+            hasher.putBytes(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            byte[] chunk = new byte[8192];
+            while (content.hasRemaining()) {
+                int n = Math.min(chunk.length, content.remaining());
+                content.get(chunk, 0, n);
+                hasher.putBytes(chunk, 0, n);
+            }
+        }
+
+        return hasher.hash();
+    }
+
+    // The stats of the page with the given key, or null if they're not in the cache
+    public OCRPageStats get(HashCode key) {
+        ByteBuffer keyBuffer = ByteBuffer.wrap(key.asBytes());
+        long key0 = keyBuffer.getLong();
+        long key1 = keyBuffer.getLong();
+
+        _lock.readLock().lock();
+        try {
+            int slot = find(indexKey(key0));
+            if (_keys[slot] == 0)
+                return null;
+
+            long location = _locations[slot];
+            Segment segment = _segments.get((int) (location >>> 32));
+            if (segment == null)
+                return null;  // evicted
+
+            ByteBuffer record = segment._buffer.duplicate();
+            record.position((int) location + 1);
+            if (record.getLong() != key0 || record.getLong() != key1)
+                return null;
+
+            OCRPageStats pageStats = new OCRPageStats();
+            for (DefaultStats stat : STATS)
+                pageStats.set(stat, readVarint(record));
+
+            int numCorrectTokens = readVarint(record);
+            if (numCorrectTokens > 0)
+                pageStats.put(NUM_CORRECT_TOKENS, numCorrectTokens - 1);
+
+            return pageStats;
+        }
+        finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    public void put(HashCode key, OCRPageStats pageStats) throws IOException {
+        ByteBuffer keyBuffer = ByteBuffer.wrap(key.asBytes());
+        long key0 = keyBuffer.getLong();
+        long key1 = keyBuffer.getLong();
+
+        _lock.writeLock().lock();
+        try {
+            Segment segment = _segments.lastEntry().getValue();
+            if (segment._length + MAX_RECORD_SIZE + 1 > _segmentSize) {
+                segment.seal();
+                startSegment();
+                evict();
+                segment = _segments.lastEntry().getValue();
+            }
+
+            ByteBuffer buffer = segment._buffer;
+            int offset = segment._length;
+            buffer.position(offset + 1);
+            buffer.putLong(key0).putLong(key1);
+            for (DefaultStats stat : STATS)
+                writeVarint(buffer, pageStats.get(stat));
+
+            Integer numCorrectTokens = pageStats.getInt(NUM_CORRECT_TOKENS);
+            writeVarint(buffer, (numCorrectTokens != null) ? numCorrectTokens + 1 : 0);
+
+            // the record only becomes valid (if the process is killed while writing it) once it's complete
+            buffer.put(offset, (byte) 1);
+
+            _size += buffer.position() - offset;
+            segment._length = buffer.position();
+            index(key0, ((long) segment._number << 32) | offset);
+        }
+        finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        _lock.readLock().lock();
+        try {
+            return _entryCount;
+        }
+        finally {
+            _lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _lock.writeLock().lock();
+        try {
+            if (!_directoryLock.isValid())
+                return;  // closed already
+
+            try {
+                if (!_segments.isEmpty())
+                    _segments.lastEntry().getValue().seal();
+            }
+            finally {
+                // pages are no longer found once the cache is closed
+                for (Segment segment : _segments.values())
+                    unmap(segment._buffer);
+                _segments.clear();
+
+                try {
+                    _directoryLock.release();
+                }
+                finally {
+                    _lockFile.close();
+                }
+            }
+        }
+        finally {
+            _lock.writeLock().unlock();
+        }
+    }
+
+    private void loadSegment(int number, File file) throws IOException {
+        Segment segment;
+        try (RandomAccessFile segmentFile = new RandomAccessFile(file, "r")) {
+            long length = segmentFile.length();
+            MappedByteBuffer buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (length < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                log.warn("Ignoring invalid cache segment {}", file);
+                unmap(buffer);
+                return;
+            }
+
+            segment = new Segment(number, file, buffer);
+        }
+
+        _segments.put(number, segment);
+
+        // index the records; a segment that wasn't closed properly ends with a partial record or zeros
+        ByteBuffer buffer = segment._buffer;
+        buffer.position(HEADER_SIZE);
+        int recordSize = 1 + 16;
+        while (buffer.remaining() >= recordSize && buffer.get(buffer.position()) == 1) {
+            int offset = buffer.position();
+            try {
+                buffer.position(offset + 1);
+                long key0 = buffer.getLong();
+                buffer.getLong();
+                for (int i = 0; i <= STATS.length; i++)
+                    readVarint(buffer);
+
+                index(key0, ((long) number << 32) | offset);
+            }
+            catch (RuntimeException e) {
+                buffer.position(offset);
+                break;
+            }
+        }
+
+        segment._length = buffer.position();
+        _size += segment._length;
+    }
+
+    private void startSegment() throws IOException {
+        int number = _segments.isEmpty() ? 1 : _segments.lastKey() + 1;
+        File file = new File(_directory, String.format("results-%06d.seg", number));
+
+        try (RandomAccessFile segmentFile = new RandomAccessFile(file, "rw")) {
+            segmentFile.setLength(_segmentSize);
+            MappedByteBuffer buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, _segmentSize);
+            buffer.putInt(MAGIC).putInt(VERSION);
+
+            Segment segment = new Segment(number, file, buffer);
+            segment._length = HEADER_SIZE;
+            _size += HEADER_SIZE;
+            _segments.put(number, segment);
+        }
+    }
+
+    private void resumeSegment(Segment segment) throws IOException {
+        // the file can't be truncated while it's still mapped (read-only, when it was loaded)
+        unmap(segment._buffer);
+
+        try (RandomAccessFile segmentFile = new RandomAccessFile(segment._file, "rw")) {
+            // clear anything after the last complete record (left by a process killed while writing)
+            segmentFile.setLength(segment._length);
+            segmentFile.setLength(_segmentSize);
+            MappedByteBuffer buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, _segmentSize);
+
+            Segment resumedSegment = new Segment(segment._number, segment._file, buffer);
+            resumedSegment._length = segment._length;
+            _segments.put(segment._number, resumedSegment);
+        }
+    }
+
+    // Deletes the oldest segments (but never the one being written) until the cache fits in its maximum size
+    private void evict() {
+        while (_size > _maxSize && _segments.size() > 1) {
+            Segment segment = _segments.pollFirstEntry().getValue();
+            _size -= segment._length;
+            unmap(segment._buffer);
+
+            // the records of the segment are dropped from the index when it grows
+            if (!segment._file.delete())
+                log.warn("Cannot delete cache segment {}", segment._file);
+        }
+    }
+
+    private int find(long key0) {
+        int mask = _keys.length - 1;
+        int slot = (int) (key0 ^ (key0 >>> 32)) & mask;
+        while (_keys[slot] != 0 && _keys[slot] != key0)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    // 0 marks the empty slots of the index
+    private static long indexKey(long key0) {
+        return (key0 != 0) ? key0 : 1;
+    }
+
+    private void index(long key0, long location) {
+        key0 = indexKey(key0);
+        int slot = find(key0);
+        if (_keys[slot] == 0) {
+            if (_entryCount + 1 > _keys.length * 3 / 4) {
+                rehash();
+                slot = find(key0);
+            }
+
+            _keys[slot] = key0;
+            _entryCount++;
+        }
+
+        _locations[slot] = location;
+    }
+
+    private void rehash() {
+        long[] keys = _keys;
+        long[] locations = _locations;
+
+        int liveCount = 0;
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != 0 && _segments.containsKey((int) (locations[i] >>> 32)))
+                liveCount++;
+
+        int capacity = keys.length;
+        while (liveCount + 1 > capacity / 2)
+            capacity *= 2;
+
+        _keys = new long[capacity];
+        _locations = new long[capacity];
+        _entryCount = 0;
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != 0 && _segments.containsKey((int) (locations[i] >>> 32))) {
+                int slot = find(keys[i]);
+                _keys[slot] = keys[i];
+                _locations[slot] = locations[i];
+                _entryCount++;
+            }
+    }
+
+    private static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+
+        throw new IllegalStateException("Corrupt varint");
+    }
+
+    // Releases the mapping of the buffer now, rather than whenever the buffer is garbage collected (until then,
+    // the file can't be truncated or deleted on some platforms, and truncating it can crash the readers of the
+    // mapping on others); the buffer must not be used afterwards, which the lock of the cache guarantees
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null)
+            return;
+
+        try {
+            try {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field unsafe = unsafeClass.getDeclaredField("theUnsafe");
+                unsafe.setAccessible(true);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafe.get(null), buffer);
+            }
+            catch (NoSuchMethodException e) {
+                // Java 7 and 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null)
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // the mapping is released when the buffer is garbage collected
+            log.debug("Cannot unmap cache segment", e);
+        }
+    }
+
+    private static class Segment {
+        private final int _number;
+        private final File _file;
+        private MappedByteBuffer _buffer;
+        private int _length;
+        private boolean _sealed;
+
+        private Segment(int number, File file, MappedByteBuffer buffer) {
+            _number = number;
+            _file = file;
+            _buffer = buffer;
+        }
+
+        // Trims the segment file (allocated at its full size when it was started) to the records written, and maps
+        // what's left of it read-only
+        private void seal() throws IOException {
+            if (_sealed || _buffer.isReadOnly())
+                return;
+
+            _sealed = true;
+            _buffer.force();
+            unmap(_buffer);
+            _buffer = null;
+
+            try (RandomAccessFile segmentFile = new RandomAccessFile(_file, "rw")) {
+                if (segmentFile.length() > _length)
+                    segmentFile.setLength(_length);
+
+                _buffer = segmentFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, _length);
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package edu.illinois.i3.emop.apps.pageevaluator.dictionary;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// An immutable dictionary stored as a sorted table of UTF-8 encoded words, looked up by binary search.
+//
+// The table is kept in a single buffer (the dictionary image) laid out as
+//     int magic, int version, int wordCount, int dataLength,
+//     int[wordCount + 1] word offsets (relative to the start of the data),
+//     byte[dataLength] data (the words, in code point order, without separators)
+// so it takes a small fraction of the memory of a hash map of strings, and can be saved to a file and memory-mapped
+// back without parsing or sorting anything (processes mapping the same image share its pages in the page cache).
+public class CompactDictionary implements WordDictionary {
+
+    public static final int MAGIC = 0x50454457;  // "PEDW"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer _image;
+    private final int _wordCount;
+    private final int _dataStart;
+
+    // computed on first use, since it means hashing the whole image
+    private volatile String _fingerprint;
+
+    protected CompactDictionary(ByteBuffer image) throws IOException {
+        if (image.remaining() < HEADER_SIZE || image.getInt(0) != MAGIC)
+            throw new IOException("Not a dictionary image");
+
+        if (image.getInt(4) != VERSION)
+            throw new IOException("Unsupported dictionary image version: " + image.getInt(4));
+
+        _image = image;
+        _wordCount = image.getInt(8);
+        _dataStart = HEADER_SIZE + (_wordCount + 1) * 4;
+
+        if (_wordCount < 0 || image.limit() != _dataStart + image.getInt(12))
+            throw new IOException("Corrupt dictionary image");
+    }
+
+    // Builds the dictionary from a word list with one word per line (empty lines are ignored)
+    public static CompactDictionary build(Reader wordListReader) throws IOException {
+        BufferedReader reader = (wordListReader instanceof BufferedReader) ?
+                (BufferedReader) wordListReader : new BufferedReader(wordListReader);
+
+        List<String> words = Lists.newArrayList();
+        String line;
+        while ((line = reader.readLine()) != null)
+            if (!line.isEmpty())
+                words.add(line);
+
+        return build(words);
+    }
+
+    public static CompactDictionary build(List<String> words) throws IOException {
+        List<String> sortedWords = Lists.newArrayList(words);
+        Collections.sort(sortedWords, CODE_POINT_ORDER);
+
+        // encode the distinct words
+        List<byte[]> encodedWords = Lists.newArrayListWithCapacity(sortedWords.size());
+        String lastWord = null;
+        int dataLength = 0;
+        for (String word : sortedWords) {
+            if (word.equals(lastWord))
+                continue;
+
+            byte[] bytes = word.getBytes(Charsets.UTF_8);
+            encodedWords.add(bytes);
+            dataLength += bytes.length;
+            lastWord = word;
+        }
+
+        int wordCount = encodedWords.size();
+        ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + (wordCount + 1) * 4 + dataLength);
+        image.putInt(MAGIC).putInt(VERSION).putInt(wordCount).putInt(dataLength);
+
+        int offset = 0;
+        for (byte[] bytes : encodedWords) {
+            image.putInt(offset);
+            offset += bytes.length;
+        }
+        image.putInt(offset);
+
+        for (byte[] bytes : encodedWords)
+            image.put(bytes);
+
+        image.flip();
+
+        return new CompactDictionary(image);
+    }
+
+    // Reads a dictionary image (as written by write()) into memory
+    public static CompactDictionary read(InputStream imageStream) throws IOException {
+        DataInputStream in = new DataInputStream(imageStream);
+        int magic = in.readInt();
+        int version = in.readInt();
+        int wordCount = in.readInt();
+        int dataLength = in.readInt();
+
+        if (magic != MAGIC || wordCount < 0 || dataLength < 0)
+            throw new IOException("Not a dictionary image");
+
+        ByteBuffer image = ByteBuffer.allocate(HEADER_SIZE + (wordCount + 1) * 4 + dataLength);
+        image.putInt(magic).putInt(version).putInt(wordCount).putInt(dataLength);
+        in.readFully(image.array(), HEADER_SIZE, image.capacity() - HEADER_SIZE);
+
+        return new CompactDictionary(image);
+    }
+
+    // Maps a dictionary image file into memory; the file must not be modified while the dictionary is in use
+    public static CompactDictionary map(File imageFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(imageFile, "r")) {
+            long size = file.length();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("Dictionary image too large: " + imageFile);
+
+            // the mapping stays valid after the channel is closed
+            return new CompactDictionary(file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    // Loads either a dictionary image (which is memory-mapped) or a word list
+    public static CompactDictionary load(File dictionaryFile) throws IOException {
+        if (isImage(dictionaryFile))
+            return map(dictionaryFile);
+
+        try (Reader wordListReader = Files.newReader(dictionaryFile, Charsets.UTF_8)) {
+            return build(wordListReader);
+        }
+    }
+
+    public static boolean isImage(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return file.length() >= HEADER_SIZE && in.readInt() == MAGIC;
+        }
+    }
+
+    public void write(OutputStream out) throws IOException {
+        ByteBuffer image = _image.duplicate();
+        image.rewind();
+
+        if (image.hasArray())
+            out.write(image.array(), image.arrayOffset(), image.limit());
+        else {
+            byte[] buffer = new byte[64 * 1024];
+            while (image.hasRemaining()) {
+                int length = Math.min(buffer.length, image.remaining());
+                image.get(buffer, 0, length);
+                out.write(buffer, 0, length);
+            }
+        }
+
+        out.flush();
+    }
+
+    public void write(File imageFile) throws IOException {
+        try (OutputStream out = new FileOutputStream(imageFile)) {
+            write(out);
+        }
+    }
+
+    @Override
+    public String fingerprint() {
+        String fingerprint = _fingerprint;
+        if (fingerprint == null)
+            _fingerprint = fingerprint = computeFingerprint();
+
+        return fingerprint;
+    }
+
+    private String computeFingerprint() {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        ByteBuffer image = _image.duplicate();
+        image.rewind();
+
+        byte[] buffer = new byte[64 * 1024];
+        while (image.hasRemaining()) {
+            int length = Math.min(buffer.length, image.remaining());
+            image.get(buffer, 0, length);
+            hasher.putBytes(buffer, 0, length);
+        }
+
+        return hasher.hash().toString();
+    }
+
+    public int size() {
+        return _wordCount;
+    }
+
+    public boolean contains(CharSequence word) {
+        int low = 0;
+        int high = _wordCount - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTo(mid, word);
+
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isCorrect(CharSequence word) {
+        if (contains(word))
+            return true;
+
+        // only lowercase (and allocate a new string) if it makes a difference
+        for (int i = 0, length = word.length(); i < length; i++) {
+            char c = word.charAt(i);
+            if (Character.toLowerCase(c) != c || Character.isHighSurrogate(c))
+                return contains(word.toString().toLowerCase());
+        }
+
+        return false;
+    }
+
+    // Compares the index'th word in the table with the given word, in code point order
+    private int compareTo(int index, CharSequence word) {
+        int pos = _dataStart + _image.getInt(HEADER_SIZE + index * 4);
+        int end = _dataStart + _image.getInt(HEADER_SIZE + (index + 1) * 4);
+        int i = 0;
+        int length = word.length();
+
+        while (pos < end && i < length) {
+            // decode the next code point of the table word
+            int b = _image.get(pos++) & 0xFF;
+            int cp;
+            if (b < 0x80)
+                cp = b;
+            else if (b < 0xE0)
+                cp = ((b & 0x1F) << 6) | (_image.get(pos++) & 0x3F);
+            else if (b < 0xF0) {
+                cp = ((b & 0x0F) << 12) | ((_image.get(pos) & 0x3F) << 6) | (_image.get(pos + 1) & 0x3F);
+                pos += 2;
+            } else {
+                cp = ((b & 0x07) << 18) | ((_image.get(pos) & 0x3F) << 12) |
+                        ((_image.get(pos + 1) & 0x3F) << 6) | (_image.get(pos + 2) & 0x3F);
+                pos += 3;
+            }
+
+            int wordCp = Character.codePointAt(word, i);
+            i += Character.charCount(wordCp);
+
+            if (cp != wordCp)
+                return (cp < wordCp) ? -1 : 1;
+        }
+
+        if (pos < end) return 1;
+        if (i < length) return -1;
+        return 0;
+    }
+
+    private static final Comparator<String> CODE_POINT_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            int i1 = 0, i2 = 0;
+            int length1 = s1.length(), length2 = s2.length();
+
+            while (i1 < length1 && i2 < length2) {
+                int cp1 = s1.codePointAt(i1);
+                int cp2 = s2.codePointAt(i2);
+                if (cp1 != cp2)
+                    return (cp1 < cp2) ? -1 : 1;
+
+                i1 += Character.charCount(cp1);
+                i2 += Character.charCount(cp2);
+            }
+
+            return (length1 - i1) - (length2 - i2);
+        }
+    };
+}
@@ -0,0 +1,12 @@
+package edu.illinois.i3.emop.apps.pageevaluator.dictionary;
+
+// Implementations must be safe to use from multiple threads at the same time
+public interface WordDictionary {
+
+    // true if the word, or its lowercase form, is in the dictionary
+    boolean isCorrect(CharSequence word);
+
+    // identifies the content of the dictionary: dictionaries with the same words have the same fingerprint
+    String fingerprint();
+
+}
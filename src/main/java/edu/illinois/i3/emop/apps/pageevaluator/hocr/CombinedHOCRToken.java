@@ -9,10 +9,7 @@ public class CombinedHOCRToken extends HOCRToken {
     private final HOCRToken _secondToken;
 
     public CombinedHOCRToken(HOCRToken firstToken, HOCRToken secondToken) {
-        super(
-                combineTokenText(firstToken.text(), secondToken.text()),
-                combineTokenProperties(firstToken.properties(), secondToken.properties())
-        );
+        super(combineTokenText(firstToken.text(), secondToken.text()));
 
         _firstToken = firstToken;
         _secondToken = secondToken;
@@ -25,6 +22,12 @@ public class CombinedHOCRToken extends HOCRToken {
         return text1.substring(0, text1.length() - 1) + text2;
     }
 
+    // The properties of both tokens, with "_1" and "_2" suffixes added to their names
+    @Override
+    public Properties properties() {
+        return combineTokenProperties(_firstToken.properties(), _secondToken.properties());
+    }
+
     private static Properties combineTokenProperties(Properties p1, Properties p2) {
         Properties props = new Properties();
 
@@ -41,7 +44,6 @@ public class CombinedHOCRToken extends HOCRToken {
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("text", text())
-                .add("properties", properties())
                 .add("firstToken", firstToken())
                 .add("secondToken", secondToken())
                 .toString();
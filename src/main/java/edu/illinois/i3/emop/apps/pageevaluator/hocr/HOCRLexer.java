@@ -0,0 +1,712 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+// Lenient lexer reading hOCR documents straight from their UTF-8 bytes, for the documents that are HTML rather
+// than well-formed XHTML. It never fails: tag and attribute names are case-insensitive, attribute values don't need
+// to be quoted, void elements (e.g. <meta>) don't need to be closed, the elements left open by an end tag are closed
+// with it, stray end tags are ignored, and unknown entities are left as they are. Since HTML doesn't close the hOCR
+// elements itself, an ocr_page, ocr_line or ocrx_word also closes the open elements of the same or a lower level
+// (a word closes the previous word, a line the previous line and its words, etc.).
+//
+// Only the markup is read as bytes: text is decoded (into a reused buffer) only when it's requested, and attribute
+// values when they're looked up, so a well-formed document is read with much less work than by an XML parser,
+// and produces the same tokens.
+class HOCRLexer implements MarkupReader {
+
+    private static final char REPLACEMENT_CHAR = '�';
+
+    // hOCR levels; an element opening at a level closes the open elements of that level and lower
+    private static final int LEVEL_NONE = 0;
+    private static final int LEVEL_PAGE = 1;
+    private static final int LEVEL_LINE = 2;
+    private static final int LEVEL_WORD = 3;
+
+    // elements that never have content, so they're closed as soon as they're opened
+    private static final String[] VOID_ELEMENTS = {
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr"
+    };
+
+    // elements whose content is not markup, and is skipped
+    private static final String[] RAW_TEXT_ELEMENTS = { "script", "style" };
+
+    // The named character references of HTML 4 (the Latin-1, symbol and special sets), and apos (from XML)
+    private static final Map<String, Character> ENTITIES = ImmutableMap.<String, Character>builder()
+            // special
+            .put("quot", '"').put("amp", '&').put("lt", '<').put("gt", '>').put("OElig", '\u0152')
+            .put("oelig", '\u0153').put("Scaron", '\u0160').put("scaron", '\u0161').put("Yuml", '\u0178')
+            .put("circ", '\u02c6').put("tilde", '\u02dc').put("ensp", '\u2002').put("emsp", '\u2003')
+            .put("thinsp", '\u2009').put("zwnj", '\u200c').put("zwj", '\u200d').put("lrm", '\u200e')
+            .put("rlm", '\u200f').put("ndash", '\u2013').put("mdash", '\u2014').put("lsquo", '\u2018')
+            .put("rsquo", '\u2019').put("sbquo", '\u201a').put("ldquo", '\u201c').put("rdquo", '\u201d')
+            .put("bdquo", '\u201e').put("dagger", '\u2020').put("Dagger", '\u2021').put("permil", '\u2030')
+            .put("lsaquo", '\u2039').put("rsaquo", '\u203a').put("euro", '\u20ac').put("apos", '\'')
+            // Latin-1
+            .put("nbsp", '\u00a0').put("iexcl", '\u00a1').put("cent", '\u00a2').put("pound", '\u00a3')
+            .put("curren", '\u00a4').put("yen", '\u00a5').put("brvbar", '\u00a6').put("sect", '\u00a7')
+            .put("uml", '\u00a8').put("copy", '\u00a9').put("ordf", '\u00aa').put("laquo", '\u00ab')
+            .put("not", '\u00ac').put("shy", '\u00ad').put("reg", '\u00ae').put("macr", '\u00af').put("deg", '\u00b0')
+            .put("plusmn", '\u00b1').put("sup2", '\u00b2').put("sup3", '\u00b3').put("acute", '\u00b4')
+            .put("micro", '\u00b5').put("para", '\u00b6').put("middot", '\u00b7').put("cedil", '\u00b8')
+            .put("sup1", '\u00b9').put("ordm", '\u00ba').put("raquo", '\u00bb').put("frac14", '\u00bc')
+            .put("frac12", '\u00bd').put("frac34", '\u00be').put("iquest", '\u00bf').put("Agrave", '\u00c0')
+            .put("Aacute", '\u00c1').put("Acirc", '\u00c2').put("Atilde", '\u00c3').put("Auml", '\u00c4')
+            .put("Aring", '\u00c5').put("AElig", '\u00c6').put("Ccedil", '\u00c7').put("Egrave", '\u00c8')
+            .put("Eacute", '\u00c9').put("Ecirc", '\u00ca').put("Euml", '\u00cb').put("Igrave", '\u00cc')
+            .put("Iacute", '\u00cd').put("Icirc", '\u00ce').put("Iuml", '\u00cf').put("ETH", '\u00d0')
+            .put("Ntilde", '\u00d1').put("Ograve", '\u00d2').put("Oacute", '\u00d3').put("Ocirc", '\u00d4')
+            .put("Otilde", '\u00d5').put("Ouml", '\u00d6').put("times", '\u00d7').put("Oslash", '\u00d8')
+            .put("Ugrave", '\u00d9').put("Uacute", '\u00da').put("Ucirc", '\u00db').put("Uuml", '\u00dc')
+            .put("Yacute", '\u00dd').put("THORN", '\u00de').put("szlig", '\u00df').put("agrave", '\u00e0')
+            .put("aacute", '\u00e1').put("acirc", '\u00e2').put("atilde", '\u00e3').put("auml", '\u00e4')
+            .put("aring", '\u00e5').put("aelig", '\u00e6').put("ccedil", '\u00e7').put("egrave", '\u00e8')
+            .put("eacute", '\u00e9').put("ecirc", '\u00ea').put("euml", '\u00eb').put("igrave", '\u00ec')
+            .put("iacute", '\u00ed').put("icirc", '\u00ee').put("iuml", '\u00ef').put("eth", '\u00f0')
+            .put("ntilde", '\u00f1').put("ograve", '\u00f2').put("oacute", '\u00f3').put("ocirc", '\u00f4')
+            .put("otilde", '\u00f5').put("ouml", '\u00f6').put("divide", '\u00f7').put("oslash", '\u00f8')
+            .put("ugrave", '\u00f9').put("uacute", '\u00fa').put("ucirc", '\u00fb').put("uuml", '\u00fc')
+            .put("yacute", '\u00fd').put("thorn", '\u00fe').put("yuml", '\u00ff')
+            // symbols and Greek letters
+            .put("fnof", '\u0192').put("Alpha", '\u0391').put("Beta", '\u0392').put("Gamma", '\u0393')
+            .put("Delta", '\u0394').put("Epsilon", '\u0395').put("Zeta", '\u0396').put("Eta", '\u0397')
+            .put("Theta", '\u0398').put("Iota", '\u0399').put("Kappa", '\u039a').put("Lambda", '\u039b')
+            .put("Mu", '\u039c').put("Nu", '\u039d').put("Xi", '\u039e').put("Omicron", '\u039f').put("Pi", '\u03a0')
+            .put("Rho", '\u03a1').put("Sigma", '\u03a3').put("Tau", '\u03a4').put("Upsilon", '\u03a5')
+            .put("Phi", '\u03a6').put("Chi", '\u03a7').put("Psi", '\u03a8').put("Omega", '\u03a9')
+            .put("alpha", '\u03b1').put("beta", '\u03b2').put("gamma", '\u03b3').put("delta", '\u03b4')
+            .put("epsilon", '\u03b5').put("zeta", '\u03b6').put("eta", '\u03b7').put("theta", '\u03b8')
+            .put("iota", '\u03b9').put("kappa", '\u03ba').put("lambda", '\u03bb').put("mu", '\u03bc')
+            .put("nu", '\u03bd').put("xi", '\u03be').put("omicron", '\u03bf').put("pi", '\u03c0').put("rho", '\u03c1')
+            .put("sigmaf", '\u03c2').put("sigma", '\u03c3').put("tau", '\u03c4').put("upsilon", '\u03c5')
+            .put("phi", '\u03c6').put("chi", '\u03c7').put("psi", '\u03c8').put("omega", '\u03c9')
+            .put("thetasym", '\u03d1').put("upsih", '\u03d2').put("piv", '\u03d6').put("bull", '\u2022')
+            .put("hellip", '\u2026').put("prime", '\u2032').put("Prime", '\u2033').put("oline", '\u203e')
+            .put("frasl", '\u2044').put("image", '\u2111').put("weierp", '\u2118').put("real", '\u211c')
+            .put("trade", '\u2122').put("alefsym", '\u2135').put("larr", '\u2190').put("uarr", '\u2191')
+            .put("rarr", '\u2192').put("darr", '\u2193').put("harr", '\u2194').put("crarr", '\u21b5')
+            .put("lArr", '\u21d0').put("uArr", '\u21d1').put("rArr", '\u21d2').put("dArr", '\u21d3')
+            .put("hArr", '\u21d4').put("forall", '\u2200').put("part", '\u2202').put("exist", '\u2203')
+            .put("empty", '\u2205').put("nabla", '\u2207').put("isin", '\u2208').put("notin", '\u2209')
+            .put("ni", '\u220b').put("prod", '\u220f').put("sum", '\u2211').put("minus", '\u2212')
+            .put("lowast", '\u2217').put("radic", '\u221a').put("prop", '\u221d').put("infin", '\u221e')
+            .put("ang", '\u2220').put("and", '\u2227').put("or", '\u2228').put("cap", '\u2229').put("cup", '\u222a')
+            .put("int", '\u222b').put("there4", '\u2234').put("sim", '\u223c').put("cong", '\u2245')
+            .put("asymp", '\u2248').put("ne", '\u2260').put("equiv", '\u2261').put("le", '\u2264').put("ge", '\u2265')
+            .put("sub", '\u2282').put("sup", '\u2283').put("nsub", '\u2284').put("sube", '\u2286')
+            .put("supe", '\u2287').put("oplus", '\u2295').put("otimes", '\u2297').put("perp", '\u22a5')
+            .put("sdot", '\u22c5').put("lceil", '\u2308').put("rceil", '\u2309').put("lfloor", '\u230a')
+            .put("rfloor", '\u230b').put("lang", '\u2329').put("rang", '\u232a').put("loz", '\u25ca')
+            .put("spades", '\u2660').put("clubs", '\u2663').put("hearts", '\u2665').put("diams", '\u2666')
+            .build();
+
+    private static final int MAX_ENTITY_LENGTH = 10;
+
+    private final ByteBuffer _input;
+    private int _position;
+    private final int _limit;
+
+    private int _eventType = START_DOCUMENT;
+
+    // The open elements: the position and length of their names, and their hOCR levels
+    private int[] _elementNames = new int[64];
+    private int[] _elementNameLengths = new int[64];
+    private int[] _elementLevels = new int[64];
+    private int _depth;
+
+    // The current element name and, for start elements, its attributes (name and value positions; a value is null
+    // (-1) if the attribute has none, and quoted values don't include the quotes)
+    private int _name;
+    private int _nameLength;
+    private int[] _attributes = new int[4 * 8];
+    private int _attributeCount;
+
+    // The start element just read, and what must happen before and after it's reported
+    private int _closeCount;
+    private boolean _startPending;
+    private int _startName;
+    private int _startNameLength;
+    private int _startLevel;
+    private boolean _closeAfterStart;
+
+    // The current text (decoded on demand)
+    private int _textStart;
+    private int _textEnd;
+    private boolean _textDecoded;
+    private char[] _text = new char[1024];
+    private int _textLength;
+
+    HOCRLexer(ByteBuffer input) {
+        _input = input;
+        _position = input.position();
+        _limit = input.limit();
+
+        // byte order mark
+        if (_limit - _position >= 3 && byteAt(_position) == (byte) 0xef && byteAt(_position + 1) == (byte) 0xbb
+                && byteAt(_position + 2) == (byte) 0xbf)
+            _position += 3;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return _eventType != END_DOCUMENT;
+    }
+
+    @Override
+    public int next() {
+        while (true) {
+            if (_closeCount > 0) {
+                _closeCount--;
+                return _eventType = endElement();
+            }
+
+            if (_startPending) {
+                _startPending = false;
+                startElement();
+                if (_closeAfterStart)
+                    _closeCount = 1;
+
+                return _eventType = START_ELEMENT;
+            }
+
+            // close whatever is left open at the end of the document
+            if (_position >= _limit)
+                return _eventType = (_depth > 0) ? endElement() : END_DOCUMENT;
+
+            if (isMarkupStart(_position)) {
+                // CDATA sections are the only markup read as text
+                if (readMarkup())
+                    return _eventType = CHARACTERS;
+                continue;
+            }
+
+            readText();
+            return _eventType = CHARACTERS;
+        }
+    }
+
+    @Override
+    public String getLocalName() {
+        char[] name = new char[_nameLength];
+        for (int i = 0; i < _nameLength; i++)
+            name[i] = (char) toLowerCase(byteAt(_name + i));
+
+        return new String(name);
+    }
+
+    @Override
+    public String getAttributeValue(String name) {
+        if (_eventType != START_ELEMENT)
+            return null;
+
+        for (int i = 0; i < _attributeCount; i++) {
+            int attribute = 4 * i;
+            if (equalsIgnoreCase(_attributes[attribute], _attributes[attribute + 1], name)) {
+                int valueStart = _attributes[attribute + 2];
+                return (valueStart < 0) ? "" : new String(_text, 0, decode(valueStart, _attributes[attribute + 3], true));
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        decodeText();
+        return _text;
+    }
+
+    @Override
+    public int getTextStart() {
+        return 0;
+    }
+
+    @Override
+    public int getTextLength() {
+        decodeText();
+        return _textLength;
+    }
+
+    @Override
+    public void close() {
+        _position = _limit;
+        _eventType = END_DOCUMENT;
+    }
+
+    private byte byteAt(int position) {
+        return _input.get(position);
+    }
+
+    // '<' starts markup if it's followed by a name, '/', '!' or '?'; otherwise it's text
+    private boolean isMarkupStart(int position) {
+        if (byteAt(position) != '<' || position + 1 >= _limit)
+            return false;
+
+        byte next = byteAt(position + 1);
+        return isLetter(next) || next == '/' || next == '!' || next == '?';
+    }
+
+    private void readText() {
+        _textStart = _position;
+        _position++;
+        while (_position < _limit && !isMarkupStart(_position))
+            _position++;
+
+        _textEnd = _position;
+        _textDecoded = false;
+    }
+
+    // Reads the markup at the current position, and returns whether it was a (non-empty) CDATA section
+    private boolean readMarkup() {
+        int position = _position + 1;
+        byte c = byteAt(position);
+
+        if (c == '!') {
+            if (startsWith(position + 1, "--"))
+                _position = skipPast(position + 3, "-->");
+            else if (startsWith(position + 1, "[CDATA[")) {
+                int textStart = position + 8;
+                int textEnd = indexOf(textStart, "]]>");
+                _position = (textEnd < _limit) ? textEnd + 3 : _limit;
+                if (textStart < textEnd) {
+                    _textStart = textStart;
+                    _textEnd = textEnd;
+                    decodeCData();
+                    return true;
+                }
+            } else
+                _position = skipDeclaration(position + 1);
+        }
+
+        else if (c == '?')
+            _position = skipPast(position + 1, ">");
+
+        else if (c == '/')
+            readEndTag(position + 1);
+
+        else
+            readStartTag(position);
+
+        return false;
+    }
+
+    private void readStartTag(int position) {
+        _startName = position;
+        while (position < _limit && isNameChar(byteAt(position)))
+            position++;
+        _startNameLength = position - _startName;
+
+        _attributeCount = 0;
+        boolean selfClosing = false;
+        while (position < _limit) {
+            byte c = byteAt(position);
+            if (c == '>') {
+                position++;
+                break;
+            }
+
+            if (isSpace(c)) {
+                position++;
+                continue;
+            }
+
+            if (c == '/') {
+                position++;
+                selfClosing = position < _limit && byteAt(position) == '>';
+                continue;
+            }
+
+            position = readAttribute(position);
+        }
+        _position = position;
+
+        // the hOCR level of the element, and the elements it closes
+        _eventType = START_ELEMENT;
+        String cssClass = getAttributeValue("class");
+        _startLevel = "ocr_page".equals(cssClass) ? LEVEL_PAGE : "ocr_line".equals(cssClass) ? LEVEL_LINE :
+                "ocrx_word".equals(cssClass) ? LEVEL_WORD : LEVEL_NONE;
+
+        _closeCount = 0;
+        if (_startLevel != LEVEL_NONE)
+            for (int i = 0; i < _depth; i++)
+                if (_elementLevels[i] >= _startLevel) {
+                    _closeCount = _depth - i;
+                    break;
+                }
+
+        _startPending = true;
+        _closeAfterStart = selfClosing || isOneOf(_startName, _startNameLength, VOID_ELEMENTS);
+
+        if (!_closeAfterStart && isOneOf(_startName, _startNameLength, RAW_TEXT_ELEMENTS))
+            skipRawText();
+    }
+
+    private int readAttribute(int position) {
+        int nameStart = position;
+        while (position < _limit) {
+            byte c = byteAt(position);
+            if (isSpace(c) || c == '=' || c == '>' || c == '/')
+                break;
+            position++;
+        }
+
+        // a stray character that can't start a name
+        if (position == nameStart)
+            return position + 1;
+
+        int nameEnd = position;
+        int valueStart = -1;
+        int valueEnd = -1;
+
+        int next = skipSpaces(position);
+        if (next < _limit && byteAt(next) == '=') {
+            position = skipSpaces(next + 1);
+            if (position < _limit) {
+                byte quote = byteAt(position);
+                if (quote == '"' || quote == '\'') {
+                    valueStart = position + 1;
+                    valueEnd = valueStart;
+                    while (valueEnd < _limit && byteAt(valueEnd) != quote)
+                        valueEnd++;
+                    position = Math.min(valueEnd + 1, _limit);
+                } else {
+                    valueStart = position;
+                    while (position < _limit && !isSpace(byteAt(position)) && byteAt(position) != '>')
+                        position++;
+                    valueEnd = position;
+                }
+            }
+        }
+
+        // the first of duplicate attributes wins, as in HTML
+        for (int i = 0; i < _attributeCount; i++)
+            if (equalsIgnoreCase(_attributes[4 * i], _attributes[4 * i + 1], nameStart, nameEnd))
+                return position;
+
+        if (4 * (_attributeCount + 1) > _attributes.length)
+            _attributes = Arrays.copyOf(_attributes, 2 * _attributes.length);
+
+        int attribute = 4 * _attributeCount++;
+        _attributes[attribute] = nameStart;
+        _attributes[attribute + 1] = nameEnd;
+        _attributes[attribute + 2] = valueStart;
+        _attributes[attribute + 3] = valueEnd;
+
+        return position;
+    }
+
+    private void readEndTag(int position) {
+        int name = position;
+        while (position < _limit && isNameChar(byteAt(position)))
+            position++;
+        int nameLength = position - name;
+        _position = skipPast(position, ">");
+
+        // "</>" and the like are ignored
+        if (nameLength == 0)
+            return;
+
+        // close the element, and the ones left open in it; end tags of elements that aren't open are ignored
+        for (int i = _depth - 1; i >= 0; i--)
+            if (equalsIgnoreCase(_elementNames[i], _elementNames[i] + _elementNameLengths[i], name, name + nameLength)) {
+                _closeCount = _depth - i;
+                return;
+            }
+    }
+
+    private void skipRawText() {
+        // the element is reported (and closed) before its content, which isn't text
+        int end = _position;
+        while (end < _limit) {
+            end = indexOf(end, "</");
+            if (end >= _limit || equalsIgnoreCase(end + 2, end + 2 + _startNameLength, _startName,
+                    _startName + _startNameLength))
+                break;
+            end += 2;
+        }
+
+        _position = end;
+    }
+
+    // Skips a declaration such as <!DOCTYPE ...>, including an internal subset in brackets
+    private int skipDeclaration(int position) {
+        int bracketDepth = 0;
+        for (; position < _limit; position++) {
+            byte c = byteAt(position);
+            if (c == '[')
+                bracketDepth++;
+            else if (c == ']')
+                bracketDepth--;
+            else if (c == '>' && bracketDepth <= 0)
+                return position + 1;
+        }
+
+        return _limit;
+    }
+
+    private void startElement() {
+        if (_depth == _elementNames.length) {
+            _elementNames = Arrays.copyOf(_elementNames, 2 * _depth);
+            _elementNameLengths = Arrays.copyOf(_elementNameLengths, 2 * _depth);
+            _elementLevels = Arrays.copyOf(_elementLevels, 2 * _depth);
+        }
+
+        _name = _startName;
+        _nameLength = _startNameLength;
+        _elementNames[_depth] = _name;
+        _elementNameLengths[_depth] = _nameLength;
+        _elementLevels[_depth] = _startLevel;
+        _depth++;
+    }
+
+    private int endElement() {
+        _depth--;
+        _name = _elementNames[_depth];
+        _nameLength = _elementNameLengths[_depth];
+
+        return END_ELEMENT;
+    }
+
+    private void decodeText() {
+        if (!_textDecoded) {
+            _textLength = decode(_textStart, _textEnd, false);
+            _textDecoded = true;
+        }
+    }
+
+    private void decodeCData() {
+        ensureTextCapacity(_textEnd - _textStart);
+        int length = 0;
+        for (int position = _textStart; position < _textEnd; )
+            position = decodeChar(position, _textEnd, length++);
+
+        _textLength = length;
+        _textDecoded = true;
+    }
+
+    // Decodes the UTF-8 bytes (and the entities) between start and end into the text buffer, normalizing the line
+    // ends as an XML parser does (and, in attribute values, turning whitespace into spaces); returns the length
+    private int decode(int start, int end, boolean attributeValue) {
+        ensureTextCapacity(end - start);
+
+        int length = 0;
+        int position = start;
+        while (position < end) {
+            byte c = byteAt(position);
+
+            if (c == '&') {
+                int entityEnd = decodeEntity(position, end, length);
+                if (entityEnd > 0) {
+                    length += Character.isHighSurrogate(_text[length]) ? 2 : 1;
+                    position = entityEnd;
+                    continue;
+                }
+            }
+
+            if (c == '\r') {
+                _text[length++] = attributeValue ? ' ' : '\n';
+                position++;
+                if (position < end && byteAt(position) == '\n')
+                    position++;
+                continue;
+            }
+
+            if (attributeValue && (c == '\n' || c == '\t')) {
+                _text[length++] = ' ';
+                position++;
+                continue;
+            }
+
+            if (c >= 0) {
+                _text[length++] = (char) c;
+                position++;
+                continue;
+            }
+
+            int next = decodeChar(position, end, length);
+            length += Character.isHighSurrogate(_text[length]) ? 2 : 1;
+            position = next;
+        }
+
+        return length;
+    }
+
+    // Decodes the entity (or character reference) at position into the text buffer at index, and returns the
+    // position after it, or -1 if it's not a known entity
+    private int decodeEntity(int position, int end, int index) {
+        int semicolon = position + 1;
+        while (semicolon < end && semicolon - position <= MAX_ENTITY_LENGTH && byteAt(semicolon) != ';')
+            semicolon++;
+
+        if (semicolon >= end || byteAt(semicolon) != ';' || semicolon == position + 1)
+            return -1;
+
+        int codePoint = -1;
+        if (byteAt(position + 1) == '#') {
+            boolean hex = position + 2 < semicolon && (byteAt(position + 2) == 'x' || byteAt(position + 2) == 'X');
+            codePoint = 0;
+            for (int i = position + (hex ? 3 : 2); i < semicolon && codePoint <= Character.MAX_CODE_POINT; i++) {
+                int digit = Character.digit(byteAt(i), hex ? 16 : 10);
+                if (digit < 0)
+                    return -1;
+                codePoint = codePoint * (hex ? 16 : 10) + digit;
+            }
+
+            if (codePoint > Character.MAX_CODE_POINT || (codePoint >= 0xd800 && codePoint <= 0xdfff))
+                codePoint = REPLACEMENT_CHAR;
+        } else {
+            char[] name = new char[semicolon - position - 1];
+            for (int i = 0; i < name.length; i++)
+                name[i] = (char) byteAt(position + 1 + i);
+
+            Character c = ENTITIES.get(new String(name));
+            if (c == null)
+                return -1;
+            codePoint = c;
+        }
+
+        Character.toChars(codePoint, _text, index);
+        return semicolon + 1;
+    }
+
+    // Decodes the UTF-8 character at position into the text buffer at index (as a surrogate pair if needed,
+    // or as a replacement character if the bytes are malformed), and returns the position after it
+    private int decodeChar(int position, int end, int index) {
+        int b = byteAt(position) & 0xff;
+        int length;
+        int codePoint;
+        int minimum;
+
+        if (b < 0x80) {
+            _text[index] = (char) b;
+            return position + 1;
+        } else if ((b & 0xe0) == 0xc0) {
+            length = 2;
+            codePoint = b & 0x1f;
+            minimum = 0x80;
+        } else if ((b & 0xf0) == 0xe0) {
+            length = 3;
+            codePoint = b & 0x0f;
+            minimum = 0x800;
+        } else if ((b & 0xf8) == 0xf0) {
+            length = 4;
+            codePoint = b & 0x07;
+            minimum = 0x10000;
+        } else {
+            _text[index] = REPLACEMENT_CHAR;
+            return position + 1;
+        }
+
+        if (position + length > end) {
+            _text[index] = REPLACEMENT_CHAR;
+            return position + 1;
+        }
+
+        for (int i = 1; i < length; i++) {
+            int continuation = byteAt(position + i) & 0xff;
+            if ((continuation & 0xc0) != 0x80) {
+                _text[index] = REPLACEMENT_CHAR;
+                return position + 1;
+            }
+            codePoint = (codePoint << 6) | (continuation & 0x3f);
+        }
+
+        if (codePoint < minimum || codePoint > Character.MAX_CODE_POINT || (codePoint >= 0xd800 && codePoint <= 0xdfff)) {
+            _text[index] = REPLACEMENT_CHAR;
+            return position + 1;
+        }
+
+        Character.toChars(codePoint, _text, index);
+        return position + length;
+    }
+
+    // Text never decodes to more chars than it has bytes (plus one, for a surrogate pair at the end)
+    private void ensureTextCapacity(int byteCount) {
+        if (_text.length < byteCount + 1)
+            _text = new char[Math.max(byteCount + 1, 2 * _text.length)];
+    }
+
+    private int skipSpaces(int position) {
+        while (position < _limit && isSpace(byteAt(position)))
+            position++;
+
+        return position;
+    }
+
+    // The position after the next occurrence of s, or the end of the input
+    private int skipPast(int position, String s) {
+        int index = indexOf(position, s);
+        return (index < _limit) ? index + s.length() : _limit;
+    }
+
+    // The position of the next occurrence of s, or the end of the input
+    private int indexOf(int position, String s) {
+        for (int end = _limit - s.length(); position <= end; position++)
+            if (startsWith(position, s))
+                return position;
+
+        return _limit;
+    }
+
+    private boolean startsWith(int position, String s) {
+        if (position + s.length() > _limit)
+            return false;
+
+        for (int i = 0; i < s.length(); i++)
+            if (byteAt(position + i) != s.charAt(i))
+                return false;
+
+        return true;
+    }
+
+    private boolean equalsIgnoreCase(int start, int end, String s) {
+        if (end - start != s.length())
+            return false;
+
+        for (int i = 0; i < s.length(); i++)
+            if (toLowerCase(byteAt(start + i)) != s.charAt(i))
+                return false;
+
+        return true;
+    }
+
+    private boolean equalsIgnoreCase(int start, int end, int otherStart, int otherEnd) {
+        if (end - start != otherEnd - otherStart || end > _limit)
+            return false;
+
+        for (int i = 0; i < end - start; i++)
+            if (toLowerCase(byteAt(start + i)) != toLowerCase(byteAt(otherStart + i)))
+                return false;
+
+        return true;
+    }
+
+    private boolean isOneOf(int name, int nameLength, String[] names) {
+        for (String s : names)
+            if (equalsIgnoreCase(name, name + nameLength, s))
+                return true;
+
+        return false;
+    }
+
+    private static int toLowerCase(byte c) {
+        return (c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isLetter(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isNameChar(byte c) {
+        return !isSpace(c) && c != '>' && c != '/';
+    }
+
+    private static boolean isSpace(byte c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+}
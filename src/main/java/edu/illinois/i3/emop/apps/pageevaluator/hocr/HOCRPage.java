@@ -3,20 +3,14 @@ package edu.illinois.i3.emop.apps.pageevaluator.hocr;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
 import edu.illinois.i3.emop.apps.pageevaluator.OCRPage;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRPageVisitor;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRTokenVisitor;
 import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
+
+import javax.xml.stream.XMLStreamException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Set;
 
 import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
@@ -41,56 +35,149 @@ public class HOCRPage implements OCRPage<HOCRToken> {
     }
 
     public static HOCRPage parse(Reader pageReader, int parseOptions) throws PageParserException {
+        return parse(xmlReader(pageReader), parseOptions);
+    }
+
+    // Parses the page, passing each token to the visitor as soon as it is parsed instead of keeping it
+    public static void parse(Reader pageReader, int parseOptions, OCRTokenVisitor<? super HOCRToken> visitor)
+            throws PageParserException {
+        read(xmlReader(pageReader), parseOptions, visitor);
+    }
+
+    // Parses every ocr_page of the document (the other methods only read the first one), in a single pass,
+    // passing each page to the visitor as soon as it is parsed
+    public static void parseAll(Reader documentReader, int parseOptions, OCRPageVisitor<? super HOCRPage> visitor)
+            throws PageParserException {
+        parseAll(xmlReader(documentReader), parseOptions, visitor);
+    }
+
+    // The parse methods for hOCR pages that are HTML rather than XHTML (i.e. that an XML parser rejects), read
+    // from their UTF-8 encoding by the lenient HOCRLexer
+    public static HOCRPage parseLenient(ByteBuffer page, int parseOptions) throws PageParserException {
+        return parse(new HOCRLexer(page), parseOptions);
+    }
+
+    public static void parseLenient(ByteBuffer page, int parseOptions, OCRTokenVisitor<? super HOCRToken> visitor)
+            throws PageParserException {
+        read(new HOCRLexer(page), parseOptions, visitor);
+    }
+
+    public static void parseAllLenient(ByteBuffer document, int parseOptions,
+                                       OCRPageVisitor<? super HOCRPage> visitor) throws PageParserException {
+        parseAll(new HOCRLexer(document), parseOptions, visitor);
+    }
+
+    private static MarkupReader xmlReader(Reader pageReader) throws PageParserException {
         try {
-            DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
-            documentBuilderFactory.setNamespaceAware(false);
-            documentBuilderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-            DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
-            InputSource inputSource = new InputSource(pageReader);
-            Document document = documentBuilder.parse(inputSource);
-            XPathFactory xpathFactory = XPathFactory.newInstance();
-            XPath xpath = xpathFactory.newXPath();
-
-            String ocrEngine = (String) xpath.evaluate("/html/head/meta[@name='ocr-system']/@content", document, XPathConstants.STRING);
-            Set<String> ocrCapabilities = Sets.newHashSet();
-            String capabilities = (String) xpath.evaluate("/html/head/meta[@name='ocr-capabilities']/@content", document, XPathConstants.STRING);
-            ocrCapabilities.addAll(Arrays.asList(capabilities.split(" ")));
-
-            NodeList pagesXml = (NodeList) xpath.evaluate("//*[@class='ocr_page']", document, XPathConstants.NODESET);
-            Element pageXml = (Element) pagesXml.item(0);  // we only consider the first page
-            String pageId = pageXml.getAttribute("id");
-
-            Iterator<HOCRToken> tokenIterator = new HOCRTokenIterator(pageXml).iterator();
-            ImmutableList<HOCRToken> tokens;
-
-            if ((parseOptions & COMBINE_HYPHENATED_EOL_TOKENS) > 0) {
-                // combine hyphenated words at end-of-line
-                ImmutableList.Builder<HOCRToken> builder = ImmutableList.builder();
-                while (tokenIterator.hasNext()) {
-                    HOCRToken token = tokenIterator.next();
-                    String tokenText = token.text();
-
-                    // join end of line hyphenated words
-                    if (token.isLastTokenOnLine() && tokenText.endsWith("-") && tokenIterator.hasNext()) {
-                        HOCRToken nextToken = tokenIterator.next();
-                        token = new CombinedHOCRToken(token, nextToken);
+            return new XMLMarkupReader(HOCRParserContext.get().createReader(pageReader));
+        }
+        catch (XMLStreamException e) {
+            throw new PageParserException(e);
+        }
+    }
+
+    private static HOCRPage parse(MarkupReader markupReader, int parseOptions) throws PageParserException {
+        final ImmutableList.Builder<HOCRToken> tokens = ImmutableList.builder();
+        HOCRTokenReader tokenReader = read(markupReader, parseOptions, new OCRTokenVisitor<HOCRToken>() {
+            @Override
+            public void visitToken(HOCRToken token) {
+                tokens.add(token);
+            }
+        });
+
+        return createPage(tokenReader, tokens.build());
+    }
+
+    private static void parseAll(MarkupReader markupReader, int parseOptions,
+                                 OCRPageVisitor<? super HOCRPage> visitor) throws PageParserException {
+        try {
+            HOCRTokenReader tokenReader = new HOCRTokenReader(markupReader);
+            if (tokenReader.pageId() == null)
+                throw new PageParserException("No ocr_page found");
+
+            for (; tokenReader != null; tokenReader = tokenReader.nextPage()) {
+                final ImmutableList.Builder<HOCRToken> tokens = ImmutableList.builder();
+                readTokens(tokenReader, parseOptions, new OCRTokenVisitor<HOCRToken>() {
+                    @Override
+                    public void visitToken(HOCRToken token) {
+                        tokens.add(token);
                     }
+                });
 
-                    if (token.text().isEmpty())
-                        continue;
+                visitor.visitPage(createPage(tokenReader, tokens.build()));
+            }
+        }
+        catch (PageParserException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new PageParserException(e);
+        }
+        finally {
+            close(markupReader);
+        }
+    }
 
-                    builder.add(token);
-                }
+    private static HOCRTokenReader read(MarkupReader markupReader, int parseOptions,
+                                        OCRTokenVisitor<? super HOCRToken> visitor) throws PageParserException {
+        try {
+            HOCRTokenReader tokenReader = new HOCRTokenReader(markupReader);
+            if (tokenReader.pageId() == null)
+                throw new PageParserException("No ocr_page found");
 
-                tokens  = builder.build();
-            } else
-                tokens = ImmutableList.copyOf(tokenIterator);
+            readTokens(tokenReader, parseOptions, visitor);
 
-            return new HOCRPage(pageId, tokens, ocrEngine, ocrCapabilities);
+            return tokenReader;
+        }
+        catch (PageParserException e) {
+            throw e;
         }
         catch (Exception e) {
             throw new PageParserException(e);
         }
+        finally {
+            close(markupReader);
+        }
+    }
+
+    private static void readTokens(HOCRTokenReader tokenReader, int parseOptions,
+                                   OCRTokenVisitor<? super HOCRToken> visitor) {
+        if ((parseOptions & COMBINE_HYPHENATED_EOL_TOKENS) > 0) {
+            // combine hyphenated words at end-of-line
+            while (tokenReader.hasNext()) {
+                HOCRToken token = tokenReader.next();
+                String tokenText = token.text();
+
+                // join end of line hyphenated words
+                if (token.isLastTokenOnLine() && tokenText.endsWith("-") && tokenReader.hasNext()) {
+                    HOCRToken nextToken = tokenReader.next();
+                    token = new CombinedHOCRToken(token, nextToken);
+                }
+
+                if (token.text().isEmpty())
+                    continue;
+
+                visitor.visitToken(token);
+            }
+        } else {
+            while (tokenReader.hasNext())
+                visitor.visitToken(tokenReader.next());
+        }
+    }
+
+    private static HOCRPage createPage(HOCRTokenReader tokenReader, ImmutableList<HOCRToken> tokens) {
+        Set<String> ocrCapabilities = Sets.newHashSet();
+        ocrCapabilities.addAll(Arrays.asList(tokenReader.ocrCapabilities().split(" ")));
+
+        return new HOCRPage(tokenReader.pageId(), tokens, tokenReader.ocrEngine(), ocrCapabilities);
+    }
+
+    // Lets the parser context reuse the XML reader
+    private static void close(MarkupReader markupReader) {
+        try {
+            markupReader.close();
+        }
+        catch (XMLStreamException ignored) { }
     }
 
     public String pageId() {
@@ -109,4 +196,10 @@ public class HOCRPage implements OCRPage<HOCRToken> {
     public ImmutableList<HOCRToken> tokens() {
         return _tokens;
     }
+
+    @Override
+    public void visitTokens(OCRTokenVisitor<? super HOCRToken> visitor) {
+        for (HOCRToken token : _tokens)
+            visitor.visitToken(token);
+    }
 }
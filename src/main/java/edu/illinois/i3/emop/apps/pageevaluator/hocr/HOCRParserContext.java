@@ -0,0 +1,58 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+
+// The XML parser configuration used to read hOCR pages (and ALTO and PAGE XML pages), created once for each thread
+// instead of for each page. Creating an XMLInputFactory means a service lookup and a fresh configuration, and the
+// JDK's factory can be made to reuse the stream reader of the previous page (with its scanner and buffers), reset,
+// once it's been closed; it can't be shared between threads to do that, since the stream readers are not thread-safe.
+public class HOCRParserContext {
+
+    // don't load external DTDs
+    private static final XMLResolver NO_EXTERNAL_ENTITIES = new XMLResolver() {
+        @Override
+        public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+    };
+
+    // JDK-specific property enabling the reuse of the stream reader (ignored by the other StAX implementations)
+    private static final String REUSE_INSTANCE = "reuse-instance";
+
+    private static final ThreadLocal<HOCRParserContext> _threadContexts = new ThreadLocal<HOCRParserContext>() {
+        @Override
+        protected HOCRParserContext initialValue() {
+            return new HOCRParserContext();
+        }
+    };
+
+    private final XMLInputFactory _inputFactory;
+
+    public HOCRParserContext() {
+        _inputFactory = XMLInputFactory.newInstance();
+        _inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        _inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        _inputFactory.setXMLResolver(NO_EXTERNAL_ENTITIES);
+
+        try {
+            _inputFactory.setProperty(REUSE_INSTANCE, true);
+        }
+        catch (IllegalArgumentException ignored) { }
+    }
+
+    // The context of the calling thread
+    public static HOCRParserContext get() {
+        return _threadContexts.get();
+    }
+
+    // The reader must be closed when the page has been read (whether it could be parsed or not), so that the
+    // context can reuse it for the next page
+    public XMLStreamReader createReader(Reader pageReader) throws XMLStreamException {
+        return _inputFactory.createXMLStreamReader(pageReader);
+    }
+}
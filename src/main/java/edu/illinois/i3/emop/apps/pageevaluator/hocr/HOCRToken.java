@@ -3,23 +3,49 @@ package edu.illinois.i3.emop.apps.pageevaluator.hocr;
 import com.google.common.base.MoreObjects;
 import edu.illinois.i3.emop.apps.pageevaluator.OCRToken;
 
+import java.util.Arrays;
 import java.util.Properties;
 
 public class HOCRToken implements OCRToken {
     private final String _text;
-    private final Properties _tokenProperties;
+    private final String _id;
+    private final int[] _bbox;          // x0 y0 x1 y1, or null if not available
+    private final float _confidence;    // x_wconf, or NaN if not available
+    private final boolean _isLastTokenOnLine;
 
-    public HOCRToken(String text, Properties tokenProperties) {
+    // The original title attribute; all the properties are parsed from it when (and if) properties() is called
+    private final String _title;
+
+    public HOCRToken(String text, String id, String title, boolean isLastTokenOnLine) {
+        _text = text;
+        _id = id;
+        _isLastTokenOnLine = isLastTokenOnLine;
+
+        TitleParser parser = new TitleParser(title);
+        _bbox = parser._bbox;
+        _confidence = parser._confidence;
+        _title = title;
+    }
+
+    protected HOCRToken(String text) {
         _text = text;
-        _tokenProperties = tokenProperties;
+        _id = null;
+        _bbox = null;
+        _confidence = Float.NaN;
+        _isLastTokenOnLine = false;
+        _title = null;
     }
 
     public String id() {
-        return _tokenProperties.getProperty("id");
+        return _id;
     }
 
-    public Properties properties() {
-        return _tokenProperties;
+    public int[] bbox() {
+        return (_bbox != null) ? _bbox.clone() : null;
+    }
+
+    public float confidence() {
+        return _confidence;
     }
 
     public String text() {
@@ -27,14 +53,133 @@ public class HOCRToken implements OCRToken {
     }
 
     public boolean isLastTokenOnLine() {
-        return Boolean.parseBoolean(_tokenProperties.getProperty("isLastTokenOnLine", "false"));
+        return _isLastTokenOnLine;
+    }
+
+    // The id, the properties in the title attribute and the isLastTokenOnLine flag, as strings;
+    // a new object is created on every call
+    public Properties properties() {
+        Properties properties = new Properties();
+        if (_id != null) properties.put("id", _id);
+
+        if (_title != null) {
+            for (String prop : _title.split(";")) {
+                prop = prop.trim();
+                if (prop.isEmpty())
+                    continue;
+
+                int idx = prop.indexOf(" ");
+                String propName = (idx >= 0) ? prop.substring(0, idx) : prop;
+                String propValue = (idx >= 0) ? prop.substring(idx + 1) : "";
+                properties.put(propName, propValue);
+            }
+        }
+
+        properties.put("isLastTokenOnLine", Boolean.toString(_isLastTokenOnLine));
+
+        return properties;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("text", _text)
-                .add("properties", _tokenProperties)
+                .add("id", _id)
+                .add("bbox", (_bbox != null) ? Arrays.toString(_bbox) : null)
+                .add("confidence", _confidence)
+                .add("isLastTokenOnLine", _isLastTokenOnLine)
                 .toString();
     }
+
+    // Extracts bbox and x_wconf from a title like "bbox 10 20 18 40; x_wconf 63" without splitting it up
+    private static class TitleParser {
+        private int[] _bbox;
+        private float _confidence = Float.NaN;
+
+        private TitleParser(String title) {
+            if (title == null)
+                return;
+
+            int length = title.length();
+            int start = 0;
+            while (start < length) {
+                int end = title.indexOf(';', start);
+                if (end < 0)
+                    end = length;
+
+                parseProperty(title, start, end);
+                start = end + 1;
+            }
+        }
+
+        private void parseProperty(String title, int start, int end) {
+            while (start < end && title.charAt(start) <= ' ') start++;
+            while (end > start && title.charAt(end - 1) <= ' ') end--;
+            if (start == end)
+                return;
+
+            if (isProperty(title, start, end, "bbox")) {
+                int[] values = parseInts(title, start + "bbox".length(), end, 4);
+                if (values != null)
+                    _bbox = values;
+            }
+
+            else if (isProperty(title, start, end, "x_wconf")) {
+                int valueStart = start + "x_wconf".length();
+                while (title.charAt(valueStart) == ' ')
+                    valueStart++;
+
+                // Float.parseFloat also accepts "NaN", "Infinity", "95f", "0x1p6"...
+                if (isDecimal(title, valueStart, end))
+                    _confidence = Float.parseFloat(title.substring(valueStart, end));
+            }
+        }
+
+        // whether title[start, end) is a plain decimal number, like "95" or "95.5"
+        private static boolean isDecimal(String title, int start, int end) {
+            int dot = -1;
+            for (int i = start; i < end; i++) {
+                char c = title.charAt(i);
+                if (c == '.' && dot < 0)
+                    dot = i;
+                else if (c < '0' || c > '9')
+                    return false;
+            }
+
+            return end - start > ((dot >= 0) ? 1 : 0) && dot != start && dot != end - 1;
+        }
+
+        private static boolean isProperty(String title, int start, int end, String name) {
+            int nameEnd = start + name.length();
+            return nameEnd < end && title.charAt(nameEnd) == ' ' && title.regionMatches(start, name, 0, name.length());
+        }
+
+        // parses exactly count space-separated non-negative ints from title[start, end), or returns null
+        private static int[] parseInts(String title, int start, int end, int count) {
+            int[] values = new int[count];
+            int n = 0;
+            int i = start;
+            while (i < end) {
+                if (title.charAt(i) == ' ') {
+                    i++;
+                    continue;
+                }
+
+                if (n == count)
+                    return null;
+
+                int value = 0;
+                int digitsStart = i;
+                for (char c; i < end && (c = title.charAt(i)) >= '0' && c <= '9'; i++)
+                    value = value * 10 + (c - '0');
+
+                if (i == digitsStart || (i < end && title.charAt(i) != ' '))
+                    return null;
+
+                values[n++] = value;
+            }
+
+            return (n == count) ? values : null;
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import com.google.common.collect.AbstractIterator;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+// Single-pass reader that produces the words of the first ocr_page of an hOCR document as their elements close,
+// without building a DOM of the document. A word is the last token on its line if no other word follows it
+// before the enclosing ocr_line closes, which is why the reader always holds back the most recent word.
+// The following pages of the document are read by the readers returned by nextPage, in turn.
+public class HOCRTokenReader extends AbstractIterator<HOCRToken> {
+    private final MarkupReader _reader;
+
+    // Page metadata
+    private String _ocrEngine = "";
+    private String _ocrCapabilities = "";
+    private String _pageId;
+    private boolean _isHtml;
+    private boolean _inHead;
+
+    // Depth of the current element and of the open page, line and word elements (-1 when not open)
+    private int _depth;
+    private int _pageDepth = -1;
+    private int _lineDepth = -1;
+    private int _wordDepth = -1;
+
+    // The current word...
+    private final StringBuilder _wordText = new StringBuilder();
+    private String _wordId;
+    private String _wordTitle;
+
+    // ...and the previous word on the current line, not yet known to be (or not be) the last one
+    private boolean _hasPendingWord;
+    private String _pendingText;
+    private String _pendingId;
+    private String _pendingTitle;
+
+    public HOCRTokenReader(XMLStreamReader reader) throws XMLStreamException {
+        this(new XMLMarkupReader(reader));
+    }
+
+    HOCRTokenReader(MarkupReader reader) throws XMLStreamException {
+        _reader = reader;
+
+        // read the page metadata and position the reader at the start of the first page
+        findPage();
+    }
+
+    // Continues reading the document after the previous page
+    private HOCRTokenReader(HOCRTokenReader previousPage) throws XMLStreamException {
+        _reader = previousPage._reader;
+        _ocrEngine = previousPage._ocrEngine;
+        _ocrCapabilities = previousPage._ocrCapabilities;
+        _isHtml = previousPage._isHtml;
+        _depth = previousPage._depth;
+
+        findPage();
+    }
+
+    // The reader of the next ocr_page of the document (skipping what's left of this page),
+    // or null if there are no more pages
+    public HOCRTokenReader nextPage() throws XMLStreamException {
+        while (hasNext())
+            next();
+
+        HOCRTokenReader nextPage = new HOCRTokenReader(this);
+        return (nextPage.pageId() != null) ? nextPage : null;
+    }
+
+    private void findPage() throws XMLStreamException {
+        while (_pageDepth < 0 && _reader.hasNext()) {
+            int event = _reader.next();
+            if (event == START_ELEMENT) {
+                _depth++;
+                startElement();
+            }
+            else if (event == END_ELEMENT) {
+                if (_depth == 2)
+                    _inHead = false;
+                _depth--;
+            }
+        }
+    }
+
+    public String ocrEngine() {
+        return _ocrEngine;
+    }
+
+    public String ocrCapabilities() {
+        return _ocrCapabilities;
+    }
+
+    // null if the document has no ocr_page
+    public String pageId() {
+        return _pageId;
+    }
+
+    @Override
+    protected HOCRToken computeNext() {
+        try {
+            while (_pageDepth >= 0 && _reader.hasNext()) {
+                switch (_reader.next()) {
+                    case START_ELEMENT:
+                        _depth++;
+                        startElement();
+                        break;
+
+                    case CHARACTERS:
+                    case CDATA:
+                    case SPACE:
+                        if (_wordDepth >= 0)
+                            _wordText.append(_reader.getTextCharacters(), _reader.getTextStart(), _reader.getTextLength());
+                        break;
+
+                    case END_ELEMENT:
+                        HOCRToken token = endElement();
+                        _depth--;
+                        if (token != null)
+                            return token;
+                        break;
+                }
+            }
+
+            return endOfData();
+        }
+        catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void startElement() {
+        String cssClass = _reader.getAttributeValue("class");
+
+        if (_pageDepth < 0) {
+            if ("ocr_page".equals(cssClass)) {
+                _pageDepth = _depth;
+                _pageId = attribute("id", "");
+            }
+
+            // /html/head/meta
+            else if (_depth == 1)
+                _isHtml = "html".equals(_reader.getLocalName());
+
+            else if (_depth == 2)
+                _inHead = _isHtml && "head".equals(_reader.getLocalName());
+
+            else if (_depth == 3 && _inHead && "meta".equals(_reader.getLocalName())) {
+                String name = _reader.getAttributeValue("name");
+                if ("ocr-system".equals(name) && _ocrEngine.isEmpty())
+                    _ocrEngine = attribute("content", "");
+                else if ("ocr-capabilities".equals(name) && _ocrCapabilities.isEmpty())
+                    _ocrCapabilities = attribute("content", "");
+            }
+        }
+
+        else if (_lineDepth < 0) {
+            if ("ocr_line".equals(cssClass))
+                _lineDepth = _depth;
+        }
+
+        else if (_wordDepth < 0 && "ocrx_word".equals(cssClass)) {
+            _wordDepth = _depth;
+            _wordId = attribute("id", null);
+            _wordTitle = attribute("title", "");
+            _wordText.setLength(0);
+        }
+    }
+
+    private HOCRToken endElement() {
+        if (_depth == _wordDepth) {
+            _wordDepth = -1;
+            HOCRToken token = _hasPendingWord ? createPendingToken(false) : null;
+
+            _hasPendingWord = true;
+            _pendingText = _wordText.toString().trim();
+            _pendingId = _wordId;
+            _pendingTitle = _wordTitle;
+
+            return token;
+        }
+
+        if (_depth == _lineDepth) {
+            _lineDepth = -1;
+            return _hasPendingWord ? createPendingToken(true) : null;
+        }
+
+        if (_depth == _pageDepth)
+            // we only consider the first page
+            _pageDepth = -1;
+
+        return null;
+    }
+
+    private HOCRToken createPendingToken(boolean isLastTokenOnLine) {
+        _hasPendingWord = false;
+        return new HOCRToken(_pendingText, _pendingId, _pendingTitle, isLastTokenOnLine);
+    }
+
+    private String attribute(String name, String defaultValue) {
+        String value = _reader.getAttributeValue(name);
+        return (value != null) ? value : defaultValue;
+    }
+}
@@ -0,0 +1,27 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import javax.xml.stream.XMLStreamException;
+
+// The parse events of an (X)HTML document that HOCRTokenReader reads, as reported by an XML parser (see
+// XMLMarkupReader) or by the lenient HOCRLexer. The methods are those of XMLStreamReader: next returns the
+// XMLStreamConstants event type, and the names and attributes of the current element are only valid until then.
+interface MarkupReader {
+
+    boolean hasNext() throws XMLStreamException;
+
+    int next() throws XMLStreamException;
+
+    String getLocalName();
+
+    // null if the current element has no such attribute
+    String getAttributeValue(String name);
+
+    char[] getTextCharacters();
+
+    int getTextStart();
+
+    int getTextLength();
+
+    void close() throws XMLStreamException;
+
+}
@@ -0,0 +1,54 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+// The events of a well-formed document, read by an XML parser
+class XMLMarkupReader implements MarkupReader {
+
+    private final XMLStreamReader _reader;
+
+    XMLMarkupReader(XMLStreamReader reader) {
+        _reader = reader;
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        return _reader.hasNext();
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        return _reader.next();
+    }
+
+    @Override
+    public String getLocalName() {
+        return _reader.getLocalName();
+    }
+
+    @Override
+    public String getAttributeValue(String name) {
+        return _reader.getAttributeValue(null, name);
+    }
+
+    @Override
+    public char[] getTextCharacters() {
+        return _reader.getTextCharacters();
+    }
+
+    @Override
+    public int getTextStart() {
+        return _reader.getTextStart();
+    }
+
+    @Override
+    public int getTextLength() {
+        return _reader.getTextLength();
+    }
+
+    @Override
+    public void close() throws XMLStreamException {
+        _reader.close();
+    }
+}
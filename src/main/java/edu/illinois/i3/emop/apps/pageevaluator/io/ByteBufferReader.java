@@ -0,0 +1,104 @@
+package edu.illinois.i3.emop.apps.pageevaluator.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+// Reader decoding the content of a byte buffer (e.g. a memory-mapped file) directly into the buffers it's read
+// into, without any intermediate buffer. Malformed input is replaced, as by InputStreamReader.
+public class ByteBufferReader extends Reader {
+
+    private final ByteBuffer _input;
+    private final CharsetDecoder _decoder;
+    private boolean _endOfInput;
+    private boolean _flushed;
+
+    // the rest of a character (a surrogate pair) that didn't fit in the buffer it was read into
+    private final char[] _pending = new char[2];
+    private int _pendingPosition;
+    private int _pendingLimit;
+
+    public ByteBufferReader(ByteBuffer input, Charset charset) {
+        this(input, newDecoder(charset));
+    }
+
+    // The decoder is reset, so it can be reused once the previous reader using it is done
+    public ByteBufferReader(ByteBuffer input, CharsetDecoder decoder) {
+        _input = input;
+        _decoder = decoder.reset();
+    }
+
+    public static CharsetDecoder newDecoder(Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0)
+            return 0;
+
+        while (true) {
+            if (_pendingPosition < _pendingLimit) {
+                int n = Math.min(length, _pendingLimit - _pendingPosition);
+                System.arraycopy(_pending, _pendingPosition, buffer, offset, n);
+                _pendingPosition += n;
+                return n;
+            }
+
+            int n = decode(CharBuffer.wrap(buffer, offset, length));
+            if (n > 0)
+                return n;
+
+            if (_flushed)
+                return -1;
+
+            // the buffer is too small for the next character
+            CharBuffer pending = CharBuffer.wrap(_pending);
+            decode(pending);
+            _pendingPosition = 0;
+            _pendingLimit = pending.position();
+        }
+    }
+
+    @Override
+    public boolean ready() {
+        return _pendingPosition < _pendingLimit || _input.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+        _input.position(_input.limit());
+        _endOfInput = true;
+        _flushed = true;
+        _pendingLimit = 0;
+    }
+
+    private int decode(CharBuffer output) throws IOException {
+        int start = output.position();
+
+        if (!_endOfInput) {
+            CoderResult result = _decoder.decode(_input, output, true);
+            if (result.isUnderflow())
+                _endOfInput = true;
+            else if (result.isError())
+                result.throwException();
+        }
+
+        if (_endOfInput && !_flushed) {
+            CoderResult result = _decoder.flush(output);
+            if (result.isUnderflow())
+                _flushed = true;
+            else if (result.isError())
+                result.throwException();
+        }
+
+        return output.position() - start;
+    }
+}
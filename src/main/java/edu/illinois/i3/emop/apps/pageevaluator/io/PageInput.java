@@ -0,0 +1,91 @@
+package edu.illinois.i3.emop.apps.pageevaluator.io;
+
+import com.google.common.collect.Maps;
+import edu.illinois.i3.emop.apps.pageevaluator.archive.ArchiveEntry;
+import edu.illinois.i3.emop.apps.pageevaluator.archive.UnreadableArchive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.Map;
+
+// Reads page files with as little copying and garbage as possible: the pages that are larger than MAP_THRESHOLD
+// are memory-mapped, and the others are read into a buffer reused for every page read by the same thread (mapping
+// a small file costs more than reading it); the pages are then decoded directly from the buffer by the parsers.
+// The buffers and the readers returned are only valid until the next page is read by the same thread.
+public abstract class PageInput {
+
+    public static final int MAP_THRESHOLD = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> _threadBuffers = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        }
+    };
+
+    private static final ThreadLocal<Map<Charset, CharsetDecoder>> _threadDecoders =
+            new ThreadLocal<Map<Charset, CharsetDecoder>>() {
+                @Override
+                protected Map<Charset, CharsetDecoder> initialValue() {
+                    return Maps.newHashMap();
+                }
+            };
+
+    // The content of the page file, which can also be an archive entry (or an archive that can't be read)
+    public static ByteBuffer read(File pageFile) throws IOException {
+        if (pageFile instanceof ArchiveEntry)
+            return ((ArchiveEntry) pageFile).content();
+
+        if (pageFile instanceof UnreadableArchive)
+            throw new IOException("Cannot read archive " + pageFile, ((UnreadableArchive) pageFile).error());
+
+        try (FileChannel channel = new FileInputStream(pageFile).getChannel()) {
+            long size = channel.size();
+            if (size > MAP_THRESHOLD)
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            ByteBuffer buffer = buffer((int) size);
+            // the file may have been truncated since its size was read
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    break;
+
+            buffer.flip();
+
+            return buffer;
+        }
+    }
+
+    public static Reader newReader(ByteBuffer page, Charset charset) {
+        Map<Charset, CharsetDecoder> decoders = _threadDecoders.get();
+        CharsetDecoder decoder = decoders.get(charset);
+        if (decoder == null) {
+            decoder = ByteBufferReader.newDecoder(charset);
+            decoders.put(charset, decoder);
+        }
+
+        return new ByteBufferReader(page, decoder);
+    }
+
+    // The thread's buffer, cleared and limited to the given size, grown if it's too small
+    private static ByteBuffer buffer(int size) {
+        ByteBuffer buffer = _threadBuffers.get();
+        if (buffer.capacity() < size) {
+            buffer = ByteBuffer.allocate(Math.min(Integer.highestOneBit(size) << 1, MAP_THRESHOLD));
+            _threadBuffers.set(buffer);
+        }
+
+        buffer.clear();
+        buffer.limit(size);
+
+        return buffer;
+    }
+}
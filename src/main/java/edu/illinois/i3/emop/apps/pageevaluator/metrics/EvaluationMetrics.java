@@ -0,0 +1,196 @@
+package edu.illinois.i3.emop.apps.pageevaluator.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Page and token counters and per-stage latency histograms, shared by all the threads evaluating pages.
+// Recording is lock-free; a report is a consistent-enough snapshot taken while pages are still being evaluated.
+public class EvaluationMetrics {
+
+    public enum Stage {
+        // reading, parsing and tokenizing the page (these are done together, as the page is streamed)
+        Parse,
+        // classifying the tokens (see PageStatsCalculator.DefaultStats)
+        Stats,
+        // looking up the tokens in the dictionary
+        SpellCheck,
+        // computing the page quality indicators from the page stats
+        Indicators,
+        // the whole page
+        Page
+    }
+
+    public enum Format {
+        JSON, PROMETHEUS
+    }
+
+    private static final double[] PERCENTILES = { 0.5, 0.9, 0.99 };
+
+    private final long _startTime = System.nanoTime();
+    private final AtomicLong _pageCount = new AtomicLong();
+    private final AtomicLong _failedPageCount = new AtomicLong();
+    private final AtomicLong _cachedPageCount = new AtomicLong();
+    private final AtomicLong _tokenCount = new AtomicLong();
+    private final Map<Stage, LatencyHistogram> _stageLatencies = new EnumMap<>(Stage.class);
+
+    public EvaluationMetrics() {
+        for (Stage stage : Stage.values())
+            _stageLatencies.put(stage, new LatencyHistogram());
+    }
+
+    public void record(Stage stage, long nanos) {
+        _stageLatencies.get(stage).record(nanos);
+    }
+
+    public void pageEvaluated(int tokenCount) {
+        _pageCount.incrementAndGet();
+        _tokenCount.addAndGet(tokenCount);
+    }
+
+    public void pageFailed() {
+        _failedPageCount.incrementAndGet();
+    }
+
+    // The page's stats were found in the result cache, so it wasn't evaluated
+    public void pageCached() {
+        _cachedPageCount.incrementAndGet();
+    }
+
+    public long pageCount() {
+        return _pageCount.get();
+    }
+
+    public long tokenCount() {
+        return _tokenCount.get();
+    }
+
+    public LatencyHistogram latency(Stage stage) {
+        return _stageLatencies.get(stage);
+    }
+
+    public String report(Format format) {
+        switch (format) {
+            case JSON:
+                return toJson();
+
+            case PROMETHEUS:
+                return toPrometheus();
+
+            default:
+                throw new RuntimeException("Unsupported format: " + format);
+        }
+    }
+
+    // Latencies are in milliseconds
+    public String toJson() {
+        double elapsed = elapsedSeconds();
+        long pageCount = _pageCount.get();
+        long tokenCount = _tokenCount.get();
+
+        StringBuilder json = new StringBuilder("{");
+        json.append("\"elapsedSeconds\":").append(format(elapsed))
+            .append(",\"pages\":").append(pageCount)
+            .append(",\"failedPages\":").append(_failedPageCount.get())
+            .append(",\"cachedPages\":").append(_cachedPageCount.get())
+            .append(",\"tokens\":").append(tokenCount)
+            .append(",\"pagesPerSecond\":").append(format(rate(pageCount, elapsed)))
+            .append(",\"tokensPerSecond\":").append(format(rate(tokenCount, elapsed)))
+            .append(",\"stages\":{");
+
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram latency = _stageLatencies.get(stage);
+            if (stage.ordinal() > 0)
+                json.append(',');
+
+            json.append('"').append(name(stage)).append("\":{")
+                .append("\"count\":").append(latency.count())
+                .append(",\"totalMs\":").append(format(millis(latency.sum())))
+                .append(",\"meanMs\":").append(format(latency.mean() / TimeUnit.MILLISECONDS.toNanos(1)));
+
+            for (double percentile : PERCENTILES)
+                json.append(",\"p").append(Math.round(percentile * 100)).append("Ms\":")
+                    .append(format(millis(latency.percentile(percentile))));
+
+            json.append(",\"maxMs\":").append(format(millis(latency.max()))).append('}');
+        }
+
+        return json.append("}}").toString();
+    }
+
+    // Prometheus text exposition format; latencies are in seconds
+    public String toPrometheus() {
+        double elapsed = elapsedSeconds();
+        long pageCount = _pageCount.get();
+        long tokenCount = _tokenCount.get();
+
+        StringBuilder text = new StringBuilder();
+        appendMetric(text, "pageevaluator_pages_total", "counter", "Pages evaluated", pageCount);
+        appendMetric(text, "pageevaluator_failed_pages_total", "counter", "Pages that could not be evaluated",
+                _failedPageCount.get());
+        appendMetric(text, "pageevaluator_cached_pages_total", "counter", "Pages found in the result cache",
+                _cachedPageCount.get());
+        appendMetric(text, "pageevaluator_tokens_total", "counter", "Tokens evaluated", tokenCount);
+        appendMetric(text, "pageevaluator_elapsed_seconds", "gauge", "Seconds since the metrics were created", elapsed);
+        appendMetric(text, "pageevaluator_pages_per_second", "gauge", "Average pages evaluated per second",
+                rate(pageCount, elapsed));
+        appendMetric(text, "pageevaluator_tokens_per_second", "gauge", "Average tokens evaluated per second",
+                rate(tokenCount, elapsed));
+
+        String name = "pageevaluator_stage_latency_seconds";
+        text.append("# HELP ").append(name).append(" Time spent in each stage of the page evaluation\n");
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram latency = _stageLatencies.get(stage);
+            String label = "stage=\"" + name(stage) + "\"";
+
+            for (double percentile : PERCENTILES)
+                text.append(name).append('{').append(label).append(",quantile=\"").append(percentile).append("\"} ")
+                    .append(format(seconds(latency.percentile(percentile)))).append('\n');
+
+            text.append(name).append("_sum{").append(label).append("} ")
+                .append(format(seconds(latency.sum()))).append('\n');
+            text.append(name).append("_count{").append(label).append("} ").append(latency.count()).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    private double elapsedSeconds() {
+        return seconds(System.nanoTime() - _startTime);
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String type, String help, double value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void appendMetric(StringBuilder text, String name, String type, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        text.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static String name(Stage stage) {
+        return stage.name().toLowerCase();
+    }
+
+    private static double rate(long count, double seconds) {
+        return (seconds > 0) ? count / seconds : 0;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+}
@@ -0,0 +1,81 @@
+package edu.illinois.i3.emop.apps.pageevaluator.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free histogram of durations in nanoseconds. Every power of 2 is split into SUB_BUCKETS linear buckets,
+// so percentiles are accurate to within 1/SUB_BUCKETS (12.5%) with a fixed, small footprint.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final AtomicLong _count = new AtomicLong();
+    private final AtomicLong _sum = new AtomicLong();
+    private final AtomicLong _max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        _buckets.incrementAndGet(bucket(nanos));
+        _count.incrementAndGet();
+        _sum.addAndGet(nanos);
+
+        long max;
+        while (nanos > (max = _max.get()) && !_max.compareAndSet(max, nanos)) { }
+    }
+
+    public long count() {
+        return _count.get();
+    }
+
+    public long sum() {
+        return _sum.get();
+    }
+
+    public long max() {
+        return _max.get();
+    }
+
+    public double mean() {
+        long count = _count.get();
+        return (count > 0) ? (double) _sum.get() / count : 0;
+    }
+
+    // The duration that the given fraction (0 to 1) of the recorded durations doesn't exceed (approximately)
+    public long percentile(double fraction) {
+        long count = _count.get();
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < _buckets.length(); i++) {
+            seen += _buckets.get(i);
+            if (seen >= rank)
+                return Math.min(bucketStart(i + 1) - 1, _max.get());
+        }
+
+        return _max.get();
+    }
+
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long bucketStart(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,84 @@
+package edu.illinois.i3.emop.apps.pageevaluator.metrics;
+
+import com.google.common.base.Charsets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Writes the metrics report to a file (or to stderr, for "-"), optionally every few seconds while pages are being
+// evaluated. The file is replaced atomically, so a reader (e.g. the Prometheus node exporter textfile collector)
+// never sees a partially written report.
+public class MetricsReporter {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private final EvaluationMetrics _metrics;
+    private final File _reportFile;
+    private final EvaluationMetrics.Format _format;
+    private ScheduledExecutorService _scheduler;
+
+    public MetricsReporter(EvaluationMetrics metrics, File reportFile, EvaluationMetrics.Format format) {
+        _metrics = metrics;
+        _reportFile = reportFile;
+        _format = format;
+    }
+
+    public synchronized void start(int intervalSeconds) {
+        if (intervalSeconds <= 0 || _scheduler != null)
+            return;
+
+        _scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("metrics-reporter").setDaemon(true).build());
+        _scheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    report();
+                }
+                catch (IOException e) {
+                    log.warn("Cannot write the metrics report to " + _reportFile, e);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stops the periodic reports and writes the final one
+    public synchronized void stop() throws IOException {
+        if (_scheduler != null) {
+            _scheduler.shutdownNow();
+            _scheduler = null;
+        }
+
+        report();
+    }
+
+    public synchronized void report() throws IOException {
+        String report = _metrics.report(_format);
+
+        if ("-".equals(_reportFile.getPath())) {
+            System.err.println(report.trim());
+            System.err.flush();
+            return;
+        }
+
+        Path reportPath = _reportFile.getAbsoluteFile().toPath();
+        Path tempPath = reportPath.resolveSibling("." + reportPath.getFileName() + ".tmp");
+        Files.write(tempPath, report.getBytes(Charsets.UTF_8));
+        try {
+            Files.move(tempPath, reportPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, reportPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
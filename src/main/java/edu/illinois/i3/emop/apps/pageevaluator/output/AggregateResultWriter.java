@@ -0,0 +1,73 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import com.google.common.base.Charsets;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.aggregate.AggregateStats;
+import edu.illinois.i3.emop.apps.pageevaluator.aggregate.ScoreHistogram;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.SpellingQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.TokenCount;
+
+// Writes the scores of volumes and collections (see VolumeAggregator) as text, a tab-separated line for each:
+// level, id, collection id (for volumes), page count, token count, TextQuality, SpellingQuality, the 10th, 50th
+// and 90th percentiles of the TextQuality and of the SpellingQuality of the pages, and the number of pages in each
+// tenth of the TextQuality range. Closing the writer flushes the lines still buffered, and closes the stream.
+public class AggregateResultWriter implements Closeable {
+
+    private final Writer _writer;
+    private final StringBuilder _line = new StringBuilder();
+
+    public AggregateResultWriter(OutputStream out) {
+        _writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8), TextResultWriter.BUFFER_SIZE);
+    }
+
+    public void writeVolume(String collectionId, AggregateStats volume) throws IOException {
+        write("volume", volume, collectionId);
+    }
+
+    public void writeCollection(AggregateStats collection) throws IOException {
+        write("collection", collection, "-");
+    }
+
+    private void write(String level, AggregateStats aggregate, String collectionId) throws IOException {
+        PageQualityIndicators quality = aggregate.indicators();
+        ScoreHistogram textQuality = aggregate.textQualityDistribution();
+        ScoreHistogram spellingQuality = aggregate.spellingQualityDistribution();
+
+        _line.setLength(0);
+        _line.append(level).append('\t').append(aggregate.id()).append('\t').append(collectionId)
+            .append('\t').append(aggregate.pageCount())
+            .append('\t').append(aggregate.get(TokenCount))
+            .append('\t').append(formatScore((quality != null) ? quality.getDouble(TextQuality) : null))
+            .append('\t').append(formatScore((quality != null) ? quality.getDouble(SpellingQuality) : null));
+
+        for (ScoreHistogram distribution : new ScoreHistogram[] { textQuality, spellingQuality })
+            for (double percentile : new double[] { 0.1, 0.5, 0.9 })
+                _line.append('\t').append(formatScore(distribution.percentile(percentile)));
+
+        _line.append('\t');
+        long[] bins = textQuality.bins(10);
+        for (int i = 0; i < bins.length; i++)
+            _line.append((i > 0) ? "," : "").append(bins[i]);
+
+        _line.append('\n');
+        _writer.append(_line);
+    }
+
+    private static String formatScore(Double score) {
+        return (score == null || score.isNaN()) ? "-" : String.format("%.2f", score);
+    }
+
+    @Override
+    public void close() throws IOException {
+        _writer.close();
+    }
+}
@@ -0,0 +1,112 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+// Columnar binary format, in blocks of up to BLOCK_SIZE pages, in which every column is stored contiguously,
+// so a column can be read without reading the others (big-endian, as written by DataOutputStream):
+//     int magic, int version, int columnCount,
+//     columns: UTF name, byte type (TYPE_INT: int, TYPE_DOUBLE: double)
+//     blocks: int pageCount, pageCount x UTF path, then for every column pageCount values
+//     int 0 (end of the data)
+// The columns are every stat (TYPE_INT), numCorrectTokens (TYPE_INT, -1 if the page wasn't spell checked)
+// and every indicator (TYPE_DOUBLE, NaN if it has no value).
+public class BinaryResultWriter implements PageResultWriter {
+
+    public static final int MAGIC = 0x50455652;  // "PEVR"
+    public static final int VERSION = 1;
+    public static final byte TYPE_INT = 0;
+    public static final byte TYPE_DOUBLE = 1;
+    public static final int BLOCK_SIZE = 4096;
+
+    private static final DefaultStats[] STATS = DefaultStats.values();
+    private static final DefaultIndicators[] INDICATORS = DefaultIndicators.values();
+
+    private final DataOutputStream _out;
+
+    // the current block
+    private final String[] _paths = new String[BLOCK_SIZE];
+    private final int[][] _stats = new int[STATS.length + 1][BLOCK_SIZE];
+    private final double[][] _indicators = new double[INDICATORS.length][BLOCK_SIZE];
+    private int _pageCount;
+
+    public BinaryResultWriter(OutputStream out) throws IOException {
+        _out = new DataOutputStream(new BufferedOutputStream(out, TextResultWriter.BUFFER_SIZE));
+
+        _out.writeInt(MAGIC);
+        _out.writeInt(VERSION);
+        _out.writeInt(STATS.length + 1 + INDICATORS.length);
+        for (DefaultStats stat : STATS) {
+            _out.writeUTF(stat.name());
+            _out.writeByte(TYPE_INT);
+        }
+        _out.writeUTF(NUM_CORRECT_TOKENS);
+        _out.writeByte(TYPE_INT);
+        for (DefaultIndicators indicator : INDICATORS) {
+            _out.writeUTF(indicator.name());
+            _out.writeByte(TYPE_DOUBLE);
+        }
+    }
+
+    @Override
+    public void write(File pageFile, PageResult result) throws IOException {
+        int row = _pageCount++;
+        _paths[row] = InputFile.relativePath(pageFile);
+
+        OCRPageStats stats = result.stats();
+        for (int i = 0; i < STATS.length; i++)
+            _stats[i][row] = stats.get(STATS[i]);
+
+        Integer numCorrectTokens = stats.getInt(NUM_CORRECT_TOKENS);
+        _stats[STATS.length][row] = (numCorrectTokens != null) ? numCorrectTokens : -1;
+
+        PageQualityIndicators indicators = result.indicators();
+        for (int i = 0; i < INDICATORS.length; i++)
+            _indicators[i][row] = (indicators != null) ? indicators.get(INDICATORS[i]) : Double.NaN;
+
+        if (_pageCount == BLOCK_SIZE)
+            writeBlock();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeBlock();
+            _out.writeInt(0);
+        }
+        finally {
+            _out.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (_pageCount == 0)
+            return;
+
+        _out.writeInt(_pageCount);
+        for (int row = 0; row < _pageCount; row++)
+            _out.writeUTF(_paths[row]);
+
+        for (int[] column : _stats)
+            for (int row = 0; row < _pageCount; row++)
+                _out.writeInt(column[row]);
+
+        for (double[] column : _indicators)
+            for (int row = 0; row < _pageCount; row++)
+                _out.writeDouble(column[row]);
+
+        _pageCount = 0;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+// The JSON representation of page results (shared by the server responses and the ndjson output)
+public final class Json {
+
+    private static final DefaultIndicators[] INDICATORS = DefaultIndicators.values();
+    private static final DefaultStats[] STATS = DefaultStats.values();
+
+    private Json() { }
+
+    // {"pageId":..., ["path":...,] <every indicator (null if it has no value)>, "stats":{<every stat>}}
+    public static void appendResult(StringBuilder json, PageResult result, String path) {
+        json.append("{\"pageId\":");
+        appendString(json, result.pageId());
+
+        if (path != null) {
+            json.append(",\"path\":");
+            appendString(json, path);
+        }
+
+        PageQualityIndicators indicators = result.indicators();
+        for (DefaultIndicators indicator : INDICATORS) {
+            json.append(",\"").append(indicator).append("\":");
+            appendNumber(json, (indicators != null) ? indicators.getDouble(indicator) : null);
+        }
+
+        OCRPageStats stats = result.stats();
+        json.append(",\"stats\":{");
+        for (DefaultStats stat : STATS)
+            json.append('"').append(stat).append("\":").append(stats.get(stat)).append(',');
+
+        Integer numCorrectTokens = stats.getInt(NUM_CORRECT_TOKENS);
+        if (numCorrectTokens != null)
+            json.append('"').append(NUM_CORRECT_TOKENS).append("\":").append(numCorrectTokens).append(',');
+
+        json.setLength(json.length() - 1);
+        json.append("}}");
+    }
+
+    public static void appendNumber(StringBuilder json, Double value) {
+        if (value == null || value.isNaN() || value.isInfinite())
+            json.append("null");
+        else
+            json.append(value.doubleValue());
+    }
+
+    public static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+
+        json.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20)
+                        json.append(String.format("\\u%04x", (int) c));
+                    else
+                        json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
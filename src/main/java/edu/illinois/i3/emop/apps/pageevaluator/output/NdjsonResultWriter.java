@@ -0,0 +1,25 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class NdjsonResultWriter extends TextResultWriter {
+
+    private final StringBuilder _line = new StringBuilder();
+
+    public NdjsonResultWriter(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(File pageFile, PageResult result) throws IOException {
+        _line.setLength(0);
+        Json.appendResult(_line, result, InputFile.relativePath(pageFile));
+        _line.append('\n');
+        _writer.append(_line);
+    }
+}
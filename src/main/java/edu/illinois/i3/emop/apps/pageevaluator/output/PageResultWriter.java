@@ -0,0 +1,38 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes page results to a stream, buffering them; only ever called from one thread at a time.
+// Closing the writer flushes the results still buffered, and closes the stream.
+public interface PageResultWriter extends Closeable {
+
+    enum Format {
+        // every format identifies the pages by their path relative to their input (see InputFile)
+
+        // the page path, TextQuality and SpellingQuality, tab-separated (pages without tokens are skipped)
+        TEXT,
+        // a header line and, for every page, the path, all the indicators and all the stats, tab-separated
+        TSV,
+        // a JSON object per line, as returned by the server, with the path of the page
+        NDJSON,
+        // see BinaryResultWriter
+        BINARY;
+
+        public PageResultWriter createWriter(OutputStream out) throws IOException {
+            switch (this) {
+                case TEXT: return new TextResultWriter(out);
+                case TSV: return new TsvResultWriter(out);
+                case NDJSON: return new NdjsonResultWriter(out);
+                case BINARY: return new BinaryResultWriter(out);
+                default: throw new RuntimeException("Unsupported format: " + this);
+            }
+        }
+    }
+
+    void write(File pageFile, PageResult result) throws IOException;
+}
@@ -0,0 +1,46 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import com.google.common.base.Charsets;
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.SpellingQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+
+public class TextResultWriter implements PageResultWriter {
+
+    protected static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final Writer _writer;
+
+    public TextResultWriter(OutputStream out) {
+        _writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(File pageFile, PageResult result) throws IOException {
+        PageQualityIndicators pageQuality = result.indicators();
+        if (pageQuality != null) {
+            writeLine(String.format("%s\t%.2f\t%.2f", InputFile.relativePath(pageFile),
+                    pageQuality.getDouble(TextQuality), pageQuality.getDouble(SpellingQuality)));
+        }
+    }
+
+    protected void writeLine(String line) throws IOException {
+        _writer.write(line);
+        _writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        _writer.close();
+    }
+}
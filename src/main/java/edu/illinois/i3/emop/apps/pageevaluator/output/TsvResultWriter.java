@@ -0,0 +1,61 @@
+package edu.illinois.i3.emop.apps.pageevaluator.output;
+
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+
+// Indicators without a value (and numCorrectTokens, if the page wasn't spell checked) are left empty
+public class TsvResultWriter extends TextResultWriter {
+
+    private static final DefaultIndicators[] INDICATORS = DefaultIndicators.values();
+    private static final DefaultStats[] STATS = DefaultStats.values();
+
+    private final StringBuilder _line = new StringBuilder();
+
+    public TsvResultWriter(OutputStream out) throws IOException {
+        super(out);
+
+        _line.append("path\tpageId");
+        for (DefaultIndicators indicator : INDICATORS)
+            _line.append('\t').append(indicator);
+        for (DefaultStats stat : STATS)
+            _line.append('\t').append(stat);
+        _line.append('\t').append(NUM_CORRECT_TOKENS);
+
+        writeLine(_line.toString());
+    }
+
+    @Override
+    public void write(File pageFile, PageResult result) throws IOException {
+        _line.setLength(0);
+        _line.append(InputFile.relativePath(pageFile)).append('\t').append(result.pageId());
+
+        PageQualityIndicators indicators = result.indicators();
+        for (DefaultIndicators indicator : INDICATORS) {
+            _line.append('\t');
+            if (indicators != null && indicators.has(indicator))
+                _line.append(indicators.get(indicator));
+        }
+
+        OCRPageStats stats = result.stats();
+        for (DefaultStats stat : STATS)
+            _line.append('\t').append(stats.get(stat));
+
+        _line.append('\t');
+        Integer numCorrectTokens = stats.getInt(NUM_CORRECT_TOKENS);
+        if (numCorrectTokens != null)
+            _line.append(numCorrectTokens.intValue());
+
+        _line.append('\n');
+        _writer.append(_line);
+    }
+}
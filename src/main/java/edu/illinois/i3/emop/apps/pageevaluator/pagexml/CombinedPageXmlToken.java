@@ -0,0 +1,31 @@
+package edu.illinois.i3.emop.apps.pageevaluator.pagexml;
+
+import com.google.common.base.MoreObjects;
+
+public class CombinedPageXmlToken extends PageXmlToken {
+    private final PageXmlToken _firstToken;
+    private final PageXmlToken _secondToken;
+
+    public CombinedPageXmlToken(PageXmlToken firstToken, PageXmlToken secondToken) {
+        super(combineTokenText(firstToken.text(), secondToken.text()));
+
+        _firstToken = firstToken;
+        _secondToken = secondToken;
+    }
+
+    public PageXmlToken firstToken() { return _firstToken; }
+    public PageXmlToken secondToken() { return _secondToken; }
+
+    private static String combineTokenText(String text1, String text2) {
+        return text1.substring(0, text1.length() - 1) + text2;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("text", text())
+                .add("firstToken", firstToken())
+                .add("secondToken", secondToken())
+                .toString();
+    }
+}
@@ -0,0 +1,109 @@
+package edu.illinois.i3.emop.apps.pageevaluator.pagexml;
+
+import com.google.common.collect.ImmutableList;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRPage;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRTokenVisitor;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRParserContext;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+
+public class PageXmlPage implements OCRPage<PageXmlToken> {
+
+    private final String _pageId;
+    private final ImmutableList<PageXmlToken> _tokens;
+
+    private PageXmlPage(String pageId, ImmutableList<PageXmlToken> tokens) {
+        _pageId = pageId;
+        _tokens = tokens;
+    }
+
+    public static PageXmlPage parse(Reader pageReader) throws PageParserException {
+        return parse(pageReader, COMBINE_HYPHENATED_EOL_TOKENS);
+    }
+
+    public static PageXmlPage parse(Reader pageReader, int parseOptions) throws PageParserException {
+        final ImmutableList.Builder<PageXmlToken> tokens = ImmutableList.builder();
+        PageXmlTokenReader tokenReader = read(pageReader, parseOptions, new OCRTokenVisitor<PageXmlToken>() {
+            @Override
+            public void visitToken(PageXmlToken token) {
+                tokens.add(token);
+            }
+        });
+
+        return new PageXmlPage(tokenReader.pageId(), tokens.build());
+    }
+
+    // Parses the page, passing each token to the visitor as soon as it is parsed instead of keeping it
+    public static void parse(Reader pageReader, int parseOptions, OCRTokenVisitor<? super PageXmlToken> visitor)
+            throws PageParserException {
+        read(pageReader, parseOptions, visitor);
+    }
+
+    private static PageXmlTokenReader read(Reader pageReader, int parseOptions, OCRTokenVisitor<? super PageXmlToken> visitor)
+            throws PageParserException {
+        XMLStreamReader xmlReader = null;
+        try {
+            xmlReader = HOCRParserContext.get().createReader(pageReader);
+
+            PageXmlTokenReader tokenReader = new PageXmlTokenReader(xmlReader);
+            if (tokenReader.pageId() == null)
+                throw new PageParserException("No Page found");
+
+            if ((parseOptions & COMBINE_HYPHENATED_EOL_TOKENS) > 0) {
+                // combine hyphenated words at end-of-line
+                while (tokenReader.hasNext()) {
+                    PageXmlToken token = tokenReader.next();
+
+                    // join end of line hyphenated words
+                    if (token.isLastTokenOnLine() && token.text().endsWith("-") && tokenReader.hasNext())
+                        token = new CombinedPageXmlToken(token, tokenReader.next());
+
+                    if (token.text().isEmpty())
+                        continue;
+
+                    visitor.visitToken(token);
+                }
+            } else {
+                while (tokenReader.hasNext())
+                    visitor.visitToken(tokenReader.next());
+            }
+
+            return tokenReader;
+        }
+        catch (PageParserException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new PageParserException(e);
+        }
+        finally {
+            // lets the parser context reuse the reader
+            if (xmlReader != null) {
+                try {
+                    xmlReader.close();
+                }
+                catch (XMLStreamException ignored) { }
+            }
+        }
+    }
+
+    public String pageId() {
+        return _pageId;
+    }
+
+    @Override
+    public ImmutableList<PageXmlToken> tokens() {
+        return _tokens;
+    }
+
+    @Override
+    public void visitTokens(OCRTokenVisitor<? super PageXmlToken> visitor) {
+        for (PageXmlToken token : _tokens)
+            visitor.visitToken(token);
+    }
+}
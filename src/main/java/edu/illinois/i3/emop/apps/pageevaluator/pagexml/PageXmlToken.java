@@ -0,0 +1,60 @@
+package edu.illinois.i3.emop.apps.pageevaluator.pagexml;
+
+import com.google.common.base.MoreObjects;
+import edu.illinois.i3.emop.apps.pageevaluator.OCRToken;
+
+import java.util.Arrays;
+
+// A PAGE XML Word or, for the TextLines that have no Words, one of the whitespace-separated words of the line text
+public class PageXmlToken implements OCRToken {
+    private final String _text;
+    private final String _id;
+    private final int[] _bbox;          // x0 y0 x1 y1 (bounding the Coords points), or null if not available
+    private final float _confidence;    // TextEquiv conf, or NaN if not available
+    private final boolean _isLastTokenOnLine;
+
+    public PageXmlToken(String text, String id, int[] bbox, float confidence, boolean isLastTokenOnLine) {
+        _text = text;
+        _id = id;
+        _bbox = bbox;
+        _confidence = confidence;
+        _isLastTokenOnLine = isLastTokenOnLine;
+    }
+
+    protected PageXmlToken(String text) {
+        this(text, null, null, Float.NaN, false);
+    }
+
+    // The id of the Word, or of the TextLine for the words of a line without Words
+    public String id() {
+        return _id;
+    }
+
+    public int[] bbox() {
+        return (_bbox != null) ? _bbox.clone() : null;
+    }
+
+    public float confidence() {
+        return _confidence;
+    }
+
+    @Override
+    public String text() {
+        return _text;
+    }
+
+    public boolean isLastTokenOnLine() {
+        return _isLastTokenOnLine;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("text", _text)
+                .add("id", _id)
+                .add("bbox", (_bbox != null) ? Arrays.toString(_bbox) : null)
+                .add("confidence", _confidence)
+                .add("isLastTokenOnLine", _isLastTokenOnLine)
+                .toString();
+    }
+}
@@ -0,0 +1,259 @@
+package edu.illinois.i3.emop.apps.pageevaluator.pagexml;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+import static javax.xml.stream.XMLStreamConstants.*;
+
+// Single-pass reader that produces the Words of the first Page of a PAGE XML document, without building a DOM of the
+// document. The text of a Word (or TextLine) is the Unicode of its first TextEquiv; the TextEquivs of its Glyphs and
+// of the enclosing regions are ignored. As in HOCRTokenReader, the most recent Word is held back until the next Word
+// or the end of its TextLine. The lines that have no Words are split into words on whitespace.
+public class PageXmlTokenReader extends AbstractIterator<PageXmlToken> {
+    private static final Splitter WORD_SPLITTER = Splitter.on(CharMatcher.BREAKING_WHITESPACE).omitEmptyStrings();
+
+    private final XMLStreamReader _reader;
+
+    private String _pageId;
+
+    // Depth of the current element and of the open Page, TextLine, Word, TextEquiv and Unicode elements
+    // (-1 when not open)
+    private int _depth;
+    private int _pageDepth = -1;
+    private int _lineDepth = -1;
+    private int _wordDepth = -1;
+    private int _textEquivDepth = -1;
+    private int _unicodeDepth = -1;
+
+    // The current line...
+    private String _lineId;
+    private boolean _lineHasWords;
+    private boolean _lineHasText;
+    private final StringBuilder _lineText = new StringBuilder();
+
+    // ...the current word...
+    private String _wordId;
+    private int[] _wordBBox;
+    private float _wordConfidence;
+    private boolean _wordHasText;
+    private final StringBuilder _wordText = new StringBuilder();
+
+    // ...and the previous word on the current line, not yet known to be (or not be) the last one
+    private boolean _hasPendingWord;
+    private String _pendingText;
+    private String _pendingId;
+    private int[] _pendingBBox;
+    private float _pendingConfidence;
+
+    // The tokens read, but not returned yet
+    private final Deque<PageXmlToken> _tokens = new ArrayDeque<>();
+
+    public PageXmlTokenReader(XMLStreamReader reader) throws XMLStreamException {
+        _reader = reader;
+
+        // position the reader at the start of the first page
+        while (_pageDepth < 0 && _reader.hasNext()) {
+            int event = _reader.next();
+            if (event == START_ELEMENT) {
+                _depth++;
+                if ("Page".equals(localName())) {
+                    _pageDepth = _depth;
+                    _pageId = attribute("imageFilename", "");
+                }
+            }
+            else if (event == END_ELEMENT)
+                _depth--;
+        }
+    }
+
+    // The image file name of the page, or null if the document has no Page
+    public String pageId() {
+        return _pageId;
+    }
+
+    @Override
+    protected PageXmlToken computeNext() {
+        try {
+            while (_tokens.isEmpty() && _pageDepth >= 0 && _reader.hasNext()) {
+                switch (_reader.next()) {
+                    case START_ELEMENT:
+                        _depth++;
+                        startElement();
+                        break;
+
+                    case CHARACTERS:
+                    case CDATA:
+                    case SPACE:
+                        if (_unicodeDepth >= 0)
+                            text().append(_reader.getTextCharacters(), _reader.getTextStart(), _reader.getTextLength());
+                        break;
+
+                    case END_ELEMENT:
+                        endElement();
+                        _depth--;
+                        break;
+                }
+            }
+
+            return _tokens.isEmpty() ? endOfData() : _tokens.poll();
+        }
+        catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void startElement() {
+        String name = localName();
+
+        if (_lineDepth < 0) {
+            if ("TextLine".equals(name)) {
+                _lineDepth = _depth;
+                _lineId = attribute("id", null);
+                _lineHasWords = false;
+                _lineHasText = false;
+                _lineText.setLength(0);
+            }
+        }
+
+        else if (_wordDepth < 0 && "Word".equals(name)) {
+            _wordDepth = _depth;
+            _lineHasWords = true;
+            _wordId = attribute("id", null);
+            _wordBBox = null;
+            _wordConfidence = Float.NaN;
+            _wordHasText = false;
+            _wordText.setLength(0);
+        }
+
+        // the first TextEquiv of the word, or of the line if it's not in a word
+        else if ("TextEquiv".equals(name) && _textEquivDepth < 0) {
+            if (_wordDepth >= 0 ? (_depth == _wordDepth + 1 && !_wordHasText) :
+                    (_depth == _lineDepth + 1 && !_lineHasText)) {
+                _textEquivDepth = _depth;
+                if (_wordDepth >= 0)
+                    _wordConfidence = floatAttribute("conf");
+            }
+        }
+
+        else if ("Unicode".equals(name) && _depth == _textEquivDepth + 1)
+            _unicodeDepth = _depth;
+
+        else if ("Coords".equals(name) && _depth == _wordDepth + 1)
+            _wordBBox = bbox(attribute("points", ""));
+    }
+
+    private void endElement() {
+        if (_depth == _unicodeDepth)
+            _unicodeDepth = -1;
+
+        else if (_depth == _textEquivDepth) {
+            _textEquivDepth = -1;
+            if (_wordDepth >= 0)
+                _wordHasText = true;
+            else
+                _lineHasText = true;
+        }
+
+        else if (_depth == _wordDepth) {
+            _wordDepth = -1;
+            if (_hasPendingWord)
+                addPendingToken(false);
+
+            _hasPendingWord = true;
+            _pendingText = _wordText.toString().trim();
+            _pendingId = _wordId;
+            _pendingBBox = _wordBBox;
+            _pendingConfidence = _wordConfidence;
+        }
+
+        else if (_depth == _lineDepth) {
+            _lineDepth = -1;
+            if (_hasPendingWord)
+                addPendingToken(true);
+
+            else if (!_lineHasWords) {
+                List<String> words = Lists.newArrayList(WORD_SPLITTER.split(_lineText));
+                for (int i = 0; i < words.size(); i++)
+                    _tokens.add(new PageXmlToken(words.get(i), _lineId, null, Float.NaN, i == words.size() - 1));
+            }
+        }
+
+        else if (_depth == _pageDepth)
+            // we only consider the first page
+            _pageDepth = -1;
+    }
+
+    private void addPendingToken(boolean isLastTokenOnLine) {
+        _hasPendingWord = false;
+        _tokens.add(new PageXmlToken(_pendingText, _pendingId, _pendingBBox, _pendingConfidence, isLastTokenOnLine));
+    }
+
+    // The text of the TextEquiv being read
+    private StringBuilder text() {
+        return (_wordDepth >= 0) ? _wordText : _lineText;
+    }
+
+    // The element name, without a namespace prefix (the parser isn't namespace-aware)
+    private String localName() {
+        String name = _reader.getLocalName();
+        int colon = name.indexOf(':');
+        return (colon >= 0) ? name.substring(colon + 1) : name;
+    }
+
+    private String attribute(String name, String defaultValue) {
+        String value = _reader.getAttributeValue(null, name);
+        return (value != null) ? value : defaultValue;
+    }
+
+    // NaN if the attribute is missing or isn't a number
+    private float floatAttribute(String name) {
+        String value = _reader.getAttributeValue(null, name);
+        if (value == null)
+            return Float.NaN;
+
+        try {
+            return Float.parseFloat(value);
+        }
+        catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    // The bounding box of points like "10,20 30,20 30,40 10,40", or null if they can't be parsed
+    private static int[] bbox(String points) {
+        int[] bbox = null;
+        for (String point : WORD_SPLITTER.split(points)) {
+            int comma = point.indexOf(',');
+            if (comma < 0)
+                return null;
+
+            int x, y;
+            try {
+                x = Integer.parseInt(point.substring(0, comma));
+                y = Integer.parseInt(point.substring(comma + 1));
+            }
+            catch (NumberFormatException e) {
+                return null;
+            }
+
+            if (bbox == null)
+                bbox = new int[] { x, y, x, y };
+            else {
+                bbox[0] = Math.min(bbox[0], x);
+                bbox[1] = Math.min(bbox[1], y);
+                bbox[2] = Math.max(bbox[2], x);
+                bbox[3] = Math.max(bbox[3], y);
+            }
+        }
+
+        return bbox;
+    }
+}
@@ -0,0 +1,322 @@
+package edu.illinois.i3.emop.apps.pageevaluator.server;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import edu.illinois.i3.emop.apps.pageevaluator.Main.DocumentFormat;
+import edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory;
+import edu.illinois.i3.emop.apps.pageevaluator.PageEvaluator;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.dictionary.WordDictionary;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.UnsupportedLanguageException;
+import edu.illinois.i3.emop.apps.pageevaluator.metrics.EvaluationMetrics;
+import edu.illinois.i3.emop.apps.pageevaluator.output.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.NLPToolsFactory.Tools.Tokenizer;
+
+// Evaluates pages over HTTP, keeping the tokenizer models and the dictionary loaded between requests:
+//
+//     POST /evaluate?format=txt&tokenizer=model&language=en&id=page1   (the page content is the request body)
+//     GET  /evaluate?path=/data/volume/page1.html                      (the page is read from the local file)
+//     GET  /health
+//     GET  /metrics?format=prometheus|json                             (only if the server records metrics)
+//
+// The format, tokenizer and language parameters are optional and default to the ones the server was started with;
+// the other languages must have a tokenizer model. The response is a JSON object with the page id, the quality
+// indicators (null if they have no value) and the page stats. Requests are processed in parallel by a fixed number
+// of worker threads. The pages posted larger than the maximum request size are rejected (with a 413 status).
+public class EvaluationServer {
+
+    private static final Logger log = LoggerFactory.getLogger(EvaluationServer.class);
+
+    private static final Pattern TOKENIZER_TYPES = Pattern.compile("simple|whitespace|model|rules");
+    private static final Pattern LANGUAGES = Pattern.compile("[a-z]{2,3}");
+
+    public static final int DEFAULT_MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+
+    private final HttpServer _httpServer;
+    private final ExecutorService _executor;
+    private final DocumentFormat _format;
+    private final String _tokenizerType;
+    private final String _language;
+    private final WordDictionary _dictionary;
+    private final boolean _quiet;
+    private final EvaluationMetrics _metrics;
+    private final int _maxRequestSize;
+
+    private final AtomicInteger _activeRequests = new AtomicInteger();
+    private volatile boolean _stopping;
+
+    // one evaluator (with its own tokenizers) for each combination of format, tokenizer and language requested
+    // (the languages are the server's and the ones with a tokenizer model, so the number of evaluators is bounded)
+    private final ConcurrentMap<String, PageEvaluator> _evaluators = new ConcurrentHashMap<>();
+
+    public EvaluationServer(InetSocketAddress address, int threadCount, DocumentFormat format, String tokenizerType,
+                            String language, WordDictionary dictionary, boolean quiet)
+            throws IOException, UnsupportedLanguageException {
+        this(address, threadCount, format, tokenizerType, language, dictionary, quiet, null);
+    }
+
+    public EvaluationServer(InetSocketAddress address, int threadCount, DocumentFormat format, String tokenizerType,
+                            String language, WordDictionary dictionary, boolean quiet, EvaluationMetrics metrics)
+            throws IOException, UnsupportedLanguageException {
+        this(address, threadCount, format, tokenizerType, language, dictionary, quiet, metrics,
+                DEFAULT_MAX_REQUEST_SIZE);
+    }
+
+    // maxRequestSize is the size (in bytes) of the largest page that can be posted
+    public EvaluationServer(InetSocketAddress address, int threadCount, DocumentFormat format, String tokenizerType,
+                            String language, WordDictionary dictionary, boolean quiet, EvaluationMetrics metrics,
+                            int maxRequestSize) throws IOException, UnsupportedLanguageException {
+        _format = format;
+        _tokenizerType = tokenizerType;
+        _language = language;
+        _dictionary = dictionary;
+        _quiet = quiet;
+        _metrics = metrics;
+        _maxRequestSize = maxRequestSize;
+
+        // load the default tokenizer model before accepting any requests
+        getEvaluator(format, tokenizerType, language);
+
+        _executor = Executors.newFixedThreadPool(threadCount,
+                new ThreadFactoryBuilder().setNameFormat("server-worker-%d").build());
+
+        _httpServer = HttpServer.create(address, 0);
+        _httpServer.setExecutor(_executor);
+        _httpServer.createContext("/evaluate", new EvaluateHandler());
+        _httpServer.createContext("/health", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                sendResponse(exchange, 200, "{\"status\":\"ok\"}");
+            }
+        });
+
+        if (metrics != null)
+            _httpServer.createContext("/metrics", new MetricsHandler());
+    }
+
+    public void start() {
+        _httpServer.start();
+        log.info("Listening on {}", _httpServer.getAddress());
+    }
+
+    public InetSocketAddress address() {
+        return _httpServer.getAddress();
+    }
+
+    // Stops accepting requests and waits (up to gracePeriod seconds) for the ones in progress to complete
+    public void stop(int gracePeriod) throws InterruptedException {
+        log.info("Shutting down...");
+
+        // HttpServer.stop always waits for the whole delay (on Java < 21), so wait for the requests here instead
+        _stopping = true;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(gracePeriod);
+        while (_activeRequests.get() > 0 && System.currentTimeMillis() < deadline)
+            Thread.sleep(50);
+
+        _httpServer.stop(0);
+        _executor.shutdownNow();
+    }
+
+    private PageEvaluator getEvaluator(DocumentFormat format, String tokenizerType, String language)
+            throws UnsupportedLanguageException {
+        String key = format + "/" + tokenizerType + "/" + language;
+        PageEvaluator evaluator = _evaluators.get(key);
+        if (evaluator == null) {
+            evaluator = new PageEvaluator(format, tokenizerType, language, _dictionary, _metrics, null);
+            PageEvaluator existingEvaluator = _evaluators.putIfAbsent(key, evaluator);
+            if (existingEvaluator != null)
+                evaluator = existingEvaluator;
+        }
+
+        return evaluator;
+    }
+
+    private class EvaluateHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            _activeRequests.incrementAndGet();
+            try {
+                if (_stopping) {
+                    sendError(exchange, 503, "Server is shutting down");
+                    return;
+                }
+
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                String method = exchange.getRequestMethod();
+                String path = params.get("path");
+
+                if (!("POST".equals(method) || ("GET".equals(method) && path != null))) {
+                    sendError(exchange, 405, "Use POST with the page content, or GET with a page path");
+                    return;
+                }
+
+                DocumentFormat format;
+                try {
+                    format = params.containsKey("format") ?
+                            DocumentFormat.valueOf(params.get("format").toUpperCase()) : _format;
+                }
+                catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, "Unsupported format: " + params.get("format"));
+                    return;
+                }
+
+                String tokenizerType = params.containsKey("tokenizer") ? params.get("tokenizer") : _tokenizerType;
+                if (!TOKENIZER_TYPES.matcher(tokenizerType).matches()) {
+                    sendError(exchange, 400, "Unsupported tokenizer: " + tokenizerType);
+                    return;
+                }
+
+                String language = params.containsKey("language") ? params.get("language") : _language;
+                PageEvaluator evaluator;
+                try {
+                    if (!LANGUAGES.matcher(language).matches() ||
+                            !(language.equals(_language) || NLPToolsFactory.hasModel(Tokenizer, language)))
+                        throw new UnsupportedLanguageException(language);
+
+                    evaluator = getEvaluator(format, tokenizerType, language);
+                }
+                catch (UnsupportedLanguageException e) {
+                    sendError(exchange, 400, "Unsupported language: " + language);
+                    return;
+                }
+
+                PageResult result;
+                if ("POST".equals(method)) {
+                    String pageId = params.containsKey("id") ? params.get("id") : "";
+                    byte[] page = readPage(exchange);
+                    if (page == null) {
+                        sendError(exchange, 413, "The page is larger than " + _maxRequestSize + " bytes");
+                        return;
+                    }
+
+                    result = evaluator.evaluate(ByteBuffer.wrap(page), pageId);
+                } else {
+                    File pageFile = new File(path);
+                    if (!pageFile.isFile()) {
+                        sendError(exchange, 404, "No such page file: " + path);
+                        return;
+                    }
+
+                    if (!_quiet)
+                        log.info("Processing {}: {}", format, pageFile);
+
+                    result = evaluator.evaluate(pageFile);
+                }
+
+                sendResponse(exchange, 200, toJson(result));
+            }
+            catch (PageParserException e) {
+                sendError(exchange, 422, "Cannot parse page: " + e.getMessage());
+            }
+            catch (Exception e) {
+                log.error("Error processing request " + exchange.getRequestURI(), e);
+                sendError(exchange, 500, e.toString());
+            }
+            finally {
+                exchange.close();
+                _activeRequests.decrementAndGet();
+            }
+        }
+    }
+
+    // The page posted, or null if it's larger than the maximum request size
+    private byte[] readPage(HttpExchange exchange) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        try {
+            if (contentLength != null && Long.parseLong(contentLength) > _maxRequestSize)
+                return null;
+        }
+        catch (NumberFormatException ignored) { }
+
+        // the content length is not known in advance when the page is sent in chunks
+        try (InputStream pageContent = exchange.getRequestBody()) {
+            byte[] page = ByteStreams.toByteArray(ByteStreams.limit(pageContent, _maxRequestSize + 1L));
+            return (page.length <= _maxRequestSize) ? page : null;
+        }
+    }
+
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String format = parseQuery(exchange.getRequestURI().getRawQuery()).get("format");
+                if (format == null || "prometheus".equals(format))
+                    sendResponse(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+                            _metrics.report(EvaluationMetrics.Format.PROMETHEUS));
+                else if ("json".equals(format))
+                    sendResponse(exchange, 200, _metrics.report(EvaluationMetrics.Format.JSON));
+                else
+                    sendError(exchange, 400, "Unsupported format: " + format);
+            }
+            finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws IOException {
+        Map<String, String> params = Maps.newHashMap();
+        if (query == null)
+            return params;
+
+        for (String param : query.split("&")) {
+            int idx = param.indexOf('=');
+            String name = (idx >= 0) ? param.substring(0, idx) : param;
+            String value = (idx >= 0) ? param.substring(idx + 1) : "";
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+
+        return params;
+    }
+
+    private static String toJson(PageResult result) {
+        StringBuilder json = new StringBuilder();
+        Json.appendResult(json, result, null);
+        return json.toString();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.appendString(json, message);
+        sendResponse(exchange, status, json.append('}').toString());
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String json) throws IOException {
+        sendResponse(exchange, status, "application/json; charset=utf-8", json);
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String contentType, String content)
+            throws IOException {
+        byte[] body = content.getBytes(Charsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package edu.illinois.i3.emop.apps.pageevaluator.txt;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import opennlp.tools.tokenize.Tokenizer;
+import opennlp.tools.tokenize.TokenizerME;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Set;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.FUSE_TOKENIZED_CONTRACTIONS;
+
+// Single-pass reader that tokenizes a text page line by line, so the memory it needs doesn't depend on the size
+// of the page. Lines are split on '\n' only, and a word hyphenated at the end of a line is joined with the start
+// of the next line exactly as
+//     text.replaceAll("(\\S*\\p{L})-\\n(\\p{L}\\S*)\\s*", "$1$2\n")
+// would join it, which is why the reader looks ahead at the first character of the next line. The tokenizers
+// never produce tokens spanning whitespace, so tokenizing line by line gives the same tokens as tokenizing
+// the whole page at once.
+public class TxtTokenReader extends AbstractIterator<TxtToken> {
+    private static final Logger log = LoggerFactory.getLogger(TxtTokenReader.class);
+    private static final Set<String> CONTRACTIONS = ImmutableSet.of("'ll", "'s", "n't", "'ve", "'m", "'d", "'re");
+
+    // longer lines are tokenized in pieces, split at whitespace
+    private static final int MAX_CHUNK_LENGTH = 8192;
+
+    private final Reader _reader;
+    private final Tokenizer _tokenizer;
+    private final boolean _combineHyphenatedWords;
+    private final boolean _fuseContractions;
+
+    private final char[] _buffer = new char[8192];
+    private int _position;
+    private int _limit;
+    private boolean _endOfInput;
+    private boolean _endOfPage;
+
+    // The text read but not yet tokenized: the start of the word hyphenated at the end of the previous line
+    // (if any), followed by the current line
+    private final StringBuilder _text = new StringBuilder();
+    private int _lastSpace = -1;
+    private boolean _isContinuationLine;
+    private boolean _lineHasSpace;
+
+    // The tokens not yet returned, and the last token, held back in case the next token is a contraction
+    private final Deque<String> _tokens = new ArrayDeque<>();
+    private String _pendingToken;
+
+    public TxtTokenReader(Reader pageReader, Tokenizer tokenizer) {
+        this(pageReader, tokenizer, defaultParseOptions(tokenizer));
+    }
+
+    public TxtTokenReader(Reader pageReader, Tokenizer tokenizer, int parseOptions) {
+        if ((parseOptions & FUSE_TOKENIZED_CONTRACTIONS) > 0 && !(tokenizer instanceof TokenizerME))
+            log.warn("Can only fuse tokenized contractions when using TokenizerME. You're using " +
+                    tokenizer.getClass().getSimpleName());
+
+        _reader = pageReader;
+        _tokenizer = tokenizer;
+        _combineHyphenatedWords = (parseOptions & COMBINE_HYPHENATED_EOL_TOKENS) > 0;
+        _fuseContractions = (parseOptions & FUSE_TOKENIZED_CONTRACTIONS) > 0 && (tokenizer instanceof TokenizerME);
+    }
+
+    public static int defaultParseOptions(Tokenizer tokenizer) {
+        int parseOptions = COMBINE_HYPHENATED_EOL_TOKENS;
+        if (tokenizer instanceof TokenizerME)
+            parseOptions |= FUSE_TOKENIZED_CONTRACTIONS;
+
+        return parseOptions;
+    }
+
+    @Override
+    protected TxtToken computeNext() {
+        try {
+            while (true) {
+                while (_tokens.isEmpty() && !_endOfPage)
+                    readLine();
+
+                if (_tokens.isEmpty()) {
+                    if (_pendingToken == null)
+                        return endOfData();
+
+                    String token = _pendingToken;
+                    _pendingToken = null;
+                    return new TxtToken(token);
+                }
+
+                String token = _tokens.removeFirst();
+                if (!_fuseContractions)
+                    return new TxtToken(token);
+
+                String previousToken = _pendingToken;
+                if (previousToken == null) {
+                    _pendingToken = token;
+                    continue;
+                }
+
+                if (CONTRACTIONS.contains(token.toLowerCase())) {
+                    _pendingToken = null;
+                    return new TxtToken(previousToken + token);
+                }
+
+                _pendingToken = token;
+                return new TxtToken(previousToken);
+            }
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // Reads (and tokenizes) up to the end of the current line, or the next MAX_CHUNK_LENGTH characters of it
+    private void readLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '\n') {
+                endLine();
+                return;
+            }
+
+            if (isSpace(c)) {
+                _lastSpace = _text.length();
+                _lineHasSpace = true;
+            }
+
+            _text.append((char) c);
+
+            if (_text.length() >= MAX_CHUNK_LENGTH && _lastSpace >= 0) {
+                tokenize(_lastSpace + 1);
+                return;
+            }
+        }
+
+        tokenize(_text.length());
+        _endOfPage = true;
+    }
+
+    private void endLine() throws IOException {
+        // a line that is entirely the end of a word hyphenated on the previous line can't be joined to the next one
+        boolean canJoin = _combineHyphenatedWords && (_lineHasSpace || !_isContinuationLine);
+
+        if (canJoin && endsWithHyphenatedWord() && Character.isLetter(peekCodePoint())) {
+            // keep the start of the hyphenated word, without the hyphen, to be tokenized with the next line
+            tokenize(_lastSpace + 1);
+            _text.setLength(_text.length() - 1);
+            _isContinuationLine = true;
+        } else {
+            tokenize(_text.length());
+            _isContinuationLine = false;
+        }
+
+        _lineHasSpace = false;
+    }
+
+    // Tokenizes (and removes) _text[0, end); end is either the length of _text or just after its last whitespace
+    private void tokenize(int end) {
+        if (end > 0) {
+            Collections.addAll(_tokens, _tokenizer.tokenize(_text.substring(0, end)));
+            _text.delete(0, end);
+        }
+
+        _lastSpace = -1;
+    }
+
+    private boolean endsWithHyphenatedWord() {
+        int length = _text.length();
+        return length >= 2 && _text.charAt(length - 1) == '-' &&
+                Character.isLetter(Character.codePointBefore(_text, length - 1));
+    }
+
+    private int read() throws IOException {
+        return fill(1) ? _buffer[_position++] : -1;
+    }
+
+    // The next code point, without consuming it, or -1 at the end of the input
+    private int peekCodePoint() throws IOException {
+        if (!fill(1))
+            return -1;
+
+        char c = _buffer[_position];
+        if (Character.isHighSurrogate(c) && fill(2) && Character.isLowSurrogate(_buffer[_position + 1]))
+            return Character.toCodePoint(c, _buffer[_position + 1]);
+
+        return c;
+    }
+
+    // Makes sure at least count characters are buffered, unless the end of the input is reached first
+    private boolean fill(int count) throws IOException {
+        while (_limit - _position < count) {
+            if (_endOfInput)
+                return false;
+
+            if (_position > 0) {
+                System.arraycopy(_buffer, _position, _buffer, 0, _limit - _position);
+                _limit -= _position;
+                _position = 0;
+            }
+
+            int n = _reader.read(_buffer, _limit, _buffer.length - _limit);
+            if (n < 0)
+                _endOfInput = true;
+            else
+                _limit += n;
+        }
+
+        return true;
+    }
+
+    // \s in regular expressions
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,149 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import edu.illinois.i3.emop.apps.pageevaluator.Main.DocumentFormat;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRPage;
+import edu.illinois.i3.emop.apps.pageevaluator.hocr.HOCRToken;
+import opennlp.tools.tokenize.SimpleTokenizer;
+import opennlp.tools.util.Span;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// RuleBasedTokenizer mostly joins what SimpleTokenizer splits: every token is a run of SimpleTokenizer tokens (with
+// no whitespace between them), except that it splits the runs of a repeated punctuation character ("!!!") that
+// SimpleTokenizer keeps together; and the words made of letters only are tokenized the same
+public class RuleBasedTokenizerTest {
+
+    private static final String[] TEXT_PAGES = { "txt/page00.txt", "txt/page01.txt" };
+    private static final String[] HOCR_PAGES = { "hocr/p000.html" };
+
+    // How far the TextQuality of a page may be from the one computed with the TokenizerME model (SimpleTokenizer is
+    // 0.06 off on txt/page01.txt)
+    private static final double TEXT_QUALITY_TOLERANCE = 0.02;
+
+    private static final String EDGE_CASES =
+            "\"Well,\" said Mr. Smith (of the U.S. Navy), \"it's 5 p.m.; isn't it?\" " +
+            "The price--$12.50, or #3--was paid... 'tis done! [sic] {x} <tag> th,e w0rd 1,000 3.14 12/25/1790 50% " +
+            "A.B.C. PURPOSE. `quoted' 1..2 ¬ café naïve ſhall ﬁne Σίσυφος été   end.";
+
+    @Test
+    public void scoresPagesLikeTheModelTokenizer() throws Exception {
+        for (String page : TEXT_PAGES)
+            assertScoresLikeTheModelTokenizer(DocumentFormat.TXT, page);
+        for (String page : HOCR_PAGES)
+            assertScoresLikeTheModelTokenizer(DocumentFormat.HOCR, page);
+    }
+
+    @Test
+    public void joinsOnlySimpleTokensOnTextPages() throws Exception {
+        for (String page : TEXT_PAGES)
+            assertJoinsOnlySimpleTokens(Resources.toString(Resources.getResource(page), Charsets.UTF_8));
+    }
+
+    @Test
+    public void joinsOnlySimpleTokensOnHOCRPages() throws Exception {
+        for (String page : HOCR_PAGES) {
+            String content = Resources.toString(Resources.getResource(page), Charsets.UTF_8);
+            for (HOCRToken token : HOCRPage.parse(new StringReader(content)).tokens())
+                assertJoinsOnlySimpleTokens(token.text());
+        }
+    }
+
+    @Test
+    public void joinsOnlySimpleTokensOnEdgeCases() {
+        assertJoinsOnlySimpleTokens(EDGE_CASES);
+        for (String chunk : EDGE_CASES.split(" "))
+            assertJoinsOnlySimpleTokens(chunk);
+    }
+
+    @Test
+    public void tokenizesWordsLikeSimpleTokenizer() throws Exception {
+        for (String page : TEXT_PAGES) {
+            String content = Resources.toString(Resources.getResource(page), Charsets.UTF_8);
+            for (String chunk : Splitter.on(CharMatcher.WHITESPACE).omitEmptyStrings().split(content)) {
+                if (CharMatcher.JAVA_LETTER.matchesAllOf(chunk))
+                    assertArrayEquals(chunk, SimpleTokenizer.INSTANCE.tokenize(chunk),
+                            RuleBasedTokenizer.INSTANCE.tokenize(chunk));
+            }
+        }
+    }
+
+    @Test
+    public void splitsThePunctuationAtTheEdgesOfWords() {
+        assertTokens("\"Well,\" said Mr. Smith.", "\"Well", ",", "\"", "said", "Mr.", "Smith", ".");
+        assertTokens("(of the U.S. Navy),", "(", "of", "the", "U.S.", "Navy", ")", ",");
+        assertTokens("it's done... $12.50 or #3?", "it's", "done", "...", "$", "12.50", "or", "#", "3", "?");
+        assertTokens("th,e w0rd 12/25/1790", "th", ",e", "w0rd", "12/25/1790");
+        assertTokens("", new String[0]);
+        assertTokens(" \t\n", new String[0]);
+    }
+
+    private static void assertScoresLikeTheModelTokenizer(DocumentFormat format, String page) throws Exception {
+        String content = Resources.toString(Resources.getResource(page), Charsets.UTF_8);
+        double modelQuality = new PageEvaluator(format, "model", "en", null)
+                .evaluate(new StringReader(content), page).indicators().get(TextQuality);
+        double rulesQuality = new PageEvaluator(format, "rules", "en", null)
+                .evaluate(new StringReader(content), page).indicators().get(TextQuality);
+
+        assertEquals(page, modelQuality, rulesQuality, TEXT_QUALITY_TOLERANCE);
+    }
+
+    private static void assertTokens(String text, String... tokens) {
+        assertEquals(Arrays.asList(tokens), Arrays.asList(RuleBasedTokenizer.INSTANCE.tokenize(text)));
+    }
+
+    private static void assertJoinsOnlySimpleTokens(String text) {
+        Span[] simpleSpans = SimpleTokenizer.INSTANCE.tokenizePos(text);
+        Span[] spans = RuleBasedTokenizer.INSTANCE.tokenizePos(text);
+
+        // the boundaries of the SimpleTokenizer tokens (starts and ends), and those within the runs of punctuation
+        BitSet simpleStarts = new BitSet();
+        BitSet simpleEnds = new BitSet();
+        for (Span span : simpleSpans) {
+            simpleStarts.set(span.getStart());
+            simpleEnds.set(span.getEnd());
+
+            if (CharMatcher.JAVA_LETTER_OR_DIGIT.matchesNoneOf(text.substring(span.getStart(), span.getEnd()))) {
+                simpleStarts.set(span.getStart(), span.getEnd());
+                simpleEnds.set(span.getStart() + 1, span.getEnd() + 1);
+            }
+        }
+
+        List<String> tokens = Lists.newArrayList();
+        for (Span span : spans) {
+            String token = text.substring(span.getStart(), span.getEnd());
+            assertTrue("Token \"" + token + "\" in \"" + text + "\"",
+                    simpleStarts.get(span.getStart()) && simpleEnds.get(span.getEnd()) &&
+                            CharMatcher.WHITESPACE.matchesNoneOf(token));
+            tokens.add(token);
+        }
+
+        // and all the text other than whitespace is in the tokens
+        List<String> simpleTokens = Lists.newArrayList();
+        for (Span span : simpleSpans)
+            simpleTokens.add(text.substring(span.getStart(), span.getEnd()));
+        assertEquals(text, CharMatcher.WHITESPACE.removeFrom(text), joined(simpleTokens));
+        assertEquals(text, joined(simpleTokens), joined(tokens));
+    }
+
+    private static String joined(List<String> tokens) {
+        StringBuilder text = new StringBuilder();
+        for (String token : tokens)
+            text.append(token);
+
+        return text.toString();
+    }
+}
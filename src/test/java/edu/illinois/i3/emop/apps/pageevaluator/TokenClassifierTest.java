@@ -0,0 +1,159 @@
+package edu.illinois.i3.emop.apps.pageevaluator;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+import static org.junit.Assert.assertEquals;
+
+// TokenClassifier must classify every token exactly as the regular expressions of classifyWithPatterns do
+public class TokenClassifierTest {
+
+    private static final String[] CORPUS = {
+            // words
+            "the", "The", "THE", "of", "a", "I", "word", "Philadelphia", "hyphen-ated", "don't", "John's",
+            "fhall", "moft", "Ye", "olde", "ſhall", "Mr.", "U.S.", "e.g.", "etc.",
+            // punctuation around words
+            "(word)", "\"quoted\"", "word,", "word.", "word;", "...word", "word...", "'tis", "--word--",
+            "[sic]", "{x}", "<tag>",
+            // numbers and number based objects
+            "1", "12", "1790", "1,000", "3.14", "12/25/1790", "50%", "-5", ".5", "1-2", "$12", "$12.50", "12$",
+            "£5", "€10", "5£", "1.2.3", "1..2", "1//2", "$", "$$", "$1$",
+            // punctuation
+            ".", ",", ";", ":", "!", "?", "-", "'", "\"", "(", ")", "&", "*", "¬", "§", "—",
+            // garbage
+            "..", "--", "!?", "...", ")(", "#@!", "¬¬", "1a2b3c", "a1", "a1b", "ab12cd", "w0rd", "th,e", "t'h'e",
+            "%-", "?-", "-5-", "10.", "¬10", "ab", "xy.", "'a'",
+            // repeated characters
+            "aaaa", "aaa", "AAAA", "AaAa", "baaaab", "1111", "11111a", "....", "----", "mmmmm", "Mississippi",
+            "zzzz1", "..a....",
+            // other scripts
+            "café", "naïve", "Ærø", "ἀρχή", "Ελλάδα", "ΣΟΦΙΑ", "Москва", "東京", "ﾃｽﾄ", "한국어", "עברית", "العربية",
+            "İstanbul", "ıi", "ǅemal", "ß", "STRASSE", "ﬁne", "Ⅻ", "½", "²", "①"
+    };
+
+    private static final String[] EDGE_CASES = {
+            // empty and punctuation-only tokens
+            "", " ", "!", "!!", "!!!", "!!!!", ".,;", "-.-", "''", "\"\"\"", "¡¿", "«»", "„“",
+            // combining marks, and canonically equivalent forms
+            "e\u0301", "cafe\u0301", "café", "na\u0308ive", "a\u0300\u0301\u0302", "\u0301", "\u0301\u0301",
+            "\u0301abc", "x\u20DD", "e\u0301e\u0301e\u0301e\u0301", "ée\u0301ée\u0301", "o\u0308\u0304",
+            "\u1100\u1161\u11A8", "\u1100\u1161\u11A8\u1100\u1161\u11A8", "가가가가",
+            "ｶ\uFF9E", "ﾊ\uFF9Fﾊ\uFF9F", "กำ", "a\u200Db", "\u00AD", "soft\u00ADhyphen",
+            // special casing
+            "İ", "İİİİ", "Σ", "ΣΣΣΣ", "ΟΣ", "I\u0307",
+            // surrogate pairs and lone surrogates
+            "\uD835\uDC00", "\uD835\uDC00\uD835\uDC01\uD835\uDC02", "\uD835\uDC00\uD835\uDC00\uD835\uDC00\uD835\uDC00",
+            "\uD83D\uDE00", "\uD83D\uDE00\uD83D\uDE00", "a\uD83D\uDE00b", "\uD801\uDC00bc", "\uD801\uDC28\uD801\uDC00",
+            "\uD835\uDFCE", "\uD835\uDFCE\uD835\uDFCF", "$\uD835\uDFCE", "\ud800", "a\udc00", "\udc00\ud800",
+            // control characters and line terminators
+            "a\tb", "a\nb", "\n", "\r\n", "abc\u0085", "\u2028", "a\u0000", "\u007f\u007f",
+            // repeated characters
+            "aaaa", "aAaA", "AAAA", "aaa\u0301a", "1111", "11111", "1111a", "a1111", "....", "$$$$", "éééé",
+            "ÉéÉé", "----a", "a----", "aaaaaaaaaaaaaaaaaaaa"
+    };
+
+    // the characters the randomized tokens are made of: mostly letters, with all the kinds of characters the
+    // classification depends on
+    private static final String[] ALPHABET = {
+            "a", "b", "e", "s", "A", "E", "S", "1", "2", "0", ".", ",", "/", "%", "-", "'", "\"", "(", ")", "!", "?",
+            ";", "$", "£", "€", "¬", "é", "É", "ß", "σ", "Σ", "ς", "İ", "ı", "I", "ﬁ", "½", "Ⅻ", "\u0301", "\u0308",
+            "\u20DD", "\u1100", "\u1161", "가", "\uFF9E", "東", " ", "\t", "\u200D", "\uD835\uDC00", "\uD835\uDFCE",
+            "\uD83D\uDE00", "\ud800"
+    };
+
+    @Test
+    public void classifiesCorpusLikeThePatterns() {
+        for (String token : CORPUS)
+            assertClassifiedLikeThePatterns(token);
+    }
+
+    @Test
+    public void classifiesEdgeCasesLikeThePatterns() {
+        for (String token : EDGE_CASES)
+            assertClassifiedLikeThePatterns(token);
+    }
+
+    @Test
+    public void classifiesRandomTokensLikeThePatterns() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++)
+            assertClassifiedLikeThePatterns(randomToken(random));
+    }
+
+    @Test
+    public void classifiesLikeThePatternsInLocalesWithSpecialCasing() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            for (String language : new String[] { "tr", "az", "lt" }) {
+                Locale.setDefault(new Locale(language));
+
+                for (String token : CORPUS)
+                    assertClassifiedLikeThePatterns(token);
+                for (String token : EDGE_CASES)
+                    assertClassifiedLikeThePatterns(token);
+
+                Random random = new Random(42);
+                for (int i = 0; i < 20000; i++)
+                    assertClassifiedLikeThePatterns(randomToken(random));
+            }
+        }
+        finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void classifiesIntoTheExpectedCategories() {
+        assertEquals(CleanAllAlphaNoRepTokenCount, TokenClassifier.classify("Philadelphia"));
+        assertEquals(CleanAllAlphaNoRepTokenCount, TokenClassifier.classify("(word)"));
+        assertEquals(CleanOneNonAlphaNoRepTokenCount, TokenClassifier.classify("don't"));
+        assertEquals(CleanTwoNonAlphaNoRepTokenCount, TokenClassifier.classify("t'h'e"));
+        assertEquals(CleanThreeOrMoreNonAlphaTokenCount, TokenClassifier.classify("1a2b3c"));
+        assertEquals(CleanShortWordCount, TokenClassifier.classify("of"));
+        assertEquals(SingleLetterCount, TokenClassifier.classify("a"));
+        assertEquals(PunctTokenCount, TokenClassifier.classify(";"));
+        assertEquals(NumberObjectsTokenCount, TokenClassifier.classify("$12.50"));
+        assertEquals(NumberObjectsTokenCount, TokenClassifier.classify("12/25/1790"));
+        assertEquals(LenGt1NonAlphaTokenCount, TokenClassifier.classify("#@!"));
+        assertEquals(Ge4RepeatedCharsTokenCount, TokenClassifier.classify("baaaab"));
+        assertEquals(Ge4RepeatedCharsTokenCount, TokenClassifier.classify("AaAa"));
+        assertEquals(Ge4RepeatedCharsTokenCount, TokenClassifier.classify("e\u0301e\u0301e\u0301e\u0301"));
+    }
+
+    private static void assertClassifiedLikeThePatterns(String token) {
+        DefaultStats expected = PageStatsCalculator.classifyWithPatterns(token);
+        assertEquals("Token \"" + escape(token) + "\"", expected, TokenClassifier.classify(token));
+    }
+
+    private static String randomToken(Random random) {
+        StringBuilder token = new StringBuilder();
+
+        // runs of the same character, to exercise the repeated characters checks
+        int length = 1 + random.nextInt(8);
+        while (token.length() < length) {
+            String c = ALPHABET[random.nextInt(ALPHABET.length)];
+            int count = (random.nextInt(4) == 0) ? 1 + random.nextInt(5) : 1;
+            for (int i = 0; i < count; i++)
+                token.append(c);
+        }
+
+        return token.toString();
+    }
+
+    private static String escape(String s) {
+        StringBuilder escaped = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x20 && c < 0x7f)
+                escaped.append(c);
+            else
+                escaped.append(String.format("\\u%04x", (int) c));
+        }
+
+        return escaped.toString();
+    }
+}
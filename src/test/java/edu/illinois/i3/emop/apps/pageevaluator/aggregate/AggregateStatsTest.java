@@ -0,0 +1,98 @@
+package edu.illinois.i3.emop.apps.pageevaluator.aggregate;
+
+import edu.illinois.i3.emop.apps.pageevaluator.PageEvaluator;
+import edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators;
+import edu.illinois.i3.emop.apps.pageevaluator.PageResult;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.SpellingQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageQualityIndicators.DefaultIndicators.TextQuality;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats.*;
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AggregateStatsTest {
+
+    @Test
+    public void sumsCountsLargerThanAnInt() {
+        AggregateStats collection = new AggregateStats("collection");
+        for (int i = 0; i < 4; i++) {
+            AggregateStats volume = new AggregateStats("volume" + i);
+            volume.add(page(Integer.MAX_VALUE - 1, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 4));
+            volume.add(page(Integer.MAX_VALUE - 1, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 4));
+            collection.merge(volume);
+        }
+
+        assertEquals(8, collection.pageCount());
+        assertEquals(8L * (Integer.MAX_VALUE - 1), collection.get(TokenCount));
+        assertEquals(8L * (Integer.MAX_VALUE / 2), collection.get(CleanAllAlphaNoRepTokenCount));
+        assertEquals(Long.valueOf(8L * (Integer.MAX_VALUE / 4)), collection.numCorrectTokens());
+
+        // the same indicators as those of any of its (identical) pages
+        PageQualityIndicators quality = collection.indicators();
+        PageQualityIndicators pageQuality =
+                page(Integer.MAX_VALUE - 1, Integer.MAX_VALUE / 2, Integer.MAX_VALUE / 4).indicators();
+        assertEquals(pageQuality.getDouble(TextQuality), quality.getDouble(TextQuality), 1e-12);
+        assertEquals(pageQuality.getDouble(SpellingQuality), quality.getDouble(SpellingQuality), 1e-12);
+    }
+
+    @Test
+    public void computesTheIndicatorsOfTheSumOfThePages() {
+        AggregateStats volume = new AggregateStats("volume");
+        volume.add(page(100, 50, null));
+        volume.add(page(300, 250, null));
+        volume.add(page(0, 0, null));
+
+        assertEquals(3, volume.pageCount());
+        assertEquals(0.75, volume.indicators().getDouble(TextQuality), 1e-12);
+        assertNull(volume.indicators().getDouble(SpellingQuality));
+        assertNull(volume.numCorrectTokens());
+        assertEquals(2, volume.textQualityDistribution().count());
+
+        assertNull(new AggregateStats("empty").indicators());
+    }
+
+    @Test
+    public void reportsContiguousVolumesAsTheyComplete() {
+        final List<String> reported = new ArrayList<>();
+        VolumeAggregator aggregator = new VolumeAggregator(VolumeAggregator.DIRECTORY_GROUPING, true,
+                new VolumeAggregator.Listener() {
+                    @Override
+                    public void volumeCompleted(String collectionId, AggregateStats volume) {
+                        reported.add(new File(volume.id()).getName() + ":" + volume.pageCount());
+                    }
+
+                    @Override
+                    public void collectionCompleted(AggregateStats collection) {
+                        reported.add(new File(collection.id()).getName() + ":" + collection.pageCount());
+                    }
+                });
+
+        aggregator.add(new File("c/v1/1.txt"), page(10, 5, null));
+        aggregator.add(new File("c/v1/2.txt"), page(10, 5, null));
+        aggregator.add(new File("c/v2/1.txt"), page(10, 5, null));
+        assertEquals(Arrays.asList("v1:2"), reported);
+
+        // a volume whose pages are not listed together is reported once for every run of its pages
+        aggregator.add(new File("c/v1/3.txt"), page(10, 5, null));
+        aggregator.finish();
+        assertEquals(Arrays.asList("v1:2", "v2:1", "v1:1", "c:4"), reported);
+    }
+
+    private static PageResult page(int tokenCount, int cleanTokenCount, Integer numCorrectTokens) {
+        OCRPageStats stats = new OCRPageStats();
+        stats.set(TokenCount, tokenCount);
+        stats.set(CleanAllAlphaNoRepTokenCount, cleanTokenCount);
+        if (numCorrectTokens != null)
+            stats.put(NUM_CORRECT_TOKENS, numCorrectTokens);
+
+        return new PageResult("page", stats, PageEvaluator.computePageQualityIndicators(stats));
+    }
+}
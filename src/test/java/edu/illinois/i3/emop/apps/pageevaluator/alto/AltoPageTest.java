@@ -0,0 +1,78 @@
+package edu.illinois.i3.emop.apps.pageevaluator.alto;
+
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.NONE;
+import static org.junit.Assert.assertEquals;
+
+public class AltoPageTest {
+
+    @Test
+    public void joinsTheWordsHyphenatedAtTheEndOfTheirLine() throws Exception {
+        // marked by a HYP
+        assertTexts(page(line(string("hyphen") + "<HYP CONTENT=\"-\"/>"), line(string("ated"), string("words"))),
+                "hyphenated", "words");
+        assertTexts(page(line(string("hyphen-") + "<HYP CONTENT=\"-\"/>"), line(string("ated"))), "hyphenated");
+
+        // by SUBS_TYPE, with or without the hyphen in the CONTENT of the first part
+        assertTexts(page(line(string("hyphen", "HypPart1")), line(string("ated", "HypPart2"))), "hyphenated");
+        assertTexts(page(line(string("hyphen-", "HypPart1")), line(string("ated", "HypPart2"))), "hyphenated");
+        assertTexts(page(line(string("hyphen¬", "HypPart1") + "<HYP CONTENT=\"¬\"/>"),
+                line(string("ated", "HypPart2"))), "hyphenated");
+
+        // by a trailing hyphen only
+        assertTexts(page(line(string("the"), string("hyphen-")), line(string("ated"))), "the", "hyphenated");
+    }
+
+    @Test
+    public void keepsTheHyphensWithinLines() throws Exception {
+        assertTexts(page(line(string("self-"), string("made")), line(string("end"))), "self-", "made", "end");
+        assertTexts(page(line(string("hyphen-", "HypPart1")), line(string("ated", "HypPart2"))), NONE,
+                "hyphen-", "ated");
+    }
+
+    private static void assertTexts(String page, String... texts) throws PageParserException {
+        assertTexts(page, COMBINE_HYPHENATED_EOL_TOKENS, texts);
+    }
+
+    private static void assertTexts(String page, int parseOptions, String... texts) throws PageParserException {
+        List<String> tokenTexts = new ArrayList<>();
+        for (AltoToken token : AltoPage.parse(new StringReader(page), parseOptions).tokens())
+            tokenTexts.add(token.text());
+
+        assertEquals(Arrays.asList(texts), tokenTexts);
+    }
+
+    private static String page(String... lines) {
+        StringBuilder page = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<alto xmlns=\"http://www.loc.gov/standards/alto/ns-v3#\"><Layout><Page ID=\"p1\"><PrintSpace>" +
+                "<TextBlock ID=\"b1\">\n");
+        for (String line : lines)
+            page.append(line).append('\n');
+
+        return page.append("</TextBlock></PrintSpace></Page></Layout></alto>\n").toString();
+    }
+
+    private static String line(String... strings) {
+        StringBuilder line = new StringBuilder("<TextLine>");
+        for (int i = 0; i < strings.length; i++)
+            line.append((i > 0) ? "<SP/>" : "").append(strings[i]);
+
+        return line.append("</TextLine>").toString();
+    }
+
+    private static String string(String content) {
+        return "<String CONTENT=\"" + content + "\" HPOS=\"1\" VPOS=\"1\" WIDTH=\"2\" HEIGHT=\"2\" WC=\"0.9\"/>";
+    }
+
+    private static String string(String content, String subsType) {
+        return "<String CONTENT=\"" + content + "\" SUBS_TYPE=\"" + subsType + "\" SUBS_CONTENT=\"hyphenated\"/>";
+    }
+}
@@ -0,0 +1,263 @@
+package edu.illinois.i3.emop.apps.pageevaluator.archive;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import edu.illinois.i3.emop.apps.pageevaluator.InputFile;
+import edu.illinois.i3.emop.apps.pageevaluator.PageFileCollector;
+import edu.illinois.i3.emop.apps.pageevaluator.io.PageInput;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ArchiveReaderTest {
+
+    @Rule
+    public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+    @Test
+    public void readsZipArchives() throws Exception {
+        File archive = _tempFolder.newFile("vol1.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("vol1/"));
+            for (String name : new String[] { "vol1/page1.html", "vol1/.hidden.html", "vol1/page2.txt" }) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(content(name));
+            }
+        }
+
+        assertEntries(archive, null, "vol1/page1.html", "vol1/page2.txt");
+        assertEntries(archive, "*.html", "vol1/page1.html");
+        assertEntries(archive, "vol1/*.txt", "vol1/page2.txt");
+        assertEntries(archive, "*.txt", "vol1/page2.txt");
+        assertEntries(archive, "page2.txt/*", new String[0]);
+    }
+
+    @Test
+    public void readsTarArchives() throws Exception {
+        byte[] tar = tar(
+                header("vol1/", 0, '5', null), null,
+                header("vol1/page1.html", content("vol1/page1.html").length, '0', null), content("vol1/page1.html"),
+                header("page2.txt", content("vol1/page2.txt").length, '0', "vol1"), content("vol1/page2.txt"),
+                header("link.txt", 0, '2', "vol1"), null);
+
+        File archive = _tempFolder.newFile("vol1.tar");
+        Files.write(tar, archive);
+        assertEntries(archive, null, "vol1/page1.html", "vol1/page2.txt");
+
+        File gzippedArchive = _tempFolder.newFile("vol1.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzippedArchive))) {
+            out.write(tar);
+        }
+        assertEntries(gzippedArchive, "*.txt", "vol1/page2.txt");
+    }
+
+    @Test
+    public void readsLongTarEntryNames() throws Exception {
+        String longName = "volumes/" + new String(new char[120]).replace('\0', 'v') + "/page1.html";
+        String otherLongName = "volumes/" + new String(new char[130]).replace('\0', 'w') + "/page2.html";
+        byte[] paxHeader = paxRecord("mtime", "1437000000.5");
+        paxHeader = concat(paxHeader, paxRecord("path", otherLongName));
+
+        File archive = _tempFolder.newFile("long.tar");
+        Files.write(tar(
+                header("././@LongLink", longName.length() + 1, 'L', null), (longName + "\0").getBytes(Charsets.UTF_8),
+                header("truncated-name", content(longName).length, '0', null), content(longName),
+                header("PaxHeader", paxHeader.length, 'x', null), paxHeader,
+                header("truncated-name", content(otherLongName).length, '0', null), content(otherLongName)), archive);
+
+        assertEntries(archive, null, longName, otherLongName);
+    }
+
+    @Test
+    public void reportsInvalidPaxHeaders() throws Exception {
+        // a length that doesn't cover the newline, a length larger than the header, a missing newline and a
+        // length that isn't a number
+        for (String paxHeader : new String[] { "2 ", "9 path=a", "99 path=a\n", "11 path=abc ", "x path=a\n" }) {
+            byte[] data = paxHeader.getBytes(Charsets.UTF_8);
+            File archive = _tempFolder.newFile();
+            File tarArchive = new File(archive.getPath() + ".tar");
+            assertTrue(archive.renameTo(tarArchive));
+            Files.write(tar(
+                    header("page1.txt", 5, '0', null), "page1".getBytes(Charsets.UTF_8),
+                    header("PaxHeader", data.length, 'x', null), data,
+                    header("page2.txt", 5, '0', null), "page2".getBytes(Charsets.UTF_8)), tarArchive);
+
+            List<File> entries = entries(tarArchive, null);
+            assertEquals(paxHeader, 2, entries.size());
+            assertEquals("page1.txt", ((ArchiveEntry) entries.get(0)).entryName());
+            assertUnreadable(entries.get(1), "Invalid tar extended header");
+        }
+    }
+
+    @Test
+    public void reportsTruncatedArchivesAfterTheirEntries() throws Exception {
+        byte[] tar = tar(
+                header("page1.txt", 600, '0', null), new byte[600],
+                header("page2.txt", 600, '0', null), new byte[600]);
+
+        File archive = _tempFolder.newFile("truncated.tar");
+        Files.write(Arrays.copyOf(tar, 1500), archive);
+
+        // reported with the path of the archive relative to its input, like its entries
+        List<File> entries = entries(InputFile.of(archive, archive), null);
+        assertEquals(2, entries.size());
+        assertEquals("page1.txt", ((ArchiveEntry) entries.get(0)).entryName());
+        assertUnreadable(entries.get(1), "Truncated tar archive");
+        assertEquals("truncated.tar", InputFile.relativePath(entries.get(1)));
+    }
+
+    @Test
+    public void reportsCorruptArchives() throws Exception {
+        File zipArchive = _tempFolder.newFile("corrupt.zip");
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("page1.txt"));
+            out.write(new byte[10000]);
+        }
+        byte[] zipData = zip.toByteArray();
+        zipData[40] ^= 0x55;  // in the compressed content of the entry
+        Files.write(zipData, zipArchive);
+
+        File tarArchive = _tempFolder.newFile("corrupt.tar");
+        byte[] tarData = tar(header("page1.txt", 5, '0', null), "page1".getBytes(Charsets.UTF_8));
+        tarData[10] = 'x';  // fails the header checksum
+        Files.write(tarData, tarArchive);
+
+        File gzippedArchive = _tempFolder.newFile("corrupt.tar.gz");
+        Files.write("not gzipped".getBytes(Charsets.UTF_8), gzippedArchive);
+
+        File missingArchive = new File(_tempFolder.getRoot(), "missing.zip");
+
+        for (File archive : new File[] { zipArchive, tarArchive, gzippedArchive, missingArchive }) {
+            List<File> entries = entries(archive, null);
+            assertEquals(archive.getName(), 1, entries.size());
+            assertUnreadable(entries.get(0), null);
+        }
+    }
+
+    @Test
+    public void readsTheInputsAfterAnUnreadableArchive() throws Exception {
+        File badArchive = _tempFolder.newFile("bad.tar");
+        Files.write(Arrays.copyOf(tar(header("page1.txt", 600, '0', null), new byte[600]), 700), badArchive);
+
+        File goodArchive = _tempFolder.newFile("good.tar");
+        Files.write(tar(header("page1.txt", 5, '0', null), "page1".getBytes(Charsets.UTF_8)), goodArchive);
+
+        File page = _tempFolder.newFile("page.txt");
+
+        List<File> files = Lists.newArrayList(PageFileCollector.expandArchives(
+                Arrays.asList(badArchive, goodArchive, page), null));
+        assertEquals(3, files.size());
+        assertUnreadable(files.get(0), "Truncated tar archive");
+        assertEquals("page1", new String(((ArchiveEntry) files.get(1)).content().array(), Charsets.UTF_8));
+        assertEquals(page, files.get(2));
+    }
+
+    private static void assertEntries(File archive, String entryFilter, String... names) throws IOException {
+        List<String> entryNames = Lists.newArrayList();
+        for (File entry : entries(archive, entryFilter)) {
+            ArchiveEntry archiveEntry = (ArchiveEntry) entry;
+            assertEquals(archive, archiveEntry.archive());
+            assertEquals(ByteBuffer.wrap(content(archiveEntry.entryName())), PageInput.read(archiveEntry));
+            entryNames.add(archiveEntry.entryName());
+        }
+
+        assertEquals(Arrays.asList(names), entryNames);
+    }
+
+    private static void assertUnreadable(File file, String message) {
+        assertTrue(file.getPath(), file instanceof UnreadableArchive);
+        try {
+            PageInput.read(file);
+            fail("An unreadable archive was read");
+        }
+        catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot read archive"));
+            if (message != null)
+                assertEquals(message, e.getCause().getMessage());
+        }
+    }
+
+    private static List<File> entries(File archive, String entryFilter) {
+        return Lists.newArrayList(ArchiveReader.entries(archive, entryFilter));
+    }
+
+    private static byte[] content(String name) {
+        return ("The content of " + name).getBytes(Charsets.UTF_8);
+    }
+
+    // A ustar header (with the name prefix, if not null)
+    private static byte[] header(String name, long size, char type, String prefix) {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", size));
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        if (prefix != null)
+            put(header, 345, prefix);
+
+        long sum = 0;
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        for (byte b : header)
+            sum += b & 0xff;
+        put(header, 148, String.format("%06o", sum));
+
+        return header;
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+        if (offset == 148)
+            header[offset + bytes.length] = 0;
+    }
+
+    // The headers and contents given (a null content for entries without one), padded to blocks, followed by the
+    // two empty blocks that end an archive
+    private static byte[] tar(byte[]... blocks) throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        for (byte[] block : blocks)
+            if (block != null) {
+                tar.write(block);
+                tar.write(new byte[(512 - block.length % 512) % 512]);
+            }
+        tar.write(new byte[1024]);
+
+        return tar.toByteArray();
+    }
+
+    private static byte[] paxRecord(String key, String value) {
+        String record = " " + key + "=" + value + "\n";
+        int length = record.length() + 1;
+        while (Integer.toString(length).length() + record.length() != length)
+            length++;
+
+        return (length + record).getBytes(Charsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] bytes = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, bytes, a.length, b.length);
+
+        return bytes;
+    }
+}
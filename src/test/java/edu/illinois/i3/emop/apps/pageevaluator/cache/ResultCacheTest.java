@@ -0,0 +1,260 @@
+package edu.illinois.i3.emop.apps.pageevaluator.cache;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.DefaultStats;
+import edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.OCRPageStats;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.PageStatsCalculator.NUM_CORRECT_TOKENS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ResultCacheTest {
+
+    private static final long CACHE_SIZE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+    @Test
+    public void findsThePagesPut() throws Exception {
+        File directory = _tempFolder.newFolder();
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            for (int i = 0; i < 1000; i++)
+                cache.put(key(i), stats(i));
+
+            assertEquals(1000, cache.size());
+            for (int i = 0; i < 1000; i++)
+                assertStatsEqual(stats(i), cache.get(key(i)));
+            assertNull(cache.get(key(1000)));
+        }
+    }
+
+    @Test
+    public void keysDependOnTheConfigurationAndTheContent() {
+        ByteBuffer page = ByteBuffer.wrap("page".getBytes(Charsets.UTF_8));
+
+        assertEquals(ResultCache.key("simple", page), ResultCache.key("simple", page.duplicate()));
+        assertTrue(!ResultCache.key("simple", page).equals(ResultCache.key("rules", page)));
+        assertTrue(!ResultCache.key("simple", page).equals(
+                ResultCache.key("simple", ByteBuffer.wrap("Page".getBytes(Charsets.UTF_8)))));
+        assertEquals(0, page.position());
+    }
+
+    @Test
+    public void keysSharingTheirFirstHalfReplaceEachOther() throws Exception {
+        HashCode key = key(0x1234, 1);
+        HashCode sameFirstHalf = key(0x1234, 2);
+        HashCode otherKey = key(0x1234 + 4096, 1);  // most likely in a slot next to the one of key
+
+        try (ResultCache cache = new ResultCache(_tempFolder.newFolder(), CACHE_SIZE)) {
+            cache.put(key, stats(1));
+            cache.put(otherKey, stats(3));
+            assertStatsEqual(stats(1), cache.get(key));
+            assertNull(cache.get(sameFirstHalf));
+
+            // the newer page replaces the older one (a miss, rather than the stats of another page)
+            cache.put(sameFirstHalf, stats(2));
+            assertStatsEqual(stats(2), cache.get(sameFirstHalf));
+            assertNull(cache.get(key));
+            assertStatsEqual(stats(3), cache.get(otherKey));
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    public void keysStartingWithZeroAreFound() throws Exception {
+        try (ResultCache cache = new ResultCache(_tempFolder.newFolder(), CACHE_SIZE)) {
+            cache.put(key(0, 5), stats(5));
+            assertStatsEqual(stats(5), cache.get(key(0, 5)));
+            assertNull(cache.get(key(1, 5)));
+
+            cache.put(key(1, 6), stats(6));
+            assertStatsEqual(stats(6), cache.get(key(1, 6)));
+            assertNull(cache.get(key(0, 5)));
+        }
+    }
+
+    @Test
+    public void evictsTheOldestPages() throws Exception {
+        File directory = _tempFolder.newFolder();
+        long maxSize = 16 * 1024;
+
+        try (ResultCache cache = new ResultCache(directory, maxSize)) {
+            for (int i = 0; i < 5000; i++)
+                cache.put(key(i), stats(i));
+
+            assertNull(cache.get(key(0)));
+            assertStatsEqual(stats(4999), cache.get(key(4999)));
+            assertTrue(cache.size() < 5000);
+
+            // the segments that are left are the newest ones, and fit in the maximum size (the one being written
+            // is allocated at its full size)
+            int found = 0;
+            for (int i = 0; i < 5000; i++)
+                if (cache.get(key(i)) != null) {
+                    assertStatsEqual(stats(i), cache.get(key(i)));
+                    found++;
+                }
+                else
+                    assertEquals("Page " + i + " evicted after a newer one", 0, found);
+            assertTrue(found > 0);
+        }
+
+        assertTrue(segmentsSize(directory) <= maxSize);
+    }
+
+    @Test
+    public void resumesTheLastSegment() throws Exception {
+        File directory = _tempFolder.newFolder();
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            for (int i = 0; i < 100; i++)
+                cache.put(key(i), stats(i));
+        }
+
+        // the segment is trimmed to its records when the cache is closed
+        File[] segments = segments(directory);
+        assertEquals(1, segments.length);
+        long length = segments[0].length();
+        assertTrue(length < CACHE_SIZE / 4);
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(100, cache.size());
+            for (int i = 0; i < 100; i++)
+                assertStatsEqual(stats(i), cache.get(key(i)));
+
+            for (int i = 100; i < 200; i++)
+                cache.put(key(i), stats(i));
+        }
+
+        assertEquals(1, segments(directory).length);
+        assertTrue(segments[0].length() > length);
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(200, cache.size());
+            for (int i = 0; i < 200; i++)
+                assertStatsEqual(stats(i), cache.get(key(i)));
+        }
+    }
+
+    @Test
+    public void resumesAfterAPartialRecord() throws Exception {
+        File directory = _tempFolder.newFolder();
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            for (int i = 0; i < 10; i++)
+                cache.put(key(i), stats(i));
+        }
+
+        // the start of a record left by a process killed while writing it
+        File segment = segments(directory)[0];
+        try (FileOutputStream out = new FileOutputStream(segment, true)) {
+            out.write(new byte[] { 1, 0x12, 0x34, 0x56 });
+        }
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(10, cache.size());
+            cache.put(key(10), stats(10));
+        }
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(11, cache.size());
+            for (int i = 0; i <= 10; i++)
+                assertStatsEqual(stats(i), cache.get(key(i)));
+        }
+    }
+
+    @Test
+    public void ignoresInvalidSegments() throws Exception {
+        File directory = _tempFolder.newFolder();
+        try (FileOutputStream out = new FileOutputStream(new File(directory, "results-000001.seg"))) {
+            out.write("not a cache segment".getBytes(Charsets.UTF_8));
+        }
+
+        try (ResultCache cache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(0, cache.size());
+            cache.put(key(1), stats(1));
+            assertStatsEqual(stats(1), cache.get(key(1)));
+        }
+    }
+
+    @Test
+    public void locksTheCacheDirectory() throws Exception {
+        File directory = _tempFolder.newFolder();
+
+        ResultCache cache = new ResultCache(directory, CACHE_SIZE);
+        try {
+            new ResultCache(directory, CACHE_SIZE).close();
+            fail("The cache directory was opened twice");
+        }
+        catch (IOException expected) { }
+        finally {
+            cache.close();
+        }
+
+        // closing twice is harmless, and the directory can be opened again once closed
+        cache.close();
+        try (ResultCache reopenedCache = new ResultCache(directory, CACHE_SIZE)) {
+            assertEquals(0, reopenedCache.size());
+        }
+    }
+
+    private static HashCode key(long key0, long key1) {
+        return HashCode.fromBytes(ByteBuffer.allocate(16).putLong(key0).putLong(key1).array());
+    }
+
+    private static HashCode key(int page) {
+        return ResultCache.key("simple", ByteBuffer.wrap(("page " + page).getBytes(Charsets.UTF_8)));
+    }
+
+    // Different stats for every page, some of them spell checked
+    private static OCRPageStats stats(int page) {
+        OCRPageStats stats = new OCRPageStats();
+        for (DefaultStats stat : DefaultStats.values())
+            stats.set(stat, page * (stat.ordinal() + 1) + stat.ordinal());
+        if (page % 3 == 0)
+            stats.put(NUM_CORRECT_TOKENS, page / 3);
+
+        return stats;
+    }
+
+    private static void assertStatsEqual(OCRPageStats expected, OCRPageStats actual) {
+        assertNotNull(actual);
+        for (DefaultStats stat : DefaultStats.values())
+            assertEquals(stat.name(), expected.get(stat), actual.get(stat));
+        assertEquals(expected.getInt(NUM_CORRECT_TOKENS), actual.getInt(NUM_CORRECT_TOKENS));
+    }
+
+    private static File[] segments(File directory) {
+        File[] segments = directory.listFiles(new java.io.FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(".seg");
+            }
+        });
+        Arrays.sort(segments);
+
+        return segments;
+    }
+
+    private static long segmentsSize(File directory) {
+        long size = 0;
+        for (File segment : segments(directory))
+            size += segment.length();
+
+        return size;
+    }
+}
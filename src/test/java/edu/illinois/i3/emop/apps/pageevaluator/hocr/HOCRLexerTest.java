@@ -0,0 +1,135 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.NONE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+// The lenient HOCRLexer must read well-formed (XHTML) pages exactly as the XML parser does
+public class HOCRLexerTest {
+
+    private static final String HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\" " +
+            "\"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">\n" +
+            "<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>Page</title>" +
+            "<meta name=\"ocr-system\" content=\"tesseract 3.02\"/>" +
+            "<meta name='ocr-capabilities' content='ocr_page ocr_line ocrx_word'/></head>\n<body>\n";
+
+    @Test
+    public void readsThePagesLikeTheXmlParser() throws Exception {
+        String page = Resources.toString(Resources.getResource("hocr/p000.html"), Charsets.UTF_8);
+
+        assertSameTokens(page, NONE);
+        assertSameTokens(page, COMBINE_HYPHENATED_EOL_TOKENS);
+    }
+
+    @Test
+    public void readsTheMarkupLikeTheXmlParser() throws Exception {
+        String page = HEADER +
+                "<!-- a comment with <span class=\"ocrx_word\">markup</span> -->\n" +
+                "<div class='ocr_page' id='page_1' title='image \"p1.png\"; bbox 0 0 2000 3000'>\n" +
+                "<script type=\"text/javascript\">//<![CDATA[\nif (a < b && c > d) { x = '<span>'; }\n//]]></script>\n" +
+                "<span class=\"ocr_line\" id=\"line_1\" title=\"bbox 10 10 500 40\">" +
+                "<span class=\"ocrx_word\" id=\"word_1\" title=\"bbox 10 10 50 40; x_wconf 91\">Tom&amp;Jerry</span> " +
+                "<span class=\"ocrx_word\" id=\"word_2\" title=\"bbox 60 10 90 40; x_wconf 80\">&lt;b&gt;</span>\n" +
+                "<span  class = \"ocrx_word\"  id = 'word_3'  title = 'bbox 100 10 150 40' >" +
+                "&quot;quoted&quot;</span> " +
+                "<span class=\"ocrx_word\" id=\"word_4\" title=\"bbox 160 10 200 40; x_wconf 70\">" +
+                "<strong>bo</strong><em>ld</em></span> " +
+                "<span class=\"ocrx_word\" id=\"word_5\" title=\"bbox 210 10 300 40\">hy-</span>\n" +
+                "</span>\n" +
+                "<span class=\"ocr_line\" id=\"line_2\" title=\"bbox 10 50 500 80\">" +
+                "<span class=\"ocrx_word\" id=\"word_6\" title=\"bbox 10 50 60 80\">phen</span> " +
+                "<span class=\"ocrx_word\" id=\"word_7\" title=\"bbox 70 50 90 80\">&#233;t&#xE9;&#x00e9;</span> " +
+                "<span class=\"ocrx_word\" id=\"word_8\" title=\"bbox 100 50 120 80\">Σίσυφος</span> " +
+                "<span class=\"ocrx_word\" id=\"word_9\" title=\"bbox 130 50 150 80\">&#x1D400;&#119809;𝐂</span> " +
+                "<span class=\"ocrx_word\" id=\"word_10\" title=\"bbox 160 50 190 80\">  spaced\n\tout  </span>" +
+                "<span class=\"ocrx_word\" id=\"word_11\" title=\"bbox 200 50 230 80\"><![CDATA[a<b]]></span>" +
+                "<span class=\"ocrx_word\" id=\"word_12\" title=\"bbox 240 50 260 80\"/>" +
+                "<br/>" +
+                "</span>\n" +
+                "</div>\n" +
+                "<div class=\"ocr_page\" id=\"page_2\" title=\"bbox 0 0 2000 3000\">" +
+                "<span class=\"ocrx_word\" id=\"word_13\" title=\"bbox 1 1 2 2\">second</span></div>\n" +
+                "</body></html>\n";
+
+        assertSameTokens(page, NONE);
+        assertSameTokens(page, COMBINE_HYPHENATED_EOL_TOKENS);
+    }
+
+    @Test
+    public void decodesTheHtmlEntities() throws Exception {
+        // the lenient page uses the HTML named entities, and the XML one the characters they stand for (as listed
+        // in the HTML 4.01 specification)
+        String[][] entities = {
+                { "nbsp", "160" }, { "shy", "173" }, { "eacute", "233" }, { "Yacute", "221" }, { "yuml", "255" },
+                { "OElig", "338" }, { "Scaron", "352" }, { "circ", "710" }, { "zwnj", "8204" }, { "rlm", "8207" },
+                { "sbquo", "8218" }, { "permil", "8240" }, { "euro", "8364" }, { "fnof", "402" }, { "Omega", "937" },
+                { "sigmaf", "962" }, { "thetasym", "977" }, { "piv", "982" }, { "bull", "8226" },
+                { "alefsym", "8501" }, { "crarr", "8629" }, { "hArr", "8660" }, { "there4", "8756" },
+                { "lang", "9001" }, { "rang", "9002" }, { "loz", "9674" }, { "diams", "9830" }, { "apos", "39" },
+                { "hellip", "8230" }, { "mdash", "8212" }
+        };
+
+        StringBuilder htmlWords = new StringBuilder();
+        StringBuilder xmlWords = new StringBuilder();
+        for (int i = 0; i < entities.length; i++) {
+            String word = "<span class=\"ocrx_word\" id=\"word_" + i + "\" title=\"bbox 0 0 1 1\">w%sw</span> ";
+            htmlWords.append(String.format(word, "&" + entities[i][0] + ";"));
+            xmlWords.append(String.format(word, "&#" + entities[i][1] + ";"));
+        }
+
+        // unknown entities are kept as they are
+        htmlWords.append("<span class=\"ocrx_word\" id=\"word_x\" title=\"bbox 0 0 1 1\">&unknown;&amp</span>");
+        xmlWords.append("<span class=\"ocrx_word\" id=\"word_x\" title=\"bbox 0 0 1 1\">&amp;unknown;&amp;amp</span>");
+
+        List<HOCRToken> lenientTokens = parseLenient(page(htmlWords), NONE);
+        List<HOCRToken> xmlTokens = parse(page(xmlWords), NONE);
+        assertSameTokens(xmlTokens, lenientTokens);
+        assertEquals("w€w", lenientTokens.get(12).text());
+    }
+
+    private static String page(CharSequence words) {
+        return HEADER + "<div class=\"ocr_page\" id=\"page_1\" title=\"bbox 0 0 100 100\">" +
+                "<span class=\"ocr_line\" id=\"line_1\" title=\"bbox 0 0 100 10\">" + words + "</span></div>" +
+                "</body></html>";
+    }
+
+    private static void assertSameTokens(String page, int parseOptions) throws PageParserException {
+        assertSameTokens(parse(page, parseOptions), parseLenient(page, parseOptions));
+    }
+
+    private static void assertSameTokens(List<HOCRToken> expected, List<HOCRToken> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            HOCRToken expectedToken = expected.get(i);
+            HOCRToken token = actual.get(i);
+            String message = "Token " + i + ": " + expectedToken;
+
+            assertEquals(message, expectedToken.getClass(), token.getClass());
+            assertEquals(message, expectedToken.text(), token.text());
+            assertEquals(message, expectedToken.id(), token.id());
+            assertArrayEquals(message, expectedToken.bbox(), token.bbox());
+            assertEquals(message, expectedToken.confidence(), token.confidence(), 0f);
+            assertEquals(message, expectedToken.isLastTokenOnLine(), token.isLastTokenOnLine());
+            assertEquals(message, expectedToken.properties(), token.properties());
+        }
+    }
+
+    private static List<HOCRToken> parse(String page, int parseOptions) throws PageParserException {
+        return HOCRPage.parse(new StringReader(page), parseOptions).tokens();
+    }
+
+    private static List<HOCRToken> parseLenient(String page, int parseOptions) throws PageParserException {
+        return HOCRPage.parseLenient(ByteBuffer.wrap(page.getBytes(Charsets.UTF_8)), parseOptions).tokens();
+    }
+}
@@ -0,0 +1,56 @@
+package edu.illinois.i3.emop.apps.pageevaluator.hocr;
+
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HOCRTokenTest {
+
+    @Test
+    public void parsesBBoxAndConfidence() {
+        HOCRToken token = new HOCRToken("word", "word_1", "bbox 10 20 118 40; x_wconf 95", false);
+
+        assertArrayEquals(new int[] { 10, 20, 118, 40 }, token.bbox());
+        assertEquals(95f, token.confidence(), 0f);
+    }
+
+    @Test
+    public void acceptsOnlyPlainDecimalConfidences() {
+        assertEquals(95.5f, confidence("x_wconf 95.5"), 0f);
+        assertEquals(7f, confidence("bbox 1 2 3 4;x_wconf  7 "), 0f);
+
+        for (String value : new String[] { "NaN", "Infinity", "-Infinity", "95f", "95d", "0x1p6", "1e2", "-5", "+5",
+                ".5", "5.", "1.2.3", "9 5", "" })
+            assertTrue(value, Float.isNaN(confidence("x_wconf " + value)));
+    }
+
+    @Test
+    public void keepsAllTheTitleProperties() {
+        HOCRToken token = new HOCRToken("word", "word_1", "bbox 10 20 118 40; x_wconf 95; baseline 0.1 -3", true);
+        Properties properties = token.properties();
+
+        assertEquals("word_1", properties.getProperty("id"));
+        assertEquals("10 20 118 40", properties.getProperty("bbox"));
+        assertEquals("95", properties.getProperty("x_wconf"));
+        assertEquals("0.1 -3", properties.getProperty("baseline"));
+        assertEquals("true", properties.getProperty("isLastTokenOnLine"));
+    }
+
+    @Test
+    public void keepsTheTitlePropertiesAsWritten() {
+        Properties properties = new HOCRToken("word", null, "bbox 10 20 118 40; x_wconf 95.0", false).properties();
+
+        assertEquals("10 20 118 40", properties.getProperty("bbox"));
+        assertEquals("95.0", properties.getProperty("x_wconf"));
+        assertNull(properties.getProperty("id"));
+    }
+
+    private static float confidence(String title) {
+        return new HOCRToken("word", null, title, false).confidence();
+    }
+}
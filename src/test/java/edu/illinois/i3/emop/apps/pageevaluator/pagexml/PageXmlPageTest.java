@@ -0,0 +1,132 @@
+package edu.illinois.i3.emop.apps.pageevaluator.pagexml;
+
+import edu.illinois.i3.emop.apps.pageevaluator.exceptions.PageParserException;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.COMBINE_HYPHENATED_EOL_TOKENS;
+import static edu.illinois.i3.emop.apps.pageevaluator.ParseOptions.NONE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PageXmlPageTest {
+
+    @Test
+    public void readsTheFirstTextEquivOfEachWord() throws Exception {
+        assertTexts(page(line(word("w1", textEquiv("first") + textEquiv("second")), word("w2", textEquiv("other")))),
+                "first", "other");
+
+        // the TextEquivs of the Glyphs, of the line and of the region don't add to the words
+        assertTexts(page(line(word("w1", glyph("x") + textEquiv("word") + glyph("y")), word("w2", glyph("z") +
+                textEquiv("two")) + textEquiv("line text")) + textEquiv("region text")), "word", "two");
+    }
+
+    @Test
+    public void splitsTheLinesWithoutWords() throws Exception {
+        PageXmlPage page = parse(page("<TextLine id=\"l1\">" + textEquiv("  split  into\twords ") + "</TextLine>" +
+                line(word("w1", textEquiv("end"))) + textEquiv("region text")), NONE);
+
+        assertEquals(Arrays.asList("split", "into", "words", "end"), texts(page));
+        assertEquals("l1", page.tokens().get(0).id());
+        assertNull(page.tokens().get(0).bbox());
+        assertTrue(Float.isNaN(page.tokens().get(0).confidence()));
+        assertEquals(Arrays.asList(false, false, true, true), lastTokensOnLine(page));
+    }
+
+    @Test
+    public void readsTheCoordsAndConfidenceOfEachWord() throws Exception {
+        PageXmlPage page = parse(page(line(
+                word("w1", "<Coords points=\"30,40 10,20 25,60 12,22\"/>" + textEquiv("word", "0.75")),
+                word("w2", "<Coords points=\"bad\"/>" + textEquiv("two", "not a number")))), NONE);
+
+        PageXmlToken first = page.tokens().get(0);
+        assertEquals("w1", first.id());
+        assertArrayEquals(new int[] { 10, 20, 30, 60 }, first.bbox());
+        assertEquals(0.75f, first.confidence(), 0f);
+
+        PageXmlToken second = page.tokens().get(1);
+        assertNull(second.bbox());
+        assertTrue(Float.isNaN(second.confidence()));
+        assertEquals(Arrays.asList(false, true), lastTokensOnLine(page));
+    }
+
+    @Test
+    public void joinsTheWordsHyphenatedAtTheEndOfTheirLine() throws Exception {
+        String page = page(line(word("w1", textEquiv("the")), word("w2", textEquiv("hyphen-"))) +
+                line(word("w3", textEquiv("ated")), word("w4", textEquiv("self-")), word("w5", textEquiv("made"))) +
+                line(textEquiv("split-")) + line(textEquiv("line end")));
+
+        assertTexts(page, "the", "hyphenated", "self-", "made", "splitline", "end");
+        assertTexts(page, NONE, "the", "hyphen-", "ated", "self-", "made", "split-", "line", "end");
+
+        PageXmlPage parsed = parse(page, COMBINE_HYPHENATED_EOL_TOKENS);
+        CombinedPageXmlToken combined = (CombinedPageXmlToken) parsed.tokens().get(1);
+        assertEquals("w2", combined.firstToken().id());
+        assertEquals("w3", combined.secondToken().id());
+    }
+
+    private static void assertTexts(String page, String... texts) throws PageParserException {
+        assertTexts(page, COMBINE_HYPHENATED_EOL_TOKENS, texts);
+    }
+
+    private static void assertTexts(String page, int parseOptions, String... texts) throws PageParserException {
+        assertEquals(Arrays.asList(texts), texts(parse(page, parseOptions)));
+    }
+
+    private static PageXmlPage parse(String page, int parseOptions) throws PageParserException {
+        return PageXmlPage.parse(new StringReader(page), parseOptions);
+    }
+
+    private static List<String> texts(PageXmlPage page) {
+        List<String> texts = new ArrayList<>();
+        for (PageXmlToken token : page.tokens())
+            texts.add(token.text());
+
+        return texts;
+    }
+
+    private static List<Boolean> lastTokensOnLine(PageXmlPage page) {
+        List<Boolean> lastTokensOnLine = new ArrayList<>();
+        for (PageXmlToken token : page.tokens())
+            lastTokensOnLine.add(token.isLastTokenOnLine());
+
+        return lastTokensOnLine;
+    }
+
+    private static String page(String regionContent) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<PcGts xmlns=\"http://schema.primaresearch.org/PAGE/gts/pagecontent/2019-07-15\">" +
+                "<Page imageFilename=\"p1.png\" imageWidth=\"100\" imageHeight=\"100\">" +
+                "<TextRegion id=\"r1\">\n" + regionContent + "\n</TextRegion></Page></PcGts>\n";
+    }
+
+    private static String line(String... content) {
+        StringBuilder line = new StringBuilder("<TextLine>");
+        for (String element : content)
+            line.append(element);
+
+        return line.append("</TextLine>\n").toString();
+    }
+
+    private static String word(String id, String content) {
+        return "<Word id=\"" + id + "\">" + content + "</Word>";
+    }
+
+    private static String glyph(String text) {
+        return "<Glyph>" + textEquiv(text) + "</Glyph>";
+    }
+
+    private static String textEquiv(String text) {
+        return "<TextEquiv><Unicode>" + text + "</Unicode></TextEquiv>";
+    }
+
+    private static String textEquiv(String text, String confidence) {
+        return "<TextEquiv conf=\"" + confidence + "\"><Unicode>" + text + "</Unicode></TextEquiv>";
+    }
+}
@@ -0,0 +1,98 @@
+package edu.illinois.i3.emop.apps.pageevaluator.server;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+
+// Stand-in for the clients of the evaluation server (e.g. the Python orchestrator): posts pages, or page paths,
+// to /evaluate and returns the responses
+public class EvaluationClient {
+
+    public static class Response {
+        private final int _status;
+        private final String _body;
+
+        private Response(int status, String body) {
+            _status = status;
+            _body = body;
+        }
+
+        public int status() {
+            return _status;
+        }
+
+        public String body() {
+            return _body;
+        }
+    }
+
+    private final String _baseUrl;
+
+    public EvaluationClient(InetSocketAddress address) {
+        _baseUrl = "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    // Posts the page, with the given query parameters (e.g. "format=txt&id=page1"); with chunked, the length of the
+    // page is not sent in advance
+    public Response evaluate(byte[] page, String query, boolean chunked) throws IOException {
+        HttpURLConnection connection = open("/evaluate?" + query);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (chunked)
+            connection.setChunkedStreamingMode(4096);
+        else
+            connection.setFixedLengthStreamingMode(page.length);
+
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(page);
+        }
+
+        return response(connection);
+    }
+
+    public Response evaluate(byte[] page, String query) throws IOException {
+        return evaluate(page, query, false);
+    }
+
+    // Asks the server to evaluate the page file (local to the server)
+    public Response evaluatePath(String path, String query) throws IOException {
+        String pathParam = "path=" + URLEncoder.encode(path, "UTF-8");
+        return get("/evaluate?" + (query.isEmpty() ? pathParam : query + "&" + pathParam));
+    }
+
+    public Response get(String path) throws IOException {
+        return response(open(path));
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(_baseUrl + path).openConnection();
+        connection.setUseCaches(false);
+
+        return connection;
+    }
+
+    private static Response response(HttpURLConnection connection) throws IOException {
+        try {
+            int status = connection.getResponseCode();
+            InputStream body = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+            try {
+                return new Response(status, (body != null) ?
+                        new String(ByteStreams.toByteArray(body), Charsets.UTF_8) : "");
+            }
+            finally {
+                if (body != null)
+                    body.close();
+            }
+        }
+        finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package edu.illinois.i3.emop.apps.pageevaluator.server;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import edu.illinois.i3.emop.apps.pageevaluator.Main.DocumentFormat;
+import edu.illinois.i3.emop.apps.pageevaluator.PageEvaluator;
+import edu.illinois.i3.emop.apps.pageevaluator.output.Json;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EvaluationServerTest {
+
+    private static final int MAX_REQUEST_SIZE = 16 * 1024;
+
+    @Rule
+    public TemporaryFolder _tempFolder = new TemporaryFolder();
+
+    private EvaluationServer _server;
+    private EvaluationClient _client;
+    private PageEvaluator _evaluator;
+
+    @Before
+    public void startServer() throws Exception {
+        _server = new EvaluationServer(new InetSocketAddress("127.0.0.1", 0), 4, DocumentFormat.TXT, "simple", "en",
+                null, true, null, MAX_REQUEST_SIZE);
+        _server.start();
+        _client = new EvaluationClient(_server.address());
+
+        _evaluator = new PageEvaluator(DocumentFormat.TXT, "simple", "en", null);
+    }
+
+    @After
+    public void stopServer() throws InterruptedException {
+        _server.stop(0);
+    }
+
+    @Test
+    public void evaluatesPostedPages() throws Exception {
+        EvaluationClient.Response response = _client.evaluate(page(1), "id=page1");
+
+        assertEquals(200, response.status());
+        assertEquals(expectedJson(page(1), "page1"), response.body());
+    }
+
+    @Test
+    public void evaluatesPageFiles() throws Exception {
+        File pageFile = _tempFolder.newFile("page1.txt");
+        Files.write(page(1), pageFile);
+
+        EvaluationClient.Response response = _client.evaluatePath(pageFile.getPath(), "");
+
+        assertEquals(200, response.status());
+        assertEquals(expectedJson(page(1), "page1.txt"), response.body());
+        assertEquals(404, _client.evaluatePath(new File(_tempFolder.getRoot(), "none.txt").getPath(), "").status());
+    }
+
+    @Test
+    public void evaluatesConcurrentRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<EvaluationClient.Response>> responses = new java.util.ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final int pageNumber = i;
+                responses.add(executor.submit(new Callable<EvaluationClient.Response>() {
+                    @Override
+                    public EvaluationClient.Response call() throws Exception {
+                        return _client.evaluate(page(pageNumber), "id=page" + pageNumber, pageNumber % 2 == 0);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < responses.size(); i++) {
+                EvaluationClient.Response response = responses.get(i).get(1, TimeUnit.MINUTES);
+                assertEquals(200, response.status());
+                assertEquals(expectedJson(page(i), "page" + i), response.body());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void rejectsPagesLargerThanTheMaximumRequestSize() throws Exception {
+        byte[] largePage = new byte[MAX_REQUEST_SIZE + 1];
+        ByteBuffer.wrap(largePage).put(page(1));
+        for (int i = page(1).length; i < largePage.length; i++)
+            largePage[i] = (byte) ((i % 80 == 0) ? '\n' : 'a' + i % 26);
+
+        assertEquals(413, _client.evaluate(largePage, "", false).status());
+        assertEquals(413, _client.evaluate(largePage, "", true).status());
+
+        // the server still serves the other requests
+        assertEquals(200, _client.evaluate(page(1), "").status());
+    }
+
+    @Test
+    public void rejectsUnsupportedParameters() throws Exception {
+        assertEquals(400, _client.evaluate(page(1), "language=zz").status());
+        assertEquals(400, _client.evaluate(page(1), "language=../en").status());
+        assertEquals(400, _client.evaluate(page(1), "format=pdf").status());
+        assertEquals(400, _client.evaluate(page(1), "tokenizer=unknown").status());
+        assertEquals(405, _client.get("/evaluate").status());
+
+        assertEquals(200, _client.evaluate(page(1), "language=en&tokenizer=rules").status());
+    }
+
+    @Test
+    public void completesTheRequestsInProgressOnShutdown() throws Exception {
+        byte[] page = page(1);
+        int half = page.length / 2;
+
+        // a request in progress: its headers and half its content are sent before the server is stopped
+        try (Socket socket = new Socket()) {
+            socket.connect(_server.address());
+            socket.setSoTimeout(60000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("POST /evaluate?id=page1 HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n" +
+                    "Content-Length: " + page.length + "\r\n\r\n").getBytes(Charsets.US_ASCII));
+            out.write(page, 0, half);
+            out.flush();
+            Thread.sleep(500);
+
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> stopped = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        _server.stop(60);
+                        return null;
+                    }
+                });
+
+                // the server doesn't stop while the request is in progress, and rejects the new ones
+                Thread.sleep(500);
+                assertFalse(stopped.isDone());
+                assertEquals(503, _client.evaluate(page(2), "").status());
+
+                out.write(page, half, page.length - half);
+                out.flush();
+
+                String response = new String(ByteStreams.toByteArray(socket.getInputStream()), Charsets.UTF_8);
+                assertTrue(response, response.startsWith("HTTP/1.1 200"));
+                assertTrue(response, response.endsWith(expectedJson(page, "page1")));
+
+                stopped.get(1, TimeUnit.MINUTES);
+            }
+            finally {
+                executor.shutdownNow();
+            }
+        }
+
+        try {
+            _client.evaluate(page(1), "");
+            fail("The server is still accepting requests");
+        }
+        catch (ConnectException expected) { }
+    }
+
+    private String expectedJson(byte[] page, String pageId) throws Exception {
+        StringBuilder json = new StringBuilder();
+        Json.appendResult(json, _evaluator.evaluate(ByteBuffer.wrap(page), pageId), null);
+
+        return json.toString();
+    }
+
+    // A different page for every number
+    private static byte[] page(int number) throws IOException {
+        StringBuilder page = new StringBuilder();
+        for (int line = 0; line < 20 + number % 7; line++)
+            page.append("Tbe quick brown fox, " + number + " times, jumps ouer the lazy dog's back").append('\n');
+
+        return page.toString().getBytes(Charsets.UTF_8);
+    }
+}